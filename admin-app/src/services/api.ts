@@ -53,6 +53,62 @@ export interface ReservationRequest {
   specialRequests?: string;
 }
 
+// Report interfaces
+export interface Page<T> {
+  content: T[];
+  totalElements: number;
+  totalPages: number;
+  number: number;
+  size: number;
+}
+
+export interface CustomerReport {
+  email: string;
+  name: string;
+  reservations: number;
+  visits: number;
+  cancellations: number;
+  noShows: number;
+  covers: number;
+  lastVisit: string | null;
+  noShowRate: number;
+}
+
+// Kept current with every reservation change, unlike the reports
+export interface CustomerProfile extends CustomerReport {
+  phone: string;
+}
+
+export interface RestaurantReport {
+  restaurantId: number;
+  reservations: number;
+  visits: number;
+  cancellations: number;
+  noShows: number;
+  covers: number;
+  lastVisit: string | null;
+  noShowRate: number;
+}
+
+export interface ReservationSummary {
+  exportedAt: string;
+  reservations: number;
+  byStatus: Record<string, number>;
+  covers: number;
+  noShowRate: number;
+  byDayOfWeek: Record<string, number>;
+  byHour: number[];
+}
+
+export interface ReportFilter {
+  restaurantId?: number;
+  from?: string;
+  to?: string;
+  page?: number;
+  size?: number;
+  sort?: string;
+}
+
 // Health check interface
 export interface HealthStatus {
   status: string;
@@ -178,6 +234,39 @@ class ApiService {
       method: 'PUT',
     });
   }
+
+  // Customer profiles, sortable like the customer report
+  async getCustomers(page: Pick<ReportFilter, 'page' | 'size' | 'sort'> = {}): Promise<ApiResponse<Page<CustomerProfile>>> {
+    return this.fetchAPI<Page<CustomerProfile>>(`/customers${this.reportQuery(page)}`);
+  }
+
+  async getCustomer(email: string): Promise<ApiResponse<CustomerProfile>> {
+    return this.fetchAPI<CustomerProfile>(`/customers/${encodeURIComponent(email)}`);
+  }
+
+  // Report endpoints, computed from the latest reservation export
+  async getReservationSummary(filter: ReportFilter = {}): Promise<ApiResponse<ReservationSummary>> {
+    return this.fetchAPI<ReservationSummary>(`/reports/summary${this.reportQuery(filter)}`);
+  }
+
+  async getCustomerReport(filter: ReportFilter = {}): Promise<ApiResponse<Page<CustomerReport>>> {
+    return this.fetchAPI<Page<CustomerReport>>(`/reports/customers${this.reportQuery(filter)}`);
+  }
+
+  async getRestaurantReport(filter: ReportFilter = {}): Promise<ApiResponse<Page<RestaurantReport>>> {
+    return this.fetchAPI<Page<RestaurantReport>>(`/reports/restaurants${this.reportQuery(filter)}`);
+  }
+
+  private reportQuery(filter: ReportFilter): string {
+    const params = new URLSearchParams();
+    Object.entries(filter).forEach(([key, value]) => {
+      if (value !== undefined) {
+        params.set(key, String(value));
+      }
+    });
+    const query = params.toString();
+    return query ? `?${query}` : '';
+  }
 }
 
 export const apiService = new ApiService();
@@ -0,0 +1,30 @@
+#!/bin/sh
+# Starts the application laid out by: mvn -Pfast-startup package
+#
+# Bean definitions come from the AOT-generated initializers instead of classpath scanning
+# and configuration parsing, JDK and library classes are mapped from the AppCDS archive
+# app.jsa, and framework beans that nothing needs at startup are created on first use.
+# Arguments are passed to the application, e.g. --spring.profiles.active=prod, and extra
+# JVM options can be set in JAVA_OPTS.
+#
+# With --training-run as the first argument, the application is started up to context
+# refresh and the classes it loaded are written to app.jsa; the build does this once.
+#
+# The archive is only used with exactly the class path it was recorded with, so the
+# directory is entered first and the class path is relative to it.
+cd "$(dirname "$0")" || exit 1
+
+CLASSPATH="@project.build.finalName@-app.jar:$(cat classpath.txt)"
+if [ "$1" = "--training-run" ]; then
+    shift
+    CDS_OPTS="-XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh"
+elif [ -f app.jsa ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=app.jsa"
+fi
+
+exec java $CDS_OPTS $JAVA_OPTS \
+    -Dspring.aot.enabled=true \
+    -Dspring.main.lazy-initialization=true \
+    -cp "$CLASSPATH" \
+    com.restaurant.reservation.RestaurantReservationApplication \
+    "$@"
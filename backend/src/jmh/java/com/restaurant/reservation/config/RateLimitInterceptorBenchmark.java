@@ -0,0 +1,71 @@
+package com.restaurant.reservation.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the rate limiter, single threaded and with contention on the counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitInterceptorBenchmark {
+    
+    private static final int CLIENTS = 1024;
+    
+    private RateLimitingConfig config;
+    private RateLimitingConfig.RateLimitInterceptor interceptor;
+    
+    @Setup
+    public void setUp() {
+        config = new RateLimitingConfig();
+        ReflectionTestUtils.setField(config, "rateLimitingEnabled", true);
+        ReflectionTestUtils.setField(config, "requestsPerMinute", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(config, "requestsPerHour", Integer.MAX_VALUE);
+        interceptor = config.new RateLimitInterceptor();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        // The counter reset threads are not daemons and would keep the forked JVM alive
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(config, "scheduler")).shutdownNow();
+    }
+    
+    @State(Scope.Thread)
+    public static class Exchange {
+        private final MockHttpServletRequest[] requests = new MockHttpServletRequest[CLIENTS];
+        private final MockHttpServletResponse response = new MockHttpServletResponse();
+        
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < CLIENTS; i++) {
+                requests[i] = new MockHttpServletRequest("GET", "/api/restaurants");
+                requests[i].addHeader("X-Forwarded-For", "10.0." + (i / 256) + "." + (i % 256) + ", 172.16.0.1");
+            }
+        }
+        
+        MockHttpServletRequest nextRequest() {
+            return requests[ThreadLocalRandom.current().nextInt(CLIENTS)];
+        }
+    }
+    
+    @Benchmark
+    public boolean preHandle(Exchange exchange) throws Exception {
+        return interceptor.preHandle(exchange.nextRequest(), exchange.response, this);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public boolean preHandleContended(Exchange exchange) throws Exception {
+        return interceptor.preHandle(exchange.nextRequest(), exchange.response, this);
+    }
+}
@@ -0,0 +1,107 @@
+package com.restaurant.reservation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.RestaurantTable;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.RestaurantJsonCache;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping, alone and followed by Jackson serialization, against writing
+ * the cached JSON of a restaurant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+    
+    private SimpleRestaurantService restaurantService;
+    private SimpleReservationController reservationController;
+    private ObjectMapper objectMapper;
+    private RestaurantJsonCache restaurantJsonCache;
+    private SimpleRestaurant restaurant;
+    private SimpleReservation reservation;
+    
+    @Setup
+    public void setUp() {
+        restaurantService = new SimpleRestaurantService(null, null, null, null);
+        reservationController = new SimpleReservationController(null, null);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        restaurantJsonCache = new RestaurantJsonCache(objectMapper, restaurantService, 1000);
+        
+        restaurant = SimpleRestaurant.builder()
+                .name("Benchmark Bistro")
+                .address("1 Main Street")
+                .city("Austin")
+                .state("TX")
+                .zipCode("73301")
+                .phoneNumber("555-0100")
+                .email("hello@bistro.example.com")
+                .description("Seasonal menu and a long wine list")
+                .cuisine("French")
+                .openingTime(LocalTime.of(11, 0))
+                .closingTime(LocalTime.of(23, 0))
+                .imageUrl("https://img.example.com/cover.jpg")
+                .gallery(List.of("https://img.example.com/1.jpg", "https://img.example.com/2.jpg",
+                        "https://img.example.com/3.jpg", "https://img.example.com/4.jpg"))
+                .priceRange("$$$")
+                .rating(4.6)
+                .build();
+        restaurant.setId(42L);
+        restaurant.setVersion(3L);
+        
+        RestaurantTable table = RestaurantTable.builder().tableNumber("T1").capacity(4).restaurant(restaurant).build();
+        table.setId(7L);
+        reservation = SimpleReservation.builder()
+                .customerName("Ada Lovelace")
+                .customerEmail("ada@example.com")
+                .customerPhone("555-0101")
+                .reservationDateTime(LocalDateTime.now().plusDays(2))
+                .partySize(4)
+                .durationMinutes(90)
+                .specialRequests("Window seat")
+                .restaurant(restaurant)
+                .tables(Set.of(table))
+                .build();
+        reservation.setId(1001L);
+    }
+    
+    @Benchmark
+    public SimpleRestaurantDTO mapRestaurant() {
+        return restaurantService.toDto(restaurant);
+    }
+    
+    @Benchmark
+    public byte[] mapAndSerializeRestaurant() throws Exception {
+        return objectMapper.writeValueAsBytes(restaurantService.toDto(restaurant));
+    }
+    
+    @Benchmark
+    public byte[] serializeCachedRestaurant() throws Exception {
+        return objectMapper.writeValueAsBytes(restaurantJsonCache.json(restaurant));
+    }
+    
+    @Benchmark
+    public SimpleReservationDTO mapReservation() {
+        return reservationController.convertToDTO(reservation);
+    }
+    
+    @Benchmark
+    public byte[] mapAndSerializeReservation() throws Exception {
+        return objectMapper.writeValueAsBytes(reservationController.convertToDTO(reservation));
+    }
+}
@@ -0,0 +1,101 @@
+package com.restaurant.reservation.service;
+
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Booking and search paths of the service layer against an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationServiceBenchmark {
+    
+    private static final String[] CUISINES = {"Italian", "Japanese", "Mexican", "French", "Indian"};
+    private static final String[] CITIES = {"Austin", "Boston", "Chicago", "Denver", "Seattle"};
+    private static final int RESTAURANTS = 200;
+    
+    private ConfigurableApplicationContext context;
+    private SimpleReservationService reservationService;
+    private SimpleRestaurantService restaurantService;
+    private final List<Long> restaurantIds = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private LocalDateTime firstSlot;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ServiceBenchmarkConfig.class).run(ServiceBenchmarkConfig.ARGS);
+        reservationService = context.getBean(SimpleReservationService.class);
+        restaurantService = context.getBean(SimpleRestaurantService.class);
+        
+        for (int i = 0; i < RESTAURANTS; i++) {
+            SimpleRestaurant restaurant = restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                    .name("Benchmark Bistro " + i)
+                    .address(i + " Main Street")
+                    .city(CITIES[i % CITIES.length])
+                    .state("TX")
+                    .zipCode("73301")
+                    .phoneNumber("555-0100")
+                    .description("Seasonal menu and a long wine list")
+                    .cuisine(CUISINES[i % CUISINES.length])
+                    .openingTime(LocalTime.of(11, 0))
+                    .closingTime(LocalTime.of(23, 0))
+                    .capacity(1_000_000)
+                    .gallery(List.of("https://img.example.com/" + i + "/1.jpg", "https://img.example.com/" + i + "/2.jpg"))
+                    .priceRange("$$")
+                    .rating(3.5 + (i % 15) / 10.0)
+                    .build());
+            restaurantIds.add(restaurant.getId());
+        }
+        firstSlot = LocalDate.now().plusDays(1).atTime(12, 0);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public SimpleReservation createReservation() {
+        long n = sequence.incrementAndGet();
+        SimpleReservationDTO dto = SimpleReservationDTO.builder()
+                .customerName("Guest " + n)
+                .customerEmail("guest" + n + "@example.com")
+                .customerPhone("555-0101")
+                .reservationDateTime(firstSlot.plusDays(n % 2_000 / 40).plusMinutes(15 * (n % 40)))
+                .partySize(2 + (int) (n % 5))
+                .restaurantId(restaurantIds.get((int) (n % restaurantIds.size())))
+                .build();
+        return reservationService.createReservation(dto);
+    }
+    
+    @Benchmark
+    public Page<SimpleRestaurant> searchRestaurants() {
+        long n = sequence.incrementAndGet();
+        return restaurantService.searchRestaurants(CUISINES[(int) (n % CUISINES.length)].toLowerCase(), PageRequest.of(0, 20));
+    }
+    
+    @Benchmark
+    public Page<SimpleRestaurant> listActiveRestaurants() {
+        long n = sequence.incrementAndGet();
+        return restaurantService.getAllActiveRestaurants(PageRequest.of((int) (n % 10), 20));
+    }
+}
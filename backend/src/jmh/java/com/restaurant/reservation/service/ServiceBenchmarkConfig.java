@@ -0,0 +1,41 @@
+package com.restaurant.reservation.service;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Service and repository layer only, backed by an in-memory H2 database.
+ * Web, security and controllers are left out so benchmarks measure the booking path itself.
+ */
+@Configuration
+@EnableAutoConfiguration
+@EnableJpaAuditing
+@EntityScan("com.restaurant.reservation.model")
+@EnableJpaRepositories("com.restaurant.reservation.repository")
+@ComponentScan({"com.restaurant.reservation.service", "com.restaurant.reservation.sharding"})
+public class ServiceBenchmarkConfig {
+    
+    /**
+     * Passed as command line arguments so they take precedence over application.yml.
+     */
+    static final String[] ARGS = {
+            "--spring.main.web-application-type=none",
+            "--spring.main.banner-mode=off",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--spring.sql.init.mode=never",
+            "--logging.level.root=WARN",
+            "--logging.level.com.restaurant.reservation=WARN",
+            "--logging.level.org.springframework.security=WARN"
+    };
+}
@@ -0,0 +1,136 @@
+package com.restaurant.reservation.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One visitor going through the booking funnel:
+ * search, restaurant detail, availability, booking, then confirm or cancel.
+ * Each step is taken with the probability given by the {@link TrafficProfile}.
+ */
+final class BookingJourney {
+    
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final TrafficProfile profile;
+    private final List<SeededRestaurant> restaurants;
+    private final ZipfSampler popularity;
+    private final LoadStats stats;
+    
+    BookingJourney(HttpClient client, ObjectMapper objectMapper, String baseUrl, TrafficProfile profile,
+                   List<SeededRestaurant> restaurants, LoadStats stats) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.profile = profile;
+        this.restaurants = restaurants;
+        this.popularity = new ZipfSampler(restaurants.size(), profile.getPopularitySkew());
+        this.stats = stats;
+    }
+    
+    /**
+     * Runs one journey. The first request is timed from {@code intendedStartNanos}, so
+     * time spent queued behind a saturated client counts against the server, as it
+     * would for a real visitor.
+     */
+    void run(long intendedStartNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SeededRestaurant restaurant = restaurants.get(popularity.sample(random));
+        
+        String query = random.nextBoolean() ? restaurant.cuisine() : restaurant.city();
+        if (send(stats.search, intendedStartNanos, get("/api/restaurants/search?size=10&query="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8))) == null) {
+            return;
+        }
+        if (random.nextDouble() >= profile.getDetailRatio()
+                || send(stats.detail, System.nanoTime(), get("/api/restaurants/" + restaurant.id())) == null) {
+            return;
+        }
+        // There is no dedicated availability endpoint yet; the booking UI reads the
+        // restaurant's reservations instead.
+        if (random.nextDouble() >= profile.getAvailabilityRatio()
+                || send(stats.availability, System.nanoTime(),
+                        get("/api/reservations/restaurant/" + restaurant.id() + "?size=50")) == null) {
+            return;
+        }
+        if (random.nextDouble() >= profile.getBookRatio()) {
+            return;
+        }
+        
+        long n = random.nextLong(1_000_000_000L);
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("restaurantId", restaurant.id())
+                .put("customerName", "Load Test " + n)
+                .put("customerEmail", "load" + n + "@example.com")
+                .put("customerPhone", "555-0199")
+                .put("reservationDateTime", profile.slot(random).toString())
+                .put("partySize", profile.partySize(random));
+        HttpRequest create = request("/api/reservations")
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        JsonNode reservation = send(stats.create, System.nanoTime(), create);
+        if (reservation == null) {
+            return;
+        }
+        
+        String action = random.nextDouble() < profile.getCancelRatio() ? "cancel" : "confirm";
+        EndpointStats target = "cancel".equals(action) ? stats.cancel : stats.confirm;
+        send(target, System.nanoTime(), request("/api/reservations/" + reservation.path("id").asLong() + "/" + action)
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+    
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+    
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+    }
+    
+    /**
+     * Sends the request and records its latency and outcome. Returns the parsed body on
+     * success and null otherwise, which ends the journey.
+     */
+    private JsonNode send(EndpointStats endpoint, long startNanos, HttpRequest request) {
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                endpoint.record(startNanos, EndpointStats.Outcome.OK);
+                return objectMapper.readTree(response.body());
+            }
+            endpoint.record(startNanos, status == 409 ? EndpointStats.Outcome.REJECTED : EndpointStats.Outcome.ERROR);
+            return null;
+        } catch (IOException ex) {
+            endpoint.record(startNanos, EndpointStats.Outcome.ERROR);
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    record SeededRestaurant(long id, String city, String cuisine) {
+    }
+}
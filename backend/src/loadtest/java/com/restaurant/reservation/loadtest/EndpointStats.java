@@ -0,0 +1,87 @@
+package com.restaurant.reservation.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters of one endpoint. Latencies are kept in
+ * microseconds with three significant digits, up to one minute.
+ */
+final class EndpointStats {
+    
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    EndpointStats(String name) {
+        this.name = name;
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    void record(long startNanos, Outcome outcome) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        latencies.recordValue(Math.min(Math.max(micros, 1), HIGHEST_TRACKABLE_MICROS));
+        if (outcome == Outcome.REJECTED) {
+            rejected.increment();
+        } else if (outcome == Outcome.ERROR) {
+            errors.increment();
+        }
+    }
+    
+    void reset() {
+        latencies.reset();
+        rejected.reset();
+        errors.reset();
+    }
+    
+    long count() {
+        return latencies.getTotalCount();
+    }
+    
+    long rejected() {
+        return rejected.sum();
+    }
+    
+    long errors() {
+        return errors.sum();
+    }
+    
+    double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+    
+    double maxMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+    
+    /**
+     * Writes the full percentile distribution in the .hgrm format understood by the
+     * HdrHistogram plotter, with values in milliseconds.
+     */
+    void writeDistribution(Path directory) throws IOException {
+        Path file = directory.resolve(name.replaceAll("[^A-Za-z0-9]+", "-") + ".hgrm");
+        try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()))) {
+            latencies.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+    
+    enum Outcome {
+        OK,
+        /** The API refused the request by design, e.g. a fully booked slot. */
+        REJECTED,
+        ERROR
+    }
+}
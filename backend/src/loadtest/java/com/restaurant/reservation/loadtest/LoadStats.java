@@ -0,0 +1,55 @@
+package com.restaurant.reservation.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Per-endpoint statistics of a run and the summary report.
+ */
+final class LoadStats {
+    
+    final EndpointStats search = new EndpointStats("GET /api/restaurants/search");
+    final EndpointStats detail = new EndpointStats("GET /api/restaurants/{id}");
+    final EndpointStats availability = new EndpointStats("GET /api/reservations/restaurant/{id}");
+    final EndpointStats create = new EndpointStats("POST /api/reservations");
+    final EndpointStats confirm = new EndpointStats("PUT /api/reservations/{id}/confirm");
+    final EndpointStats cancel = new EndpointStats("PUT /api/reservations/{id}/cancel");
+    
+    private final List<EndpointStats> all = List.of(search, detail, availability, create, confirm, cancel);
+    
+    void reset() {
+        all.forEach(EndpointStats::reset);
+    }
+    
+    long errors() {
+        return all.stream().mapToLong(EndpointStats::errors).sum();
+    }
+    
+    void print(PrintStream out, double elapsedSeconds) {
+        out.printf("%-40s %9s %9s %9s %9s %9s %9s %9s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "rejected", "errors");
+        for (EndpointStats endpoint : all) {
+            long count = endpoint.count();
+            out.printf("%-40s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9d %7.2f%%%n",
+                    endpoint.getName(),
+                    count,
+                    count / elapsedSeconds,
+                    endpoint.percentileMillis(50),
+                    endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9),
+                    endpoint.maxMillis(),
+                    endpoint.rejected(),
+                    count == 0 ? 0.0 : 100.0 * endpoint.errors() / count);
+        }
+    }
+    
+    void writeDistributions(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (EndpointStats endpoint : all) {
+            endpoint.writeDistribution(directory);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.restaurant.reservation.loadtest;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link LoadTestRunner}, given as {@code --name=value}.
+ */
+@Getter
+final class LoadTestOptions {
+    
+    private static final Set<String> NAMES = Set.of(
+            "target", "profile", "warmup", "duration", "rate", "concurrency", "restaurants", "seed", "report-dir");
+    
+    /** Base URL of a running backend; when absent an embedded instance is started. */
+    private final String target;
+    private final TrafficProfile profile;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    /** Booking journeys started per second, independent of how fast the server answers. */
+    private final int sessionsPerSecond;
+    private final int concurrency;
+    private final int restaurants;
+    private final long seed;
+    private final Path reportDirectory;
+    
+    private LoadTestOptions(Map<String, String> values) {
+        target = values.get("target");
+        profile = TrafficProfile.valueOf(values.getOrDefault("profile", "FRIDAY_RUSH").toUpperCase().replace('-', '_'));
+        warmupSeconds = Integer.parseInt(values.getOrDefault("warmup", "10"));
+        durationSeconds = Integer.parseInt(values.getOrDefault("duration", "60"));
+        sessionsPerSecond = Integer.parseInt(values.getOrDefault("rate", "50"));
+        concurrency = Integer.parseInt(values.getOrDefault("concurrency", "64"));
+        restaurants = Integer.parseInt(values.getOrDefault("restaurants", "200"));
+        seed = Long.parseLong(values.getOrDefault("seed", "42"));
+        reportDirectory = Path.of(values.getOrDefault("report-dir", "target/loadtest"));
+        
+        if (sessionsPerSecond <= 0 || concurrency <= 0 || restaurants <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("rate, concurrency, restaurants and duration must be positive");
+        }
+    }
+    
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            String name = arg.substring(2, separator);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + NAMES);
+            }
+            values.put(name, arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+}
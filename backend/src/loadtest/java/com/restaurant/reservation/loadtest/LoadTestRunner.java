@@ -0,0 +1,165 @@
+package com.restaurant.reservation.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.restaurant.reservation.RestaurantReservationApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays booking traffic against the REST API and reports throughput, latency
+ * percentiles and error rates per endpoint.
+ *
+ * <p>Journeys are started at a fixed rate (open model) rather than by a fixed number
+ * of looping users, so a slow server builds up a queue instead of quietly lowering
+ * the offered load. Without {@code --target} the backend is started in-process with
+ * the {@code embedded} profile on an in-memory H2 database.
+ *
+ * <p>Run with: {@code mvn -Ploadtest verify -Dloadtest.args="--profile=friday_rush --rate=100"}
+ */
+@Slf4j
+public final class LoadTestRunner {
+    
+    private static final String[] CITIES = {"Austin", "Boston", "Chicago", "Denver", "Seattle", "Portland", "Miami"};
+    private static final String[] CUISINES = {"Italian", "Japanese", "Mexican", "French", "Indian", "Thai", "American"};
+    private static final String[] PRICE_RANGES = {"$", "$$", "$$$", "$$$$"};
+    
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    
+    private LoadTestRunner(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        
+        ConfigurableApplicationContext embedded = null;
+        String baseUrl = options.getTarget();
+        if (baseUrl == null) {
+            // A devtools restart would re-run main with Spring's arguments instead of ours
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            embedded = SpringApplication.run(RestaurantReservationApplication.class,
+                    "--spring.profiles.active=embedded", "--server.port=0");
+            baseUrl = "http://localhost:" + embedded.getEnvironment().getProperty("local.server.port");
+        }
+        
+        LoadStats stats;
+        try {
+            stats = new LoadTestRunner(options, baseUrl).run();
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+        // The backend leaves non-daemon scheduler threads behind, so exit explicitly
+        System.exit(stats.errors() > 0 ? 1 : 0);
+    }
+    
+    private LoadStats run() throws IOException, InterruptedException {
+        List<BookingJourney.SeededRestaurant> restaurants = seedRestaurants();
+        LoadStats stats = new LoadStats();
+        BookingJourney journey = new BookingJourney(client, objectMapper, baseUrl, options.getProfile(), restaurants, stats);
+        
+        log.warn("Running {} against {}: {} journeys/s, {}s warmup, {}s measured",
+                options.getProfile(), baseUrl, options.getSessionsPerSecond(),
+                options.getWarmupSeconds(), options.getDurationSeconds());
+        
+        ExecutorService workers = Executors.newFixedThreadPool(options.getConcurrency());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getSessionsPerSecond();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        boolean measuring = options.getWarmupSeconds() == 0;
+        
+        for (long next = start; next < end; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!measuring && next >= measureFrom) {
+                stats.reset();
+                measuring = true;
+            }
+            long intended = next;
+            workers.execute(() -> journey.run(intended));
+        }
+        
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Journeys still running after one minute, reporting without them");
+            workers.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - measureFrom) / 1e9;
+        
+        System.out.println();
+        stats.print(System.out, elapsedSeconds);
+        stats.writeDistributions(options.getReportDirectory());
+        System.out.println();
+        System.out.println("Latency distributions (.hgrm) written to " + options.getReportDirectory().toAbsolutePath());
+        return stats;
+    }
+    
+    /**
+     * Creates the restaurants through the API. Capacities are drawn at random, so the
+     * most popular restaurants fill up under the rush profile and start rejecting bookings.
+     */
+    private List<BookingJourney.SeededRestaurant> seedRestaurants() throws IOException, InterruptedException {
+        Random random = new Random(options.getSeed());
+        List<BookingJourney.SeededRestaurant> restaurants = new ArrayList<>(options.getRestaurants());
+        for (int i = 0; i < options.getRestaurants(); i++) {
+            String city = CITIES[random.nextInt(CITIES.length)];
+            String cuisine = CUISINES[random.nextInt(CUISINES.length)];
+            ObjectNode body = objectMapper.createObjectNode()
+                    .put("name", cuisine + " Kitchen " + i)
+                    .put("address", (100 + i) + " Market Street")
+                    .put("city", city)
+                    .put("state", "CA")
+                    .put("zipCode", "94105")
+                    .put("phoneNumber", "555-0100")
+                    .put("description", "Load test restaurant")
+                    .put("cuisine", cuisine)
+                    .put("openingTime", "11:00:00")
+                    .put("closingTime", "23:00:00")
+                    .put("capacity", 20 + random.nextInt(100))
+                    .put("priceRange", PRICE_RANGES[random.nextInt(PRICE_RANGES.length)])
+                    .put("rating", 3.0 + random.nextInt(21) / 10.0);
+            body.putArray("gallery").add("https://img.example.com/" + i + "/1.jpg");
+            
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/restaurants"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding restaurants failed with HTTP " + response.statusCode()
+                        + ": " + response.body());
+            }
+            JsonNode created = objectMapper.readTree(response.body());
+            restaurants.add(new BookingJourney.SeededRestaurant(created.path("id").asLong(), city, cuisine));
+        }
+        return restaurants;
+    }
+}
@@ -0,0 +1,100 @@
+package com.restaurant.reservation.loadtest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.random.RandomGenerator;
+
+/**
+ * Shape of the simulated traffic: how strongly demand concentrates on popular
+ * restaurants, how far visitors get through the booking funnel, and which evenings
+ * they try to book.
+ */
+public enum TrafficProfile {
+    
+    /**
+     * Weekday browsing: mild popularity skew, most visitors leave before booking and
+     * bookings spread over the next two weeks.
+     */
+    STEADY(0.6, 0.7, 0.5, 0.3, 0.15, false),
+    
+    /**
+     * Friday rush: a handful of restaurants draw most of the demand, more visitors
+     * book, and everyone wants next Friday between 18:00 and 21:30.
+     */
+    FRIDAY_RUSH(1.2, 0.85, 0.75, 0.6, 0.1, true);
+    
+    private static final int[] PARTY_SIZES = {1, 2, 2, 2, 2, 3, 4, 4, 4, 5, 6, 8};
+    
+    private final double popularitySkew;
+    private final double detailRatio;
+    private final double availabilityRatio;
+    private final double bookRatio;
+    private final double cancelRatio;
+    private final boolean fridayEvenings;
+    
+    TrafficProfile(double popularitySkew, double detailRatio, double availabilityRatio,
+                   double bookRatio, double cancelRatio, boolean fridayEvenings) {
+        this.popularitySkew = popularitySkew;
+        this.detailRatio = detailRatio;
+        this.availabilityRatio = availabilityRatio;
+        this.bookRatio = bookRatio;
+        this.cancelRatio = cancelRatio;
+        this.fridayEvenings = fridayEvenings;
+    }
+    
+    /**
+     * Zipf exponent used to pick restaurants by popularity rank.
+     */
+    public double getPopularitySkew() {
+        return popularitySkew;
+    }
+    
+    /**
+     * Probability of opening a search result.
+     */
+    public double getDetailRatio() {
+        return detailRatio;
+    }
+    
+    /**
+     * Probability of checking availability after viewing a restaurant.
+     */
+    public double getAvailabilityRatio() {
+        return availabilityRatio;
+    }
+    
+    /**
+     * Probability of booking after checking availability.
+     */
+    public double getBookRatio() {
+        return bookRatio;
+    }
+    
+    /**
+     * Probability of cancelling a booking instead of confirming it.
+     */
+    public double getCancelRatio() {
+        return cancelRatio;
+    }
+    
+    public int partySize(RandomGenerator random) {
+        return PARTY_SIZES[random.nextInt(PARTY_SIZES.length)];
+    }
+    
+    /**
+     * A dinner slot on a quarter hour, in the future.
+     */
+    public LocalDateTime slot(RandomGenerator random) {
+        LocalDate date;
+        if (fridayEvenings) {
+            date = LocalDate.now().plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.FRIDAY));
+        } else {
+            date = LocalDate.now().plusDays(1 + random.nextInt(14));
+        }
+        int quarter = fridayEvenings ? random.nextInt(15) : random.nextInt(21);
+        int startHour = fridayEvenings ? 18 : 17;
+        return date.atTime(startHour, 0).plusMinutes(15L * quarter);
+    }
+}
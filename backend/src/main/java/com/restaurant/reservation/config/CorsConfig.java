@@ -51,7 +51,11 @@ public class CorsConfig {
             "Access-Control-Request-Headers",
             "X-Requested-With",
             "Cache-Control",
-            "Pragma"
+            "Pragma",
+            "Idempotency-Key",
+            "X-Request-Id",
+            "If-None-Match",
+            "If-Modified-Since"
         ));
         
         // Set exposed headers
@@ -0,0 +1,22 @@
+package com.restaurant.reservation.config;
+
+import com.restaurant.reservation.RestaurantReservationApplication;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Keeps the application's own beans eager when {@code spring.main.lazy-initialization}
+ * is on. Controllers, services, repositories, filters and scheduled jobs are on the
+ * booking path or must run without being asked for, so only framework infrastructure
+ * that nothing needs at startup is deferred to first use.
+ */
+@Configuration
+public class LazyInitializationConfig {
+    
+    @Bean
+    public static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        String basePackage = RestaurantReservationApplication.class.getPackageName() + ".";
+        return (beanName, definition, beanType) -> beanType != null && beanType.getName().startsWith(basePackage);
+    }
+}
@@ -0,0 +1,64 @@
+package com.restaurant.reservation.config;
+
+import com.restaurant.reservation.service.ReservationMetrics;
+import com.restaurant.reservation.service.RestaurantJsonCache;
+import com.restaurant.reservation.service.idempotency.IdempotencyService;
+import com.restaurant.reservation.service.occupancy.OccupancyIndex;
+import com.restaurant.reservation.service.seating.SeatingAllocator;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application metrics on top of what actuator binds by default (HTTP requests,
+ * repository invocations, Hikari pool, JVM). Percentile histograms are switched on
+ * per meter in application.yml.
+ */
+@Configuration
+public class MetricsConfig {
+    
+    /**
+     * Times every public method of classes annotated with {@code @Timed}.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+    
+    /**
+     * Guards against an unbounded restaurant tag slipping into the reservation meters.
+     */
+    @Bean
+    public MeterFilter reservationTierCardinalityLimit(@Value("${app.metrics.max-tier-tags:10}") int maxTiers) {
+        return MeterFilter.maximumAllowableTags("reservation", ReservationMetrics.TIER_TAG, maxTiers, MeterFilter.deny());
+    }
+    
+    /**
+     * Sizes of the in-memory booking state, read only when the registry is scraped.
+     */
+    @Bean
+    public MeterBinder bookingStateGauges(OccupancyIndex occupancyIndex,
+                                          SeatingAllocator seatingAllocator,
+                                          IdempotencyService idempotencyService,
+                                          RestaurantJsonCache restaurantJsonCache) {
+        return registry -> {
+            Gauge.builder("reservation.occupancy.loaded.days", occupancyIndex, OccupancyIndex::loadedDays)
+                    .description("Restaurant days held in the occupancy index")
+                    .register(registry);
+            Gauge.builder("reservation.seating.loaded.restaurants", seatingAllocator, SeatingAllocator::loadedRestaurants)
+                    .description("Restaurants with seating state held in memory")
+                    .register(registry);
+            Gauge.builder("reservation.idempotency.cached.keys", idempotencyService, IdempotencyService::size)
+                    .description("Completed idempotency keys held in memory")
+                    .register(registry);
+            Gauge.builder("restaurant.json.cached", restaurantJsonCache, RestaurantJsonCache::size)
+                    .description("Restaurants with serialized JSON held in memory")
+                    .register(registry);
+        };
+    }
+}
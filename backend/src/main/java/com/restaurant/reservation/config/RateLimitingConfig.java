@@ -64,7 +64,7 @@ public class RateLimitingConfig implements WebMvcConfigurer {
         }
     }
     
-    private class RateLimitInterceptor implements HandlerInterceptor {
+    class RateLimitInterceptor implements HandlerInterceptor {
         
         @Override
         public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
@@ -0,0 +1,105 @@
+package com.restaurant.reservation.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one summary line per request (method, route, status, duration) and tags every
+ * log line of the request with a request id.
+ *
+ * <p>Summary lines are sampled at {@code app.logging.access.sample-rate}; server errors and
+ * requests slower than {@code app.logging.access.slow-threshold-ms} are always logged.
+ * The request id is taken from {@code X-Request-Id} when the client sends a usable one
+ * and is echoed back in the response.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestLoggingFilter extends OncePerRequestFilter {
+    
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+    
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+    
+    @Value("${app.logging.access.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.logging.access.sample-rate:1.0}")
+    private double sampleRate;
+    
+    @Value("${app.logging.access.slow-threshold-ms:1000}")
+    private long slowThresholdMs;
+    
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String requestId = requestId(request.getHeader(REQUEST_ID_HEADER));
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (enabled && log.isInfoEnabled() && shouldLog(status, elapsedMs)) {
+                log.info("{} {} {} {}ms", request.getMethod(), route(request), status, elapsedMs);
+            }
+            MDC.remove(REQUEST_ID_MDC_KEY);
+        }
+    }
+    
+    private boolean shouldLog(int status, long elapsedMs) {
+        return status >= 500
+                || elapsedMs >= slowThresholdMs
+                || sampleRate >= 1.0
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+    
+    /**
+     * The matched handler pattern, e.g. /api/reservations/{id}, so lines group by endpoint
+     * and ids do not leak into aggregations; falls back to the raw URI.
+     */
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+    
+    /**
+     * Accepts short ids made of letters, digits, '-', '_' and '.', so a client cannot
+     * inject line breaks or markup into the logs; otherwise generates one.
+     */
+    private static String requestId(String header) {
+        if (header == null || header.isEmpty() || header.length() > MAX_REQUEST_ID_LENGTH) {
+            return Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!allowed) {
+                return Long.toHexString(ThreadLocalRandom.current().nextLong());
+            }
+        }
+        return header;
+    }
+}
@@ -0,0 +1,87 @@
+package com.restaurant.reservation.config.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for streaming replication between embedded H2 databases.
+ *
+ * <p>Every interval the primary is scripted and reloaded into each replica, which is taken
+ * out of rotation while it is reloaded. The copy time is written to {@code replica_heartbeat}
+ * so the lag query can report how old the replica's data is. Only meant for local testing
+ * of replica routing (see {@code application-replicas.yml}).
+ */
+@Slf4j
+public class H2SnapshotReplicator {
+    
+    private final DataSource primary;
+    private final ReplicaLagMonitor lagMonitor;
+    
+    public H2SnapshotReplicator(DataSource primary, ReplicaLagMonitor lagMonitor) {
+        this.primary = primary;
+        this.lagMonitor = lagMonitor;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.h2-snapshot.interval:PT2S}")
+    public void copy() {
+        Timestamp copiedAt = new Timestamp(System.currentTimeMillis());
+        List<String> script;
+        try {
+            script = script();
+        } catch (SQLException ex) {
+            log.warn("Could not script the primary database: {}", ex.getMessage());
+            return;
+        }
+        
+        for (Map.Entry<String, DataSource> replica : lagMonitor.replicas().entrySet()) {
+            lagMonitor.suspend(replica.getKey());
+            try {
+                load(replica.getValue(), script, copiedAt);
+            } catch (SQLException ex) {
+                log.warn("Could not reload replica {}: {}", replica.getKey(), ex.getMessage());
+            } finally {
+                lagMonitor.resume(replica.getKey());
+            }
+        }
+    }
+    
+    private List<String> script() throws SQLException {
+        List<String> statements = new ArrayList<>();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                statements.add(rs.getString(1));
+            }
+        }
+        return statements;
+    }
+    
+    private static void load(DataSource replica, List<String> script, Timestamp copiedAt) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : script) {
+                if (!sql.startsWith("CREATE USER")) {
+                    statement.execute(sql);
+                }
+            }
+            statement.execute("CREATE TABLE replica_heartbeat (copied_at TIMESTAMP NOT NULL)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO replica_heartbeat VALUES (?)")) {
+                insert.setTimestamp(1, copiedAt);
+                insert.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.restaurant.reservation.config.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Read-your-writes stickiness for replica routing.
+ *
+ * <p>When a write commits during a request, the rest of that request reads from the primary
+ * and the response sets a cookie holding the time until which the client should keep doing
+ * so. Requests carrying an unexpired cookie are pinned to the primary, so a customer who just
+ * booked sees the booking even while replicas catch up. The cookie only ever forces primary
+ * reads, and values further out than the stickiness window are ignored.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter implements Ordered {
+    
+    private static final ThreadLocal<RequestState> CURRENT = new ThreadLocal<>();
+    
+    private final Duration stickiness;
+    private final String cookieName;
+    
+    public ReadYourWritesFilter(Duration stickiness, String cookieName) {
+        this.stickiness = stickiness;
+        this.cookieName = cookieName;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestState state = new RequestState(response);
+        long remaining = pinnedUntil(request) - System.currentTimeMillis();
+        state.pinned = remaining > 0 && remaining <= stickiness.toMillis();
+        CURRENT.set(state);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CURRENT.remove();
+        }
+    }
+    
+    boolean isPinnedToPrimary() {
+        RequestState state = CURRENT.get();
+        return state != null && state.pinned;
+    }
+    
+    /**
+     * Pins the current request, if any, to the primary and tells the client to stay there.
+     */
+    void writeCommitted() {
+        RequestState state = CURRENT.get();
+        if (state == null) {
+            return;
+        }
+        state.pinned = true;
+        if (!state.cookieSet && !state.response.isCommitted()) {
+            long until = System.currentTimeMillis() + stickiness.toMillis();
+            ResponseCookie cookie = ResponseCookie.from(cookieName, Long.toString(until))
+                    .path("/")
+                    .maxAge(stickiness)
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build();
+            state.response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+            state.cookieSet = true;
+        }
+    }
+    
+    private long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+    
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+    
+    private static final class RequestState {
+        private final HttpServletResponse response;
+        private boolean pinned;
+        private boolean cookieSet;
+        
+        private RequestState(HttpServletResponse response) {
+            this.response = response;
+        }
+    }
+}
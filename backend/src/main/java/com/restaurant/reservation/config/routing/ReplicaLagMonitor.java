@@ -0,0 +1,149 @@
+package com.restaurant.reservation.config.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how far each replica is behind the primary and which replicas may serve reads.
+ *
+ * <p>Every check runs the lag query on each replica; it must return the replication delay
+ * in milliseconds. Replicas that are unreachable or further behind than {@code max-lag}
+ * are skipped until a later check finds them caught up. With no healthy replica, reads
+ * fall back to the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder, AutoCloseable {
+    
+    /**
+     * Replay delay of a PostgreSQL standby; zero when it has replayed everything it received.
+     */
+    public static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+    
+    private static final int QUERY_TIMEOUT_SECONDS = 2;
+    
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final Set<String> suspended = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthy = List.of();
+    
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, String lagQuery, Duration maxLag) {
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLag.toMillis();
+    }
+    
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+    
+    /**
+     * A healthy replica in round-robin order, or null if none is usable.
+     */
+    public String nextHealthyReplica() {
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+    
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.lag-check-interval:PT5S}")
+    public synchronized void check() {
+        List<String> usable = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String name = replica.getKey();
+            long lag = measureLag(name, replica.getValue());
+            lagMillis.put(name, lag);
+            
+            boolean ok = lag >= 0 && lag <= maxLagMillis && !suspended.contains(name);
+            if (ok) {
+                usable.add(name);
+            }
+            if (ok != healthy.contains(name)) {
+                if (ok) {
+                    log.info("Replica {} is serving reads again, lag {}ms", name, lag);
+                } else {
+                    log.warn("Replica {} removed from reads, lag {}ms (max {}ms)", name, lag, maxLagMillis);
+                }
+            }
+        }
+        healthy = List.copyOf(usable);
+    }
+    
+    /**
+     * Takes a replica out of rotation until {@link #resume} is called, e.g. while it is reloaded.
+     */
+    public synchronized void suspend(String name) {
+        suspended.add(name);
+        List<String> remaining = new ArrayList<>(healthy);
+        remaining.remove(name);
+        healthy = List.copyOf(remaining);
+    }
+    
+    public void resume(String name) {
+        suspended.remove(name);
+        check();
+    }
+    
+    /**
+     * Replication delay in milliseconds, or -1 if the replica could not be queried.
+     */
+    private long measureLag(String name, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                return rs.next() ? Math.max(0, rs.getLong(1)) : -1;
+            }
+        } catch (Exception ex) {
+            log.debug("Lag check failed for replica {}: {}", name, ex.getMessage());
+            return -1;
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String name : replicas.keySet()) {
+            Gauge.builder("db.replica.lag", lagMillis, lags -> lags.getOrDefault(name, -1L))
+                    .description("Replication delay at the last check in milliseconds, -1 when unreachable")
+                    .baseUnit("milliseconds")
+                    .tag("replica", name)
+                    .register(registry);
+            Gauge.builder("db.replica.healthy", this, monitor -> monitor.healthy.contains(name) ? 1 : 0)
+                    .description("Whether the replica currently serves reads")
+                    .tag("replica", name)
+                    .register(registry);
+        }
+    }
+    
+    @Override
+    public void close() {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
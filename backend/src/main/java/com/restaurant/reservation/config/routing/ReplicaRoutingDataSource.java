@@ -0,0 +1,54 @@
+package com.restaurant.reservation.config.routing;
+
+import com.restaurant.reservation.service.PrimaryReads;
+import com.restaurant.reservation.service.TransactionHooks;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary.
+ *
+ * <p>Must sit behind a {@code LazyConnectionDataSourceProxy}: the transaction's read-only
+ * flag is only known once the transaction has begun, so the physical connection has to be
+ * fetched at the first statement rather than at {@code getConnection()}. Requests pinned by
+ * {@link ReadYourWritesFilter} and reads made through {@link PrimaryReads} use the primary
+ * as well.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    
+    static final String PRIMARY = "primary";
+    
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesFilter readYourWrites;
+    
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor lagMonitor, ReadYourWritesFilter readYourWrites) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWrites = readYourWrites;
+        
+        Map<Object, Object> targets = new HashMap<>(lagMonitor.replicas());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                // Once this write commits, the request's later reads must see it
+                TransactionHooks.afterCommit(readYourWrites::writeCommitted);
+            }
+            return PRIMARY;
+        }
+        if (readYourWrites.isPinnedToPrimary() || PrimaryReads.isActive()) {
+            return PRIMARY;
+        }
+        String replica = lagMonitor.nextHealthyReplica();
+        return replica != null ? replica : PRIMARY;
+    }
+}
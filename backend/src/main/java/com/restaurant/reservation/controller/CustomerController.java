@@ -0,0 +1,59 @@
+package com.restaurant.reservation.controller;
+
+import com.restaurant.reservation.dto.CustomerProfileDTO;
+import com.restaurant.reservation.service.customer.CustomerProfileService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Customers with their reservation counts, read from the customer profiles.
+ */
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*") // Allow all origins for now
+public class CustomerController {
+    
+    private final CustomerProfileService customerProfileService;
+    
+    /**
+     * Sortable by email, name, reservations, visits, covers, cancellations, noShows and
+     * lastVisit; most visits first by default.
+     */
+    @GetMapping
+    public ResponseEntity<Page<CustomerProfileDTO>> getCustomers(
+            @PageableDefault(size = 20, sort = "visits", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        log.debug("Fetching customers: {}", pageable);
+        Page<CustomerProfileDTO> customers = customerProfileService.getProfiles(pageable);
+        EntityTags.Aggregate tag = EntityTags.aggregate();
+        customers.forEach(customer -> tag.add((long) customer.getEmail().hashCode(), customer.getVersion()));
+        if (request.checkNotModified(tag.add(customers).etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(customers);
+    }
+    
+    @GetMapping("/{email}")
+    public ResponseEntity<CustomerProfileDTO> getCustomer(@PathVariable String email, WebRequest request) {
+        log.debug("Fetching customer: {}", email);
+        CustomerProfileDTO customer = customerProfileService.getProfile(email);
+        if (request.checkNotModified(EntityTags.of(customer.getVersion()))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(customer);
+    }
+}
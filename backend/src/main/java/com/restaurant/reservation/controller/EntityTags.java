@@ -0,0 +1,82 @@
+package com.restaurant.reservation.controller;
+
+import com.restaurant.reservation.model.BaseEntity;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Strong ETags and Last-Modified timestamps derived from entity versions.
+ *
+ * <p>A single resource is tagged with the versions its representation depends on. A
+ * listing is tagged with a hash over the ids and versions of its items, in order, plus
+ * the page metadata, so any change to a listed entity or to the page changes the tag.
+ * Listings carry no Last-Modified: an entity dropping out of a listing does not move
+ * the newest modification time, so If-Modified-Since could not be answered correctly.
+ */
+final class EntityTags {
+    
+    private EntityTags() {
+    }
+    
+    static String of(long... versions) {
+        StringBuilder tag = new StringBuilder("\"");
+        for (int i = 0; i < versions.length; i++) {
+            if (i > 0) {
+                tag.append('.');
+            }
+            tag.append(versions[i]);
+        }
+        return tag.append('"').toString();
+    }
+    
+    static long lastModified(LocalDateTime... updatedAt) {
+        long latest = -1;
+        for (LocalDateTime time : updatedAt) {
+            if (time != null) {
+                latest = Math.max(latest, time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        return latest;
+    }
+    
+    static Aggregate aggregate() {
+        return new Aggregate();
+    }
+    
+    static final class Aggregate {
+        private long hash = 0x6a09e667f3bcc908L;
+        
+        Aggregate add(BaseEntity entity) {
+            return add(entity.getId(), entity.getVersion());
+        }
+        
+        Aggregate add(Long id, Long version) {
+            mix(id);
+            mix(version);
+            return this;
+        }
+        
+        Aggregate add(Page<?> page) {
+            mix(page.getTotalElements());
+            mix((long) page.getNumber());
+            mix((long) page.getSize());
+            mix((long) page.getSort().toString().hashCode());
+            return this;
+        }
+        
+        String etag() {
+            return "\"" + Long.toHexString(hash) + "\"";
+        }
+        
+        private void mix(Long value) {
+            long v = value != null ? value : Long.MIN_VALUE;
+            // Order-sensitive 64-bit mix (splitmix64 finalizer over a running state)
+            long z = (hash ^ v) + 0x9e3779b97f4a7c15L;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            hash = z ^ (z >>> 31);
+        }
+    }
+}
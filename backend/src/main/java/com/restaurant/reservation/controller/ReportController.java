@@ -0,0 +1,90 @@
+package com.restaurant.reservation.controller;
+
+import com.restaurant.reservation.dto.CustomerReportDTO;
+import com.restaurant.reservation.dto.ReservationSummaryDTO;
+import com.restaurant.reservation.dto.RestaurantReportDTO;
+import com.restaurant.reservation.service.report.ReservationReports;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+
+/**
+ * Reports computed from the latest reservation export. Responses are tagged with the export
+ * time, so they can be revalidated until the next export.
+ */
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.reports.enabled", havingValue = "true")
+@CrossOrigin(origins = "*") // Allow all origins for now
+public class ReportController {
+    
+    private final ReservationReports reservationReports;
+    
+    @GetMapping("/summary")
+    public ResponseEntity<ReservationSummaryDTO> getSummary(
+            @RequestParam(required = false) Long restaurantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        log.debug("Fetching reservation summary for restaurant {} from {} to {}", restaurantId, from, to);
+        if (notModified(request)) {
+            return null;
+        }
+        return ok(reservationReports.summary(restaurantId, from, to));
+    }
+    
+    @GetMapping("/customers")
+    public ResponseEntity<Page<CustomerReportDTO>> getCustomers(
+            @RequestParam(required = false) Long restaurantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @PageableDefault(size = 20, sort = "visits", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        log.debug("Fetching customer report for restaurant {} from {} to {}", restaurantId, from, to);
+        if (notModified(request)) {
+            return null;
+        }
+        return ok(reservationReports.customers(restaurantId, from, to, pageable));
+    }
+    
+    @GetMapping("/restaurants")
+    public ResponseEntity<Page<RestaurantReportDTO>> getRestaurants(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @PageableDefault(size = 20, sort = "visits", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest request) {
+        log.debug("Fetching restaurant report from {} to {}", from, to);
+        if (notModified(request)) {
+            return null;
+        }
+        return ok(reservationReports.restaurants(from, to, pageable));
+    }
+    
+    /**
+     * Checks the tag before the report is computed: a newer export can then only make the
+     * body newer than its tag, which the next revalidation corrects.
+     */
+    private boolean notModified(WebRequest request) {
+        long exportedAt = reservationReports.exportedAt();
+        return request.checkNotModified(EntityTags.of(exportedAt), exportedAt);
+    }
+    
+    private static <T> ResponseEntity<T> ok(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+}
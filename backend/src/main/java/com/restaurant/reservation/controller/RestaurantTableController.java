@@ -0,0 +1,59 @@
+package com.restaurant.reservation.controller;
+
+import com.restaurant.reservation.dto.RestaurantTableDTO;
+import com.restaurant.reservation.model.RestaurantTable;
+import com.restaurant.reservation.service.RestaurantTableService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/restaurants/{restaurantId}/tables")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002", "http://localhost:3003"})
+public class RestaurantTableController {
+    
+    private final RestaurantTableService tableService;
+    
+    @GetMapping
+    public ResponseEntity<List<RestaurantTableDTO>> getTables(@PathVariable Long restaurantId) {
+        log.debug("Fetching tables for restaurant: {}", restaurantId);
+        List<RestaurantTableDTO> dtos = tableService.getTables(restaurantId).stream()
+                .map(tableService::toDto)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(dtos);
+    }
+    
+    @PostMapping
+    public ResponseEntity<RestaurantTableDTO> createTable(
+            @PathVariable Long restaurantId,
+            @Valid @RequestBody RestaurantTableDTO dto) {
+        log.debug("Creating table {} for restaurant: {}", dto.getTableNumber(), restaurantId);
+        RestaurantTable table = tableService.createTable(restaurantId, dto);
+        return new ResponseEntity<>(tableService.toDto(table), HttpStatus.CREATED);
+    }
+    
+    @PutMapping("/{tableId}")
+    public ResponseEntity<RestaurantTableDTO> updateTable(
+            @PathVariable Long restaurantId,
+            @PathVariable Long tableId,
+            @Valid @RequestBody RestaurantTableDTO dto) {
+        log.debug("Updating table {} for restaurant: {}", tableId, restaurantId);
+        RestaurantTable table = tableService.updateTable(restaurantId, tableId, dto);
+        return ResponseEntity.ok(tableService.toDto(table));
+    }
+    
+    @DeleteMapping("/{tableId}")
+    public ResponseEntity<Void> deactivateTable(@PathVariable Long restaurantId, @PathVariable Long tableId) {
+        log.debug("Deactivating table {} for restaurant: {}", tableId, restaurantId);
+        tableService.deactivateTable(restaurantId, tableId);
+        return ResponseEntity.noContent().build();
+    }
+}
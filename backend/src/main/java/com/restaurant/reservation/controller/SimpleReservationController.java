@@ -1,21 +1,32 @@
 package com.restaurant.reservation.controller;
 
+import com.restaurant.reservation.dto.AvailabilityCalendarDTO;
 import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.model.RestaurantTable;
 import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
 import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.idempotency.IdempotencyService;
+import com.restaurant.reservation.service.idempotency.IdempotentResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -25,59 +36,137 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*") // Allow all origins for now
 public class SimpleReservationController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 200;
+    
     private final SimpleReservationService reservationService;
+    private final IdempotencyService idempotencyService;
+    
+    @Value("${app.calendar.ttl:PT30S}")
+    private Duration calendarTtl;
     
     @PostMapping
-    public ResponseEntity<SimpleReservationDTO> createReservation(@Valid @RequestBody SimpleReservationDTO dto) {
-        log.info("Creating reservation for customer: {}", dto.getCustomerName());
-        SimpleReservation reservation = reservationService.createReservation(dto);
-        return new ResponseEntity<>(convertToDTO(reservation), HttpStatus.CREATED);
+    public ResponseEntity<SimpleReservationDTO> createReservation(
+            @Valid @RequestBody SimpleReservationDTO dto,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        log.debug("Creating reservation for customer: {}", dto.getCustomerName());
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            SimpleReservation reservation = reservationService.createReservation(dto);
+            return new ResponseEntity<>(convertToDTO(reservation), HttpStatus.CREATED);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must be at most "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        
+        // Retries with the same key replay the first response instead of booking again
+        IdempotentResult<SimpleReservationDTO> result = idempotencyService.execute(
+                "POST /api/reservations:" + idempotencyKey, dto, SimpleReservationDTO.class,
+                () -> convertToDTO(reservationService.createReservation(dto)));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.isReplayed()))
+                .body(result.getValue());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<SimpleReservationDTO> getReservation(@PathVariable Long id) {
-        log.info("Fetching reservation with id: {}", id);
+    public ResponseEntity<SimpleReservationDTO> getReservation(@PathVariable Long id, WebRequest request) {
+        log.debug("Fetching reservation with id: {}", id);
+        // Revalidations are answered from the versions alone, before the reservation is loaded
+        Optional<SimpleReservationRepository.ReservationVersionStamp> stamp = reservationService.findVersionStamp(id);
+        if (stamp.isPresent() && request.checkNotModified(
+                EntityTags.of(stamp.get().getVersion(), stamp.get().getRestaurantVersion()),
+                EntityTags.lastModified(stamp.get().getUpdatedAt(), stamp.get().getRestaurantUpdatedAt()))) {
+            return null;
+        }
         SimpleReservation reservation = reservationService.getReservationById(id);
-        return ResponseEntity.ok(convertToDTO(reservation));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(convertToDTO(reservation));
     }
     
     @GetMapping("/restaurant/{restaurantId}")
     public ResponseEntity<Page<SimpleReservationDTO>> getReservationsByRestaurant(
             @PathVariable Long restaurantId,
-            @PageableDefault(size = 20) Pageable pageable) {
-        log.info("Fetching reservations for restaurant: {}", restaurantId);
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest request) {
+        log.debug("Fetching reservations for restaurant: {}", restaurantId);
         Page<SimpleReservation> reservations = reservationService.getReservationsByRestaurant(restaurantId, pageable);
+        EntityTags.Aggregate tag = EntityTags.aggregate().add(reservations);
+        reservations.forEach(reservation -> tag.add(reservation).add(reservation.getRestaurant()));
+        if (request.checkNotModified(tag.etag())) {
+            return null;
+        }
         Page<SimpleReservationDTO> dtos = reservations.map(this::convertToDTO);
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(dtos);
     }
     
     @GetMapping("/customer/{email}")
-    public ResponseEntity<List<SimpleReservationDTO>> getReservationsByCustomer(@PathVariable String email) {
-        log.info("Fetching reservations for customer: {}", email);
+    public ResponseEntity<List<SimpleReservationDTO>> getReservationsByCustomer(
+            @PathVariable String email, WebRequest request) {
+        log.debug("Fetching reservations for customer: {}", email);
         List<SimpleReservation> reservations = reservationService.getReservationsByCustomerEmail(email);
-        List<SimpleReservationDTO> dtos = reservations.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return list(reservations, request);
     }
     
     @GetMapping("/date-range")
     public ResponseEntity<List<SimpleReservationDTO>> getReservationsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        log.info("Fetching reservations between {} and {}", start, end);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            WebRequest request) {
+        log.debug("Fetching reservations between {} and {}", start, end);
         List<SimpleReservation> reservations = reservationService.getReservationsByDateRange(start, end);
-        List<SimpleReservationDTO> dtos = reservations.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return list(reservations, request);
+    }
+    
+    /**
+     * Bookable start times of the restaurant's service day that can still take the party.
+     * Slots past midnight belong to the day the service started on.
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<List<LocalDateTime>> getAvailableSlots(
+            @RequestParam Long restaurantId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam int partySize,
+            @RequestParam(required = false) Integer durationMinutes) {
+        log.debug("Fetching available slots for restaurant {} on {}", restaurantId, date);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(reservationService.getAvailableSlots(restaurantId, date, partySize, durationMinutes));
+    }
+    
+    /**
+     * Remaining covers per slot for {@code days} service days from {@code from}, today by
+     * default. Cached briefly; revalidations within the same bookings are answered with 304.
+     */
+    @GetMapping("/availability/calendar")
+    public ResponseEntity<AvailabilityCalendarDTO> getAvailabilityCalendar(
+            @RequestParam Long restaurantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Integer durationMinutes,
+            WebRequest request) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        log.debug("Fetching availability calendar for restaurant {} from {} for {} days", restaurantId, start, days);
+        AvailabilityCalendarDTO calendar = reservationService.getAvailabilityCalendar(
+                restaurantId, start, days, partySize, durationMinutes);
+        if (request.checkNotModified(EntityTags.of(calendar.getRestaurantVersion(), calendar.getGeneration(),
+                start.toEpochDay(), days, partySize, calendar.getDurationMinutes()))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(calendarTtl))
+                .body(calendar);
     }
     
     @PutMapping("/{id}")
     public ResponseEntity<SimpleReservationDTO> updateReservation(
             @PathVariable Long id,
             @Valid @RequestBody SimpleReservationDTO dto) {
-        log.info("Updating reservation with id: {}", id);
+        log.debug("Updating reservation with id: {}", id);
         SimpleReservation reservation = reservationService.updateReservation(id, dto);
         return ResponseEntity.ok(convertToDTO(reservation));
     }
@@ -86,14 +175,14 @@ public class SimpleReservationController {
     public ResponseEntity<SimpleReservationDTO> updateReservationStatus(
             @PathVariable Long id,
             @RequestParam SimpleReservation.ReservationStatus status) {
-        log.info("Updating reservation {} status to: {}", id, status);
+        log.debug("Updating reservation {} status to: {}", id, status);
         SimpleReservation reservation = reservationService.updateReservationStatus(id, status);
         return ResponseEntity.ok(convertToDTO(reservation));
     }
     
     @PutMapping("/{id}/confirm")
     public ResponseEntity<SimpleReservationDTO> confirmReservation(@PathVariable Long id) {
-        log.info("Confirming reservation with id: {}", id);
+        log.debug("Confirming reservation with id: {}", id);
         reservationService.confirmReservation(id);
         SimpleReservation reservation = reservationService.getReservationById(id);
         return ResponseEntity.ok(convertToDTO(reservation));
@@ -101,13 +190,30 @@ public class SimpleReservationController {
     
     @PutMapping("/{id}/cancel")
     public ResponseEntity<SimpleReservationDTO> cancelReservation(@PathVariable Long id) {
-        log.info("Cancelling reservation with id: {}", id);
+        log.debug("Cancelling reservation with id: {}", id);
         reservationService.cancelReservation(id);
         SimpleReservation reservation = reservationService.getReservationById(id);
         return ResponseEntity.ok(convertToDTO(reservation));
     }
     
-    private SimpleReservationDTO convertToDTO(SimpleReservation reservation) {
+    /**
+     * Answers with 304 before any reservation is converted when the listing is unchanged.
+     */
+    private ResponseEntity<List<SimpleReservationDTO>> list(List<SimpleReservation> reservations, WebRequest request) {
+        EntityTags.Aggregate tag = EntityTags.aggregate();
+        reservations.forEach(reservation -> tag.add(reservation).add(reservation.getRestaurant()));
+        if (request.checkNotModified(tag.etag())) {
+            return null;
+        }
+        List<SimpleReservationDTO> dtos = reservations.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(dtos);
+    }
+    
+    SimpleReservationDTO convertToDTO(SimpleReservation reservation) {
         return SimpleReservationDTO.builder()
                 .id(reservation.getId())
                 .customerName(reservation.getCustomerName())
@@ -115,10 +221,14 @@ public class SimpleReservationController {
                 .customerPhone(reservation.getCustomerPhone())
                 .reservationDateTime(reservation.getReservationDateTime())
                 .partySize(reservation.getPartySize())
+                .durationMinutes(reservation.getEffectiveDurationMinutes())
                 .specialRequests(reservation.getSpecialRequests())
                 .status(reservation.getStatus())
                 .restaurantId(reservation.getRestaurant().getId())
                 .restaurantName(reservation.getRestaurant().getName())
+                .tableIds(reservation.getTables().stream()
+                        .map(RestaurantTable::getId)
+                        .collect(Collectors.toList()))
                 .build();
     }
 }
\ No newline at end of file
@@ -1,20 +1,42 @@
 package com.restaurant.reservation.controller;
 
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.restaurant.reservation.dto.FacetedRestaurantsDTO;
 import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.dto.SparseRestaurantDTO;
 import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.VersionStamp;
+import com.restaurant.reservation.service.RestaurantFieldSelection;
+import com.restaurant.reservation.service.RestaurantJsonCache;
 import com.restaurant.reservation.service.SimpleRestaurantService;
+import com.restaurant.reservation.service.facet.FacetQuery;
+import com.restaurant.reservation.service.facet.FacetResult;
+import com.restaurant.reservation.service.facet.RestaurantFacet;
+import com.restaurant.reservation.service.facet.RestaurantFacetIndex;
+import com.restaurant.reservation.service.ranking.RankedList;
+import com.restaurant.reservation.service.ranking.Ranking;
+import com.restaurant.reservation.service.ranking.RestaurantRankings;
 import com.restaurant.reservation.validator.InputValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,109 +48,240 @@ public class SimpleRestaurantController {
     
     private final SimpleRestaurantService restaurantService;
     private final InputValidator inputValidator;
+    private final RestaurantJsonCache restaurantJsonCache;
+    private final RestaurantRankings restaurantRankings;
+    private final RestaurantFacetIndex restaurantFacetIndex;
     
     @PostMapping
     public ResponseEntity<SimpleRestaurantDTO> createRestaurant(@Valid @RequestBody SimpleRestaurantDTO dto) {
-        log.info("Creating restaurant: {}", dto.getName());
+        log.debug("Creating restaurant: {}", dto.getName());
         SimpleRestaurant restaurant = restaurantService.createRestaurant(dto);
-        return new ResponseEntity<>(convertToDTO(restaurant), HttpStatus.CREATED);
+        return new ResponseEntity<>(restaurantService.toDto(restaurant), HttpStatus.CREATED);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<SimpleRestaurantDTO> getRestaurant(@PathVariable Long id) {
-        log.info("Fetching restaurant with id: {}", id);
+    public ResponseEntity<RawValue> getRestaurant(@PathVariable Long id, WebRequest request) {
+        log.debug("Fetching restaurant with id: {}", id);
+        // Revalidations are answered from the version alone, before the restaurant is loaded
+        Optional<VersionStamp> stamp = restaurantService.findVersionStamp(id);
+        if (stamp.isPresent() && request.checkNotModified(
+                EntityTags.of(stamp.get().getVersion()), EntityTags.lastModified(stamp.get().getUpdatedAt()))) {
+            return null;
+        }
         SimpleRestaurant restaurant = restaurantService.getRestaurantById(id);
-        return ResponseEntity.ok(convertToDTO(restaurant));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(restaurantJsonCache.json(restaurant));
     }
     
+    /**
+     * Lists active restaurants. With {@code fields}, e.g. {@code fields=name,cuisine,rating},
+     * only those columns are read and returned, plus the id.
+     */
     @GetMapping
-    public ResponseEntity<Page<SimpleRestaurantDTO>> getAllRestaurants(
-            @PageableDefault(size = 20) Pageable pageable) {
-        log.info("Fetching all restaurants with pagination");
+    public ResponseEntity<? extends Page<?>> getAllRestaurants(
+            @RequestParam(required = false) String fields,
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest request) {
+        log.debug("Fetching all restaurants with pagination");
+        if (fields != null) {
+            return sparsePage(restaurantService.getActiveRestaurantFields(
+                    null, RestaurantFieldSelection.parse(fields), pageable), request);
+        }
         Page<SimpleRestaurant> restaurants = restaurantService.getAllActiveRestaurants(pageable);
-        Page<SimpleRestaurantDTO> dtos = restaurants.map(this::convertToDTO);
-        return ResponseEntity.ok(dtos);
+        return page(restaurants, request);
     }
     
     @GetMapping("/search")
-    public ResponseEntity<Page<SimpleRestaurantDTO>> searchRestaurants(
+    public ResponseEntity<? extends Page<?>> searchRestaurants(
             @RequestParam String query,
-            @PageableDefault(size = 20) Pageable pageable) {
+            @RequestParam(required = false) String fields,
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest request) {
         // Validate and sanitize input to prevent SQL injection
         String sanitizedQuery = inputValidator.validateSearchQuery(query);
-        log.info("Searching restaurants with sanitized query: {}", sanitizedQuery);
+        log.debug("Searching restaurants with sanitized query: {}", sanitizedQuery);
+        if (fields != null) {
+            return sparsePage(restaurantService.getActiveRestaurantFields(
+                    sanitizedQuery, RestaurantFieldSelection.parse(fields), pageable), request);
+        }
         Page<SimpleRestaurant> restaurants = restaurantService.searchRestaurants(sanitizedQuery, pageable);
-        Page<SimpleRestaurantDTO> dtos = restaurants.map(this::convertToDTO);
-        return ResponseEntity.ok(dtos);
+        return page(restaurants, request);
+    }
+    
+    /**
+     * Most booked restaurants of recent weeks, weighted by rating, optionally within a city
+     * and/or cuisine.
+     */
+    @GetMapping("/popular")
+    public ResponseEntity<List<RawValue>> getPopularRestaurants(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String cuisine,
+            @RequestParam(defaultValue = "10") int limit,
+            WebRequest request) {
+        return ranked(Ranking.POPULAR, city, cuisine, limit, request);
+    }
+    
+    /**
+     * Most booked restaurants of the last days, optionally within a city and/or cuisine.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<RawValue>> getTrendingRestaurants(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String cuisine,
+            @RequestParam(defaultValue = "10") int limit,
+            WebRequest request) {
+        return ranked(Ranking.TRENDING, city, cuisine, limit, request);
+    }
+    
+    /**
+     * Active restaurants filtered by any combination of facets, best rated first, with
+     * match counts per facet value. Several values of one facet match any of them, e.g.
+     * {@code cuisine=Italian&cuisine=French&priceRange=$$&openAt=21:30}.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedRestaurantsDTO> searchByFacets(
+            @RequestParam(required = false) List<String> city,
+            @RequestParam(required = false) List<String> cuisine,
+            @RequestParam(required = false) List<String> priceRange,
+            @RequestParam(required = false) List<Integer> rating,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime openAt,
+            @PageableDefault(size = 20) Pageable pageable) {
+        Map<RestaurantFacet, List<String>> selected = new EnumMap<>(RestaurantFacet.class);
+        if (city != null) {
+            selected.put(RestaurantFacet.CITY, city.stream().map(inputValidator::sanitizeInput).toList());
+        }
+        if (cuisine != null) {
+            selected.put(RestaurantFacet.CUISINE, cuisine.stream().map(inputValidator::sanitizeInput).toList());
+        }
+        if (priceRange != null) {
+            selected.put(RestaurantFacet.PRICE_RANGE, priceRange);
+        }
+        if (rating != null) {
+            selected.put(RestaurantFacet.RATING, rating.stream().map(String::valueOf).toList());
+        }
+        
+        FacetResult result = restaurantFacetIndex.search(new FacetQuery(selected, openAt), pageable);
+        List<RawValue> json = restaurantService.getRestaurantsByIds(result.ids()).stream()
+                .map(restaurantJsonCache::json)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(new FacetedRestaurantsDTO(new PageImpl<>(json, pageable, result.total()), result.facets()));
     }
     
     @GetMapping("/city/{city}")
-    public ResponseEntity<List<SimpleRestaurantDTO>> getRestaurantsByCity(@PathVariable String city) {
+    public ResponseEntity<List<RawValue>> getRestaurantsByCity(@PathVariable String city, WebRequest request) {
         // Sanitize city input
         String sanitizedCity = inputValidator.sanitizeInput(city);
-        log.info("Fetching restaurants by city: {}", sanitizedCity);
+        log.debug("Fetching restaurants by city: {}", sanitizedCity);
         List<SimpleRestaurant> restaurants = restaurantService.getRestaurantsByCity(sanitizedCity);
-        List<SimpleRestaurantDTO> dtos = restaurants.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return list(restaurants, request);
     }
     
     @GetMapping("/cuisine/{cuisine}")
-    public ResponseEntity<List<SimpleRestaurantDTO>> getRestaurantsByCuisine(@PathVariable String cuisine) {
+    public ResponseEntity<List<RawValue>> getRestaurantsByCuisine(@PathVariable String cuisine, WebRequest request) {
         // Sanitize cuisine input
         String sanitizedCuisine = inputValidator.sanitizeInput(cuisine);
-        log.info("Fetching restaurants by cuisine: {}", sanitizedCuisine);
+        log.debug("Fetching restaurants by cuisine: {}", sanitizedCuisine);
         List<SimpleRestaurant> restaurants = restaurantService.getRestaurantsByCuisine(sanitizedCuisine);
-        List<SimpleRestaurantDTO> dtos = restaurants.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return list(restaurants, request);
     }
     
     @PutMapping("/{id}")
     public ResponseEntity<SimpleRestaurantDTO> updateRestaurant(
             @PathVariable Long id,
             @Valid @RequestBody SimpleRestaurantDTO dto) {
-        log.info("Updating restaurant with id: {}", id);
+        log.debug("Updating restaurant with id: {}", id);
         SimpleRestaurant restaurant = restaurantService.updateRestaurant(id, dto);
-        return ResponseEntity.ok(convertToDTO(restaurant));
+        return ResponseEntity.ok(restaurantService.toDto(restaurant));
+    }
+    
+    @GetMapping("/{id}/blackout-dates")
+    public ResponseEntity<List<LocalDate>> getBlackoutDates(@PathVariable Long id) {
+        return ResponseEntity.ok(restaurantService.getBlackoutDates(id));
+    }
+    
+    /**
+     * Replaces the days on which the restaurant takes no reservations.
+     */
+    @PutMapping("/{id}/blackout-dates")
+    public ResponseEntity<List<LocalDate>> updateBlackoutDates(@PathVariable Long id,
+                                                               @RequestBody List<LocalDate> dates) {
+        log.debug("Updating blackout dates of restaurant {}", id);
+        return ResponseEntity.ok(restaurantService.updateBlackoutDates(id, dates));
     }
     
     @PutMapping("/{id}/deactivate")
     public ResponseEntity<Void> deactivateRestaurant(@PathVariable Long id) {
-        log.info("Deactivating restaurant with id: {}", id);
+        log.debug("Deactivating restaurant with id: {}", id);
         restaurantService.deactivateRestaurant(id);
         return ResponseEntity.noContent().build();
     }
     
     @PutMapping("/{id}/activate")
     public ResponseEntity<Void> activateRestaurant(@PathVariable Long id) {
-        log.info("Activating restaurant with id: {}", id);
+        log.debug("Activating restaurant with id: {}", id);
         restaurantService.activateRestaurant(id);
         return ResponseEntity.noContent().build();
     }
     
-    private SimpleRestaurantDTO convertToDTO(SimpleRestaurant restaurant) {
-        return SimpleRestaurantDTO.builder()
-                .id(restaurant.getId())
-                .name(restaurant.getName())
-                .address(restaurant.getAddress())
-                .city(restaurant.getCity())
-                .state(restaurant.getState())
-                .zipCode(restaurant.getZipCode())
-                .phoneNumber(restaurant.getPhoneNumber())
-                .email(restaurant.getEmail())
-                .description(restaurant.getDescription())
-                .cuisine(restaurant.getCuisine())
-                .openingTime(restaurant.getOpeningTime())
-                .closingTime(restaurant.getClosingTime())
-                .capacity(restaurant.getCapacity())
-                .active(restaurant.getActive())
-                .imageUrl(restaurant.getImageUrl())
-                .gallery(restaurant.getGallery())
-                .priceRange(restaurant.getPriceRange())
-                .rating(restaurant.getRating())
-                .build();
+    /**
+     * Answers with 304 before any restaurant is serialized when the listing is unchanged.
+     */
+    private ResponseEntity<Page<RawValue>> page(Page<SimpleRestaurant> restaurants, WebRequest request) {
+        EntityTags.Aggregate tag = EntityTags.aggregate().add(restaurants);
+        restaurants.forEach(tag::add);
+        if (request.checkNotModified(tag.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(restaurants.map(restaurantJsonCache::json));
+    }
+    
+    private ResponseEntity<Page<SparseRestaurantDTO>> sparsePage(Page<SparseRestaurantDTO> restaurants,
+                                                                 WebRequest request) {
+        EntityTags.Aggregate tag = EntityTags.aggregate().add(restaurants);
+        restaurants.forEach(restaurant -> tag.add(restaurant.getId(), restaurant.getVersion()));
+        if (request.checkNotModified(tag.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(restaurants);
+    }
+    
+    /**
+     * Served from the precomputed rankings; the tag covers the listed restaurants and the limit.
+     */
+    private ResponseEntity<List<RawValue>> ranked(Ranking ranking, String city, String cuisine, int limit,
+                                                  WebRequest request) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        RankedList ranked = restaurantRankings.top(ranking,
+                city != null ? inputValidator.sanitizeInput(city) : null,
+                cuisine != null ? inputValidator.sanitizeInput(cuisine) : null);
+        if (request.checkNotModified(EntityTags.of(ranked.tag(), limit))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(ranked.top(limit));
+    }
+    
+    private ResponseEntity<List<RawValue>> list(List<SimpleRestaurant> restaurants, WebRequest request) {
+        EntityTags.Aggregate tag = EntityTags.aggregate();
+        restaurants.forEach(tag::add);
+        if (request.checkNotModified(tag.etag())) {
+            return null;
+        }
+        List<RawValue> json = restaurants.stream()
+                .map(restaurantJsonCache::json)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(json);
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.restaurant.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Remaining covers per slot and day of a restaurant over a range of service days. A day
+ * with no available slots is full, or closed if it has no slots at all. The restaurant
+ * version and booking generation it was computed from are kept for ETags but not
+ * serialized.
+ */
+@Getter
+@AllArgsConstructor
+public class AvailabilityCalendarDTO {
+    
+    private final Long restaurantId;
+    private final int partySize;
+    private final int durationMinutes;
+    private final List<Day> days;
+    
+    @JsonIgnore
+    private final long restaurantVersion;
+    
+    @JsonIgnore
+    private final long generation;
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Day {
+        private final LocalDate date;
+        private final boolean open;
+        
+        /**
+         * Slots that can still take the party.
+         */
+        private final int availableSlots;
+        
+        private final List<Slot> slots;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Slot {
+        private final LocalDateTime start;
+        
+        /**
+         * Covers still free for the whole stay; 0 for slots that have passed.
+         */
+        private final int remaining;
+    }
+}
@@ -0,0 +1,36 @@
+package com.restaurant.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A customer's reservation counts. The version changes whenever the counts do and is kept
+ * for ETags but not serialized.
+ */
+@Getter
+@AllArgsConstructor
+public class CustomerProfileDTO {
+    
+    private final String email;
+    private final String name;
+    private final String phone;
+    private final int reservations;
+    private final int visits;
+    private final long covers;
+    private final int cancellations;
+    private final int noShows;
+    private final LocalDateTime lastVisit;
+    
+    @JsonIgnore
+    private final long version;
+    
+    /**
+     * Share of no-shows among completed reservations and no-shows.
+     */
+    public double getNoShowRate() {
+        return visits + noShows > 0 ? (double) noShows / (visits + noShows) : 0;
+    }
+}
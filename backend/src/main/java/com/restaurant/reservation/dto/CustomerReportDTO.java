@@ -0,0 +1,25 @@
+package com.restaurant.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reservation counts of one customer, identified by normalized email, in a reservation
+ * export. The name is the one given on the customer's latest reservation.
+ */
+@Getter
+@AllArgsConstructor
+public class CustomerReportDTO {
+    
+    private final String email;
+    private final String name;
+    private final int reservations;
+    private final int visits;
+    private final int cancellations;
+    private final int noShows;
+    private final long covers;
+    private final LocalDateTime lastVisit;
+    private final double noShowRate;
+}
@@ -0,0 +1,20 @@
+package com.restaurant.reservation.dto;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * A page of faceted search results with the number of matching restaurants per value of
+ * each facet, e.g. {@code facets.cuisine.Italian}.
+ */
+@Getter
+@AllArgsConstructor
+public class FacetedRestaurantsDTO {
+    
+    private final Page<RawValue> restaurants;
+    private final Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,30 @@
+package com.restaurant.reservation.dto;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Totals over the reservations of an export, by status and by the day of week and hour
+ * they start at. Covers count completed reservations only.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationSummaryDTO {
+    
+    private final LocalDateTime exportedAt;
+    private final long reservations;
+    private final Map<SimpleReservation.ReservationStatus, Long> byStatus;
+    private final long covers;
+    private final double noShowRate;
+    private final Map<DayOfWeek, Long> byDayOfWeek;
+    
+    /**
+     * Reservations starting in each hour of the day, from midnight.
+     */
+    private final long[] byHour;
+}
@@ -0,0 +1,23 @@
+package com.restaurant.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reservation counts of one restaurant in a reservation export.
+ */
+@Getter
+@AllArgsConstructor
+public class RestaurantReportDTO {
+    
+    private final Long restaurantId;
+    private final int reservations;
+    private final int visits;
+    private final int cancellations;
+    private final int noShows;
+    private final long covers;
+    private final LocalDateTime lastVisit;
+    private final double noShowRate;
+}
@@ -0,0 +1,20 @@
+package com.restaurant.reservation.dto;
+
+import com.restaurant.reservation.model.RestaurantTable;
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantTableDTO {
+    private Long id;
+    private String tableNumber;
+    private Integer capacity;
+    private String location;
+    private RestaurantTable.TableStatus status;
+    private Boolean active;
+    private Boolean combinable;
+    private String combinationGroup;
+    private Long restaurantId;
+}
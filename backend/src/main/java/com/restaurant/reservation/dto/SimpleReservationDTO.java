@@ -4,6 +4,7 @@ import com.restaurant.reservation.model.SimpleReservation;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -16,8 +17,10 @@ public class SimpleReservationDTO {
     private String customerPhone;
     private LocalDateTime reservationDateTime;
     private Integer partySize;
+    private Integer durationMinutes;
     private String specialRequests;
     private SimpleReservation.ReservationStatus status;
     private Long restaurantId;
     private String restaurantName;
+    private List<Long> tableIds;
 }
\ No newline at end of file
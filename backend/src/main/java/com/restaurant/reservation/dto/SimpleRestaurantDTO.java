@@ -23,6 +23,8 @@ public class SimpleRestaurantDTO {
     private LocalTime openingTime;
     private LocalTime closingTime;
     private Integer capacity;
+    private Integer defaultReservationDurationMinutes;
+    private Integer slotIntervalMinutes;
     private Boolean active;
     private String imageUrl;
     private List<String> gallery;
@@ -0,0 +1,29 @@
+package com.restaurant.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * A restaurant with only the requested {@link SimpleRestaurantDTO} properties, written as
+ * a plain JSON object. The version is kept for ETags but not serialized.
+ */
+@Getter
+public class SparseRestaurantDTO {
+    
+    private final Long id;
+    private final Long version;
+    private final Map<String, Object> properties;
+    
+    public SparseRestaurantDTO(Long id, Long version, Map<String, Object> properties) {
+        this.id = id;
+        this.version = version;
+        this.properties = properties;
+    }
+    
+    @JsonValue
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+}
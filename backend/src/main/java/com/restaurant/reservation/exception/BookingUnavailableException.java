@@ -0,0 +1,7 @@
+package com.restaurant.reservation.exception;
+
+public class BookingUnavailableException extends RuntimeException {
+    public BookingUnavailableException(String message) {
+        super(message);
+    }
+}
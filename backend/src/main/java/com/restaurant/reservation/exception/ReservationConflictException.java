@@ -1,11 +1,30 @@
 package com.restaurant.reservation.exception;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 public class ReservationConflictException extends RuntimeException {
+    
+    private final List<LocalDateTime> alternativeSlots;
+    
     public ReservationConflictException(String message) {
+        this(message, List.of());
+    }
+    
+    public ReservationConflictException(String message, List<LocalDateTime> alternativeSlots) {
         super(message);
+        this.alternativeSlots = List.copyOf(alternativeSlots);
     }
     
     public ReservationConflictException(String message, Throwable cause) {
         super(message, cause);
+        this.alternativeSlots = List.of();
+    }
+    
+    /**
+     * Nearest start times that could take the party instead, closest first.
+     */
+    public List<LocalDateTime> getAlternativeSlots() {
+        return alternativeSlots;
     }
 }
\ No newline at end of file
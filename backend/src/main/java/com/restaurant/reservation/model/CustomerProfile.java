@@ -0,0 +1,68 @@
+package com.restaurant.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reservation counts of one customer, identified by normalized email. The counts are
+ * updated in the transaction that creates or changes a reservation; with sharding, each
+ * shard holds the counts of its own reservations.
+ */
+@Entity
+@jakarta.persistence.Table(name = "customer_profiles", indexes = {
+        @Index(name = "idx_customer_profiles_reservations", columnList = "reservations, email"),
+        @Index(name = "idx_customer_profiles_name", columnList = "name"),
+        @Index(name = "idx_customer_profiles_cancellations", columnList = "cancellations"),
+        @Index(name = "idx_customer_profiles_visits", columnList = "visits"),
+        @Index(name = "idx_customer_profiles_covers", columnList = "covers"),
+        @Index(name = "idx_customer_profiles_no_shows", columnList = "noShows"),
+        @Index(name = "idx_customer_profiles_last_visit", columnList = "lastVisit")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerProfile extends BaseEntity {
+    
+    @Column(nullable = false, unique = true)
+    private String email;
+    
+    /**
+     * Name and phone as given on the customer's latest booking or change.
+     */
+    @Column(nullable = false)
+    private String name;
+    
+    private String phone;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer reservations = 0;
+    
+    /**
+     * Completed reservations.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer visits = 0;
+    
+    /**
+     * Guests of completed reservations.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Long covers = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer cancellations = 0;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer noShows = 0;
+    
+    private LocalDateTime lastVisit;
+}
@@ -0,0 +1,31 @@
+package com.restaurant.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@jakarta.persistence.Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord extends BaseEntity {
+    
+    @Column(name = "idempotency_key", nullable = false, unique = true)
+    private String idempotencyKey;
+    
+    @Column(nullable = false)
+    private String fingerprint;
+    
+    /**
+     * Null while the claiming node is still executing the request.
+     */
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
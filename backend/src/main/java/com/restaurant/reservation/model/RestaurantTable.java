@@ -0,0 +1,54 @@
+package com.restaurant.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@jakarta.persistence.Table(name = "restaurant_tables",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"restaurant_id", "table_number"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantTable extends BaseEntity {
+    
+    @Column(name = "table_number", nullable = false)
+    private String tableNumber;
+    
+    @Column(nullable = false)
+    private Integer capacity;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private String location = "main";
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private TableStatus status = TableStatus.AVAILABLE;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean active = true;
+    
+    /**
+     * Tables that share a combination group can be pushed together for larger parties.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean combinable = false;
+    
+    private String combinationGroup;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "restaurant_id", nullable = false)
+    private SimpleRestaurant restaurant;
+    
+    public enum TableStatus {
+        AVAILABLE,
+        OCCUPIED,
+        RESERVED,
+        MAINTENANCE
+    }
+}
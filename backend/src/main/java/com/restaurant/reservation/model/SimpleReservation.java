@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @jakarta.persistence.Table(name = "reservations")
@@ -14,6 +16,9 @@ import java.time.LocalDateTime;
 @Builder
 public class SimpleReservation extends BaseEntity {
     
+    public static final int DEFAULT_DURATION_MINUTES = 90;
+    public static final int MAX_DURATION_MINUTES = 720;
+    
     @Column(nullable = false)
     private String customerName;
     
@@ -29,6 +34,11 @@ public class SimpleReservation extends BaseEntity {
     @Column(nullable = false)
     private Integer partySize;
     
+    /**
+     * How long the party holds its seats; null for reservations made before durations existed.
+     */
+    private Integer durationMinutes;
+    
     @Column(columnDefinition = "TEXT")
     private String specialRequests;
     
@@ -41,6 +51,17 @@ public class SimpleReservation extends BaseEntity {
     @JoinColumn(name = "restaurant_id", nullable = false)
     private SimpleRestaurant restaurant;
     
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "reservation_tables",
+            joinColumns = @JoinColumn(name = "reservation_id"),
+            inverseJoinColumns = @JoinColumn(name = "table_id"))
+    @Builder.Default
+    private Set<RestaurantTable> tables = new HashSet<>();
+    
+    public int getEffectiveDurationMinutes() {
+        return durationMinutes != null ? durationMinutes : DEFAULT_DURATION_MINUTES;
+    }
+    
     public enum ReservationStatus {
         PENDING,
         CONFIRMED,
@@ -2,13 +2,21 @@ package com.restaurant.reservation.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @jakarta.persistence.Table(name = "restaurants")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,6 +24,8 @@ import java.util.List;
 @Builder
 public class SimpleRestaurant extends BaseEntity {
     
+    public static final int DEFAULT_SLOT_INTERVAL_MINUTES = 15;
+    
     @Column(nullable = false, unique = true)
     private String name;
     
@@ -52,13 +62,40 @@ public class SimpleRestaurant extends BaseEntity {
     @Builder.Default
     private Integer capacity = 50;
     
+    @Builder.Default
+    private Integer defaultReservationDurationMinutes = SimpleReservation.DEFAULT_DURATION_MINUTES;
+    
+    /**
+     * Minutes between bookable start times, counted from the opening time.
+     */
+    @Builder.Default
+    private Integer slotIntervalMinutes = DEFAULT_SLOT_INTERVAL_MINUTES;
+    
+    /**
+     * Days on which no reservations are taken. A day covers its service until closing,
+     * including the hours past midnight.
+     */
+    @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @CollectionTable(name = "restaurant_blackout_dates", joinColumns = @JoinColumn(name = "restaurant_id"))
+    @Column(name = "blackout_date")
+    @Builder.Default
+    private Set<LocalDate> blackoutDates = new HashSet<>();
+    
     @Column(nullable = false)
     @Builder.Default
     private Boolean active = true;
     
     private String imageUrl;
     
+    /**
+     * Galleries of every restaurant in the persistence context are initialized together,
+     * so converting a page of restaurants costs one gallery query instead of one per row.
+     */
     @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "restaurant_gallery", joinColumns = @JoinColumn(name = "restaurant_id"))
     @Column(name = "image_url")
     @Builder.Default
@@ -72,7 +109,10 @@ public class SimpleRestaurant extends BaseEntity {
     @Builder.Default
     private Double rating = 0.0;
     
-    @OneToMany(mappedBy = "restaurant", cascade = CascadeType.ALL, orphanRemoval = true)
-    @Builder.Default
-    private List<SimpleReservation> reservations = new ArrayList<>();
+    public int getEffectiveSlotIntervalMinutes() {
+        return slotIntervalMinutes != null ? slotIntervalMinutes : DEFAULT_SLOT_INTERVAL_MINUTES;
+    }
+    
+    // Reservations reference their restaurant but are not part of its aggregate; query them
+    // through SimpleReservationRepository instead of mapping a collection here.
 }
\ No newline at end of file
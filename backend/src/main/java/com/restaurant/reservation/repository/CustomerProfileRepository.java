@@ -0,0 +1,86 @@
+package com.restaurant.reservation.repository;
+
+import com.restaurant.reservation.model.CustomerProfile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CustomerProfileRepository extends JpaRepository<CustomerProfile, Long> {
+    
+    Optional<CustomerProfile> findByEmail(String email);
+    
+    Optional<CustomerProfile> findTopByOrderByIdAsc();
+    
+    Page<CustomerProfile> findByReservationsGreaterThan(int reservations, Pageable pageable);
+    
+    /**
+     * Inserts an empty profile unless the email has one, returning the number of rows
+     * inserted. A concurrent insert of the same email waits for the other transaction and
+     * then inserts nothing, without failing the caller's transaction.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_profiles (email, name, phone, reservations, visits, covers, " +
+                   "cancellations, no_shows, created_at, updated_at, version) " +
+                   "VALUES (:email, :name, :phone, 0, 0, 0, 0, 0, :now, :now, 0) " +
+                   "ON CONFLICT (email) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("email") String email,
+                       @Param("name") String name,
+                       @Param("phone") String phone,
+                       @Param("now") LocalDateTime now);
+    
+    /**
+     * {@link #insertIfAbsent} for databases without {@code ON CONFLICT}, such as the
+     * embedded H2 database.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO customer_profiles p USING (VALUES (CAST(:email AS VARCHAR(255)))) s (email) " +
+                   "ON p.email = s.email WHEN NOT MATCHED THEN INSERT (email, name, phone, reservations, " +
+                   "visits, covers, cancellations, no_shows, created_at, updated_at, version) " +
+                   "VALUES (s.email, :name, :phone, 0, 0, 0, 0, 0, :now, :now, 0)", nativeQuery = true)
+    int mergeIfAbsent(@Param("email") String email,
+                      @Param("name") String name,
+                      @Param("phone") String phone,
+                      @Param("now") LocalDateTime now);
+    
+    /**
+     * Adds to the counts in place, so concurrent bookings of one customer only wait for
+     * each other's row lock instead of failing on a stale version.
+     */
+    @Modifying
+    @Query("UPDATE CustomerProfile p SET p.reservations = p.reservations + :reservations, " +
+           "p.visits = p.visits + :visits, p.covers = p.covers + :covers, " +
+           "p.cancellations = p.cancellations + :cancellations, p.noShows = p.noShows + :noShows, " +
+           "p.version = p.version + 1, p.updatedAt = :now WHERE p.email = :email")
+    int addCounts(@Param("email") String email,
+                  @Param("reservations") int reservations,
+                  @Param("visits") int visits,
+                  @Param("covers") long covers,
+                  @Param("cancellations") int cancellations,
+                  @Param("noShows") int noShows,
+                  @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE CustomerProfile p SET p.name = :name, p.phone = :phone, " +
+           "p.version = p.version + 1, p.updatedAt = :now WHERE p.email = :email")
+    int updateContact(@Param("email") String email,
+                      @Param("name") String name,
+                      @Param("phone") String phone,
+                      @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE CustomerProfile p SET p.lastVisit = :visit WHERE p.email = :email AND " +
+           "(p.lastVisit IS NULL OR p.lastVisit < :visit)")
+    int recordVisit(@Param("email") String email, @Param("visit") LocalDateTime visit);
+    
+    @Modifying
+    @Query("UPDATE CustomerProfile p SET p.lastVisit = :lastVisit WHERE p.email = :email")
+    int resetLastVisit(@Param("email") String email, @Param("lastVisit") LocalDateTime lastVisit);
+}
@@ -0,0 +1,19 @@
+package com.restaurant.reservation.repository;
+
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Restaurant queries that select only some columns instead of whole entities.
+ */
+public interface RestaurantProjectionRepository {
+    
+    /**
+     * Active restaurants as tuples holding the given attributes, aliased by name. A non-null
+     * {@code query} filters like {@link SimpleRestaurantRepository#searchActiveRestaurants}.
+     */
+    Page<Tuple> findActiveColumns(List<String> attributes, String query, Pageable pageable);
+}
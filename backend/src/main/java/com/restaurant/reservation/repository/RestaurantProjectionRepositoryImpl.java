@@ -0,0 +1,70 @@
+package com.restaurant.reservation.repository;
+
+import com.restaurant.reservation.model.SimpleRestaurant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Criteria tuple queries behind {@link RestaurantProjectionRepository}.
+ */
+public class RestaurantProjectionRepositoryImpl implements RestaurantProjectionRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public Page<Tuple> findActiveColumns(List<String> attributes, String query, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        
+        CriteriaQuery<Tuple> select = cb.createTupleQuery();
+        Root<SimpleRestaurant> root = select.from(SimpleRestaurant.class);
+        select.multiselect(attributes.stream()
+                .<Selection<?>>map(attribute -> root.get(attribute).alias(attribute))
+                .toList());
+        select.where(activeMatching(cb, root, query));
+        if (pageable.getSort().isSorted()) {
+            select.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        
+        TypedQuery<Tuple> typed = entityManager.createQuery(select);
+        if (pageable.isPaged()) {
+            typed.setFirstResult((int) pageable.getOffset());
+            typed.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typed.getResultList(), pageable, () -> count(query));
+    }
+    
+    private long count(String query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> count = cb.createQuery(Long.class);
+        Root<SimpleRestaurant> root = count.from(SimpleRestaurant.class);
+        count.select(cb.count(root)).where(activeMatching(cb, root, query));
+        return entityManager.createQuery(count).getSingleResult();
+    }
+    
+    private static Predicate activeMatching(CriteriaBuilder cb, Root<SimpleRestaurant> root, String query) {
+        Predicate active = cb.isTrue(root.get("active"));
+        if (query == null) {
+            return active;
+        }
+        String pattern = "%" + query.toLowerCase(Locale.ROOT) + "%";
+        return cb.and(active, cb.or(
+                cb.like(cb.lower(root.get("name")), pattern),
+                cb.like(cb.lower(root.get("cuisine")), pattern),
+                cb.like(cb.lower(root.get("city")), pattern)));
+    }
+}
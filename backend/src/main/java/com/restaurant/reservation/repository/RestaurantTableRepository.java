@@ -0,0 +1,20 @@
+package com.restaurant.reservation.repository;
+
+import com.restaurant.reservation.model.RestaurantTable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RestaurantTableRepository extends JpaRepository<RestaurantTable, Long> {
+    
+    List<RestaurantTable> findByRestaurantIdOrderByTableNumberAsc(Long restaurantId);
+    
+    List<RestaurantTable> findByRestaurantIdAndActiveTrueOrderByCapacityAsc(Long restaurantId);
+    
+    Optional<RestaurantTable> findByIdAndRestaurantId(Long id, Long restaurantId);
+    
+    boolean existsByRestaurantIdAndActiveTrue(Long restaurantId);
+}
@@ -8,8 +8,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SimpleReservationRepository extends JpaRepository<SimpleReservation, Long> {
@@ -32,13 +34,156 @@ public interface SimpleReservationRepository extends JpaRepository<SimpleReserva
             @Param("startDateTime") LocalDateTime startDateTime,
             @Param("endDateTime") LocalDateTime endDateTime);
     
+    @Query("SELECT DISTINCT r FROM SimpleReservation r JOIN FETCH r.tables WHERE r.restaurant.id = :restaurantId AND " +
+           "r.reservationDateTime >= :from AND r.status IN ('PENDING', 'CONFIRMED')")
+    List<SimpleReservation> findSeatedFrom(
+            @Param("restaurantId") Long restaurantId,
+            @Param("from") LocalDateTime from);
+    
     List<SimpleReservation> findByStatus(SimpleReservation.ReservationStatus status);
     
-    @Query("SELECT COUNT(r) FROM SimpleReservation r WHERE r.restaurant.id = :restaurantId AND " +
-           "r.reservationDateTime BETWEEN :startDateTime AND :endDateTime AND " +
+    @Query("SELECT r.reservationDateTime AS reservationDateTime, r.durationMinutes AS durationMinutes, " +
+           "r.partySize AS partySize FROM SimpleReservation r WHERE r.restaurant.id = :restaurantId AND " +
+           "r.reservationDateTime >= :from AND r.reservationDateTime < :to AND " +
            "r.status IN ('PENDING', 'CONFIRMED')")
-    Long countActiveReservationsInTimeRange(
+    List<OccupancyRow> findActiveOccupancy(
             @Param("restaurantId") Long restaurantId,
-            @Param("startDateTime") LocalDateTime startDateTime,
-            @Param("endDateTime") LocalDateTime endDateTime);
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * Covers of active reservations starting in [from, to), summed per start time and
+     * duration, for the availability calendar.
+     */
+    @Query("SELECT r.reservationDateTime AS reservationDateTime, r.durationMinutes AS durationMinutes, " +
+           "sum(r.partySize) AS covers FROM SimpleReservation r WHERE r.restaurant.id = :restaurantId AND " +
+           "r.reservationDateTime >= :from AND r.reservationDateTime < :to AND " +
+           "r.status IN ('PENDING', 'CONFIRMED') GROUP BY r.reservationDateTime, r.durationMinutes")
+    List<CoverSumRow> sumActiveCovers(
+            @Param("restaurantId") Long restaurantId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    /**
+     * The reservation's stamp together with its restaurant's, since the restaurant name
+     * is part of the reservation representation.
+     */
+    @Query("SELECT r.version AS version, r.updatedAt AS updatedAt, " +
+           "rest.version AS restaurantVersion, rest.updatedAt AS restaurantUpdatedAt " +
+           "FROM SimpleReservation r JOIN r.restaurant rest WHERE r.id = :id")
+    Optional<ReservationVersionStamp> findVersionStampById(@Param("id") Long id);
+    
+    @Query("SELECT r.restaurant.id FROM SimpleReservation r WHERE r.id = :id")
+    Optional<Long> findRestaurantIdById(@Param("id") Long id);
+    
+    /**
+     * Bookings made since {@code since} per restaurant and hour, cancelled ones excluded.
+     */
+    @Query("SELECT r.restaurant.id AS restaurantId, cast(r.createdAt AS LocalDate) AS day, " +
+           "hour(r.createdAt) AS hour, count(r) AS bookings FROM SimpleReservation r " +
+           "WHERE r.createdAt >= :since AND r.status <> 'CANCELLED' " +
+           "GROUP BY r.restaurant.id, cast(r.createdAt AS LocalDate), hour(r.createdAt)")
+    List<BookingVolumeRow> countBookingsByHourSince(@Param("since") LocalDateTime since);
+    
+    /**
+     * The next reservations after {@code afterId} in id order, with the columns exported for reporting.
+     */
+    @Query("SELECT r.id AS id, r.restaurant.id AS restaurantId, r.customerEmail AS customerEmail, " +
+           "r.customerName AS customerName, r.reservationDateTime AS reservationDateTime, " +
+           "r.partySize AS partySize, r.durationMinutes AS durationMinutes, r.status AS status " +
+           "FROM SimpleReservation r WHERE r.id > :afterId ORDER BY r.id")
+    List<ExportRow> findExportRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Start of the customer's latest completed reservation, by normalized email.
+     */
+    @Query("SELECT max(r.reservationDateTime) FROM SimpleReservation r " +
+           "WHERE lower(trim(r.customerEmail)) = :email AND r.status = 'COMPLETED'")
+    LocalDateTime findLastVisit(@Param("email") String email);
+    
+    /**
+     * Reservation counts per normalized email, to build customer profiles from existing reservations.
+     */
+    @Query("SELECT lower(trim(r.customerEmail)) AS email, max(r.customerName) AS name, " +
+           "max(r.customerPhone) AS phone, count(r) AS reservations, " +
+           "sum(CASE WHEN r.status = 'COMPLETED' THEN 1 ELSE 0 END) AS visits, " +
+           "sum(CASE WHEN r.status = 'COMPLETED' THEN r.partySize ELSE 0 END) AS covers, " +
+           "sum(CASE WHEN r.status = 'CANCELLED' THEN 1 ELSE 0 END) AS cancellations, " +
+           "sum(CASE WHEN r.status = 'NO_SHOW' THEN 1 ELSE 0 END) AS noShows, " +
+           "max(CASE WHEN r.status = 'COMPLETED' THEN r.reservationDateTime END) AS lastVisit " +
+           "FROM SimpleReservation r GROUP BY lower(trim(r.customerEmail))")
+    List<CustomerTotalsRow> countByCustomer();
+    
+    /**
+     * The columns of an active reservation that contribute to restaurant occupancy.
+     */
+    interface OccupancyRow {
+        LocalDateTime getReservationDateTime();
+        
+        Integer getDurationMinutes();
+        
+        Integer getPartySize();
+    }
+    
+    interface CoverSumRow {
+        LocalDateTime getReservationDateTime();
+        
+        Integer getDurationMinutes();
+        
+        Long getCovers();
+    }
+    
+    interface BookingVolumeRow {
+        Long getRestaurantId();
+        
+        LocalDate getDay();
+        
+        Integer getHour();
+        
+        Long getBookings();
+    }
+    
+    interface ExportRow {
+        Long getId();
+        
+        Long getRestaurantId();
+        
+        String getCustomerEmail();
+        
+        String getCustomerName();
+        
+        LocalDateTime getReservationDateTime();
+        
+        Integer getPartySize();
+        
+        Integer getDurationMinutes();
+        
+        SimpleReservation.ReservationStatus getStatus();
+    }
+    
+    interface CustomerTotalsRow {
+        String getEmail();
+        
+        String getName();
+        
+        String getPhone();
+        
+        Long getReservations();
+        
+        Long getVisits();
+        
+        Long getCovers();
+        
+        Long getCancellations();
+        
+        Long getNoShows();
+        
+        LocalDateTime getLastVisit();
+    }
+    
+    interface ReservationVersionStamp extends VersionStamp {
+        Long getRestaurantVersion();
+        
+        LocalDateTime getRestaurantUpdatedAt();
+    }
 }
\ No newline at end of file
@@ -1,23 +1,30 @@
 package com.restaurant.reservation.repository;
 
 import com.restaurant.reservation.model.SimpleRestaurant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SimpleRestaurantRepository extends JpaRepository<SimpleRestaurant, Long> {
+public interface SimpleRestaurantRepository extends JpaRepository<SimpleRestaurant, Long>, RestaurantProjectionRepository {
     
     Optional<SimpleRestaurant> findByNameIgnoreCase(String name);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<SimpleRestaurant> findByActiveTrue();
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Page<SimpleRestaurant> findByActiveTrue(Pageable pageable);
     
     @Query("SELECT r FROM SimpleRestaurant r WHERE r.active = true AND " +
@@ -26,7 +33,66 @@ public interface SimpleRestaurantRepository extends JpaRepository<SimpleRestaura
            "LOWER(r.city) LIKE LOWER(CONCAT('%', :query, '%')))")
     Page<SimpleRestaurant> searchActiveRestaurants(@Param("query") String query, Pageable pageable);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<SimpleRestaurant> findByCityIgnoreCaseAndActiveTrue(String city);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<SimpleRestaurant> findByCuisineIgnoreCaseAndActiveTrue(String cuisine);
-}
\ No newline at end of file
+    
+    @Query("SELECT r.version AS version, r.updatedAt AS updatedAt FROM SimpleRestaurant r WHERE r.id = :id")
+    Optional<VersionStamp> findVersionStampById(@Param("id") Long id);
+    
+    @Query("SELECT r.id AS restaurantId, g AS imageUrl FROM SimpleRestaurant r JOIN r.gallery g WHERE r.id IN :ids")
+    List<GalleryRow> findGalleries(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * What the restaurant rankings need of each active restaurant.
+     */
+    @Query("SELECT r.id AS id, r.version AS version, r.city AS city, r.cuisine AS cuisine, r.rating AS rating " +
+           "FROM SimpleRestaurant r WHERE r.active = true")
+    List<RankingRow> findRankingRows();
+    
+    /**
+     * What the facet index needs of each active restaurant.
+     */
+    @Query("SELECT r.id AS id, r.version AS version, r.city AS city, r.cuisine AS cuisine, " +
+           "r.priceRange AS priceRange, r.rating AS rating, r.openingTime AS openingTime, " +
+           "r.closingTime AS closingTime FROM SimpleRestaurant r WHERE r.active = true")
+    List<FacetColumns> findFacetColumns();
+    
+    interface GalleryRow {
+        Long getRestaurantId();
+        
+        String getImageUrl();
+    }
+    
+    interface RankingRow {
+        Long getId();
+        
+        Long getVersion();
+        
+        String getCity();
+        
+        String getCuisine();
+        
+        Double getRating();
+    }
+    
+    interface FacetColumns {
+        Long getId();
+        
+        Long getVersion();
+        
+        String getCity();
+        
+        String getCuisine();
+        
+        String getPriceRange();
+        
+        Double getRating();
+        
+        LocalTime getOpeningTime();
+        
+        LocalTime getClosingTime();
+    }
+}
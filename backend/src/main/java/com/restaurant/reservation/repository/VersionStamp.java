@@ -0,0 +1,13 @@
+package com.restaurant.reservation.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version and last modification time of an entity, read without loading the entity itself.
+ */
+public interface VersionStamp {
+    
+    Long getVersion();
+    
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,63 @@
+package com.restaurant.reservation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs reads that seed in-memory admission state on the primary.
+ *
+ * <p>Occupancy and seating are loaded from the database once and then kept up to date in
+ * memory, so a copy read from a lagging replica would stay behind and admit bookings against
+ * it. With replica routing, such a read runs in a read-only transaction of its own that is
+ * routed to the primary, since the caller's read-only transaction may already hold a replica
+ * connection. Inside a read-write transaction, or without replicas, it simply joins the
+ * caller's transaction, which is on the primary already.
+ */
+@Component
+public class PrimaryReads {
+    
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+    
+    private final TransactionTemplate separate;
+    
+    public PrimaryReads(PlatformTransactionManager transactionManager,
+                        @Value("${app.datasource.replicas.enabled:false}") boolean replicas) {
+        if (replicas) {
+            this.separate = new TransactionTemplate(transactionManager);
+            this.separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.separate.setReadOnly(true);
+        } else {
+            this.separate = null;
+        }
+    }
+    
+    public <T> T read(Supplier<T> query) {
+        if (separate == null || isActive() || onPrimaryAlready()) {
+            return query.get();
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return separate.execute(status -> query.get());
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+    
+    /**
+     * Whether the current thread is inside {@link #read}, which pins it to the primary.
+     */
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+    
+    private static boolean onPrimaryAlready() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,70 @@
+package com.restaurant.reservation.service;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Booking outcome and capacity rejection counters.
+ *
+ * <p>Restaurants are tagged by price tier rather than by id, so the number of series
+ * stays small however many restaurants there are. Counters are created once per tag
+ * combination and reused.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservationMetrics {
+    
+    public static final String BOOKINGS = "reservation.bookings";
+    public static final String CAPACITY_REJECTIONS = "reservation.capacity.rejections";
+    public static final String TIER_TAG = "tier";
+    
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    
+    /**
+     * Counts a reservation reaching {@code status} once the surrounding transaction commits.
+     */
+    public void recordOutcome(SimpleRestaurant restaurant, SimpleReservation.ReservationStatus status) {
+        String outcome = status == SimpleReservation.ReservationStatus.PENDING
+                ? "created" : status.name().toLowerCase(Locale.ROOT);
+        Counter counter = counter(BOOKINGS, "outcome", outcome, tier(restaurant));
+        TransactionHooks.afterCommit(counter::increment);
+    }
+    
+    /**
+     * Counts a booking or move turned away for lack of capacity, by how admission was decided.
+     */
+    public void recordCapacityRejection(SimpleRestaurant restaurant, boolean seated) {
+        counter(CAPACITY_REJECTIONS, "admission", seated ? "tables" : "covers", tier(restaurant)).increment();
+    }
+    
+    private Counter counter(String name, String key, String value, String tier) {
+        return counters.computeIfAbsent(name + '|' + value + '|' + tier, id -> Counter.builder(name)
+                .tag(key, value)
+                .tag(TIER_TAG, tier)
+                .register(registry));
+    }
+    
+    /**
+     * "$" to "$$$$" as entered for the restaurant, anything else is "other".
+     */
+    static String tier(SimpleRestaurant restaurant) {
+        String priceRange = restaurant.getPriceRange();
+        if (priceRange == null || priceRange.isEmpty() || priceRange.length() > 4) {
+            return "other";
+        }
+        for (int i = 0; i < priceRange.length(); i++) {
+            if (priceRange.charAt(i) != '$') {
+                return "other";
+            }
+        }
+        return priceRange;
+    }
+}
@@ -0,0 +1,78 @@
+package com.restaurant.reservation.service;
+
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link SimpleRestaurantDTO} properties requested through a {@code fields=} parameter.
+ * Properties are kept in DTO order and {@code id} is always included.
+ */
+public final class RestaurantFieldSelection {
+    
+    public static final String GALLERY = "gallery";
+    
+    /**
+     * DTO properties in declaration order. All but the gallery map to a column of the same name.
+     */
+    static final List<String> PROPERTIES = List.of(
+            "id", "name", "address", "city", "state", "zipCode", "phoneNumber", "email",
+            "description", "cuisine", "openingTime", "closingTime", "capacity",
+            "defaultReservationDurationMinutes", "active", "imageUrl", GALLERY, "priceRange", "rating");
+    
+    private final List<String> properties;
+    
+    private RestaurantFieldSelection(List<String> properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Parses a comma separated list of property names; unknown names are rejected.
+     */
+    public static RestaurantFieldSelection parse(String fields) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!PROPERTIES.contains(name)) {
+                throw new IllegalArgumentException("Unknown restaurant field: " + name);
+            }
+            requested.add(name);
+        }
+        
+        List<String> properties = new ArrayList<>();
+        for (String property : PROPERTIES) {
+            if (property.equals("id") || requested.contains(property)) {
+                properties.add(property);
+            }
+        }
+        return new RestaurantFieldSelection(List.copyOf(properties));
+    }
+    
+    public List<String> properties() {
+        return properties;
+    }
+    
+    /**
+     * The selected entity columns, i.e. every property except the gallery.
+     */
+    public List<String> columns() {
+        return properties.stream()
+                .filter(property -> !property.equals(GALLERY))
+                .toList();
+    }
+    
+    public boolean includesGallery() {
+        return properties.contains(GALLERY);
+    }
+    
+    @Override
+    public String toString() {
+        return String.join(",", properties);
+    }
+}
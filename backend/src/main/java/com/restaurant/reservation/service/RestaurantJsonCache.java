@@ -0,0 +1,76 @@
+package com.restaurant.reservation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized JSON of each restaurant's DTO, cached per entity version.
+ *
+ * <p>Listing endpoints return the cached fragments as {@link RawValue}s, which Jackson
+ * copies into the response as already encoded UTF-8 bytes. A cache hit therefore skips
+ * the DTO mapping, reflective serialization and loading the lazy gallery collection.
+ * Any change to a restaurant increments {@code BaseEntity.version}, so stale fragments
+ * are never served.
+ */
+@Component
+public class RestaurantJsonCache {
+    
+    private final ObjectMapper objectMapper;
+    private final SimpleRestaurantService restaurantService;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    
+    public RestaurantJsonCache(ObjectMapper objectMapper,
+                               SimpleRestaurantService restaurantService,
+                               @Value("${app.json-cache.max-entries:50000}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.restaurantService = restaurantService;
+        this.maxEntries = maxEntries;
+    }
+    
+    public RawValue json(SimpleRestaurant restaurant) {
+        Long id = restaurant.getId();
+        Long version = restaurant.getVersion();
+        Fragment cached = fragments.get(id);
+        if (cached != null && Objects.equals(cached.version, version)) {
+            return cached.json;
+        }
+        
+        RawValue json = new RawValue(new SerializedString(serialize(restaurant)));
+        // Beyond the limit fragments are still produced, just not kept
+        if (id != null && version != null && (cached != null || fragments.size() < maxEntries)) {
+            fragments.put(id, new Fragment(version, json));
+        }
+        return json;
+    }
+    
+    public int size() {
+        return fragments.size();
+    }
+    
+    private String serialize(SimpleRestaurant restaurant) {
+        try {
+            return objectMapper.writeValueAsString(restaurantService.toDto(restaurant));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize restaurant " + restaurant.getId(), ex);
+        }
+    }
+    
+    private static final class Fragment {
+        private final Long version;
+        private final RawValue json;
+        
+        private Fragment(Long version, RawValue json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+}
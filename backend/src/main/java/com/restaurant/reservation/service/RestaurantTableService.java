@@ -0,0 +1,123 @@
+package com.restaurant.reservation.service;
+
+import com.restaurant.reservation.dto.RestaurantTableDTO;
+import com.restaurant.reservation.exception.ResourceNotFoundException;
+import com.restaurant.reservation.model.RestaurantTable;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.RestaurantTableRepository;
+import com.restaurant.reservation.service.seating.SeatingAllocator;
+import com.restaurant.reservation.sharding.OnShard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class RestaurantTableService {
+    
+    private final RestaurantTableRepository tableRepository;
+    private final SimpleRestaurantService restaurantService;
+    private final SeatingAllocator seatingAllocator;
+    
+    @OnShard("#restaurantId")
+    @Transactional(readOnly = true)
+    public List<RestaurantTable> getTables(Long restaurantId) {
+        log.debug("Fetching tables for restaurant: {}", restaurantId);
+        return tableRepository.findByRestaurantIdOrderByTableNumberAsc(restaurantId);
+    }
+    
+    @OnShard("#restaurantId")
+    public RestaurantTable createTable(Long restaurantId, RestaurantTableDTO dto) {
+        log.debug("Creating table {} for restaurant: {}", dto.getTableNumber(), restaurantId);
+        
+        SimpleRestaurant restaurant = restaurantService.getRestaurantById(restaurantId);
+        validate(dto);
+        
+        RestaurantTable table = RestaurantTable.builder()
+                .tableNumber(dto.getTableNumber())
+                .capacity(dto.getCapacity())
+                .location(dto.getLocation() != null ? dto.getLocation() : "main")
+                .status(dto.getStatus() != null ? dto.getStatus() : RestaurantTable.TableStatus.AVAILABLE)
+                .active(true)
+                .combinable(Boolean.TRUE.equals(dto.getCombinable()))
+                .combinationGroup(dto.getCombinationGroup())
+                .restaurant(restaurant)
+                .build();
+        
+        RestaurantTable saved = tableRepository.save(table);
+        seatingAllocator.evict(restaurantId);
+        return saved;
+    }
+    
+    @OnShard("#restaurantId")
+    public RestaurantTable updateTable(Long restaurantId, Long tableId, RestaurantTableDTO dto) {
+        log.debug("Updating table {} for restaurant: {}", tableId, restaurantId);
+        
+        RestaurantTable table = getTable(restaurantId, tableId);
+        validate(dto);
+        
+        table.setTableNumber(dto.getTableNumber());
+        table.setCapacity(dto.getCapacity());
+        if (dto.getLocation() != null) {
+            table.setLocation(dto.getLocation());
+        }
+        if (dto.getStatus() != null) {
+            table.setStatus(dto.getStatus());
+        }
+        if (dto.getActive() != null) {
+            table.setActive(dto.getActive());
+        }
+        table.setCombinable(Boolean.TRUE.equals(dto.getCombinable()));
+        table.setCombinationGroup(dto.getCombinationGroup());
+        
+        RestaurantTable saved = tableRepository.save(table);
+        seatingAllocator.evict(restaurantId);
+        return saved;
+    }
+    
+    @OnShard("#restaurantId")
+    public void deactivateTable(Long restaurantId, Long tableId) {
+        log.debug("Deactivating table {} for restaurant: {}", tableId, restaurantId);
+        RestaurantTable table = getTable(restaurantId, tableId);
+        table.setActive(false);
+        tableRepository.save(table);
+        seatingAllocator.evict(restaurantId);
+    }
+    
+    private RestaurantTable getTable(Long restaurantId, Long tableId) {
+        return tableRepository.findByIdAndRestaurantId(tableId, restaurantId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Table " + tableId + " not found for restaurant: " + restaurantId));
+    }
+    
+    private void validate(RestaurantTableDTO dto) {
+        if (dto.getTableNumber() == null || dto.getTableNumber().isBlank()) {
+            throw new IllegalArgumentException("Table number is required");
+        }
+        if (dto.getCapacity() == null || dto.getCapacity() < 1) {
+            throw new IllegalArgumentException("Table capacity must be at least 1");
+        }
+    }
+    
+    /**
+     * Convert entity to DTO
+     */
+    public RestaurantTableDTO toDto(RestaurantTable table) {
+        return RestaurantTableDTO.builder()
+                .id(table.getId())
+                .tableNumber(table.getTableNumber())
+                .capacity(table.getCapacity())
+                .location(table.getLocation())
+                .status(table.getStatus())
+                .active(table.getActive())
+                .combinable(table.getCombinable())
+                .combinationGroup(table.getCombinationGroup())
+                .restaurantId(table.getRestaurant().getId())
+                .build();
+    }
+}
@@ -1,49 +1,90 @@
 package com.restaurant.reservation.service;
 
+import com.restaurant.reservation.dto.AvailabilityCalendarDTO;
 import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.exception.ReservationConflictException;
 import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.RestaurantTable;
 import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.RestaurantTableRepository;
 import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.booking.BookingLanes;
+import com.restaurant.reservation.service.customer.CustomerProfileService;
+import com.restaurant.reservation.service.occupancy.OccupancyIndex;
+import com.restaurant.reservation.service.ranking.RankingEvents;
+import com.restaurant.reservation.service.seating.SeatingAllocator;
+import com.restaurant.reservation.service.seating.SeatingPlan;
+import com.restaurant.reservation.service.slots.AvailabilityCalendar;
+import com.restaurant.reservation.service.slots.SlotGrid;
+import com.restaurant.reservation.service.slots.SlotGrids;
+import com.restaurant.reservation.sharding.OnShard;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
+@Timed(value = "reservation.service", description = "Reservation service method latency")
 public class SimpleReservationService {
     
+    private static final int ALTERNATIVE_SEARCH_MINUTES = 120;
+    private static final int MAX_ALTERNATIVE_SLOTS = 3;
+    
     private final SimpleReservationRepository reservationRepository;
     private final SimpleRestaurantService restaurantService;
+    private final RestaurantTableRepository tableRepository;
+    private final SeatingAllocator seatingAllocator;
+    private final OccupancyIndex occupancyIndex;
+    private final ReservationMetrics reservationMetrics;
+    private final ShardedQueries shardedQueries;
+    private final BookingLanes bookingLanes;
+    private final RankingEvents rankingEvents;
+    private final SlotGrids slotGrids;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final CustomerProfileService customerProfiles;
     
+    /**
+     * Books a table or covers for the party. Booking changes run on the restaurant's
+     * {@link BookingLanes} lane, so no transaction is held while waiting for it.
+     */
+    @OnShard("#dto.restaurantId")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public SimpleReservation createReservation(SimpleReservationDTO dto) {
-        log.info("Creating reservation for customer: {} at restaurant: {}", 
+        log.debug("Creating reservation for customer: {} at restaurant: {}", 
                 dto.getCustomerName(), dto.getRestaurantId());
-        
+        return bookingLanes.execute(dto.getRestaurantId(), () -> initializeAssociations(admit(dto)));
+    }
+    
+    private SimpleReservation admit(SimpleReservationDTO dto) {
         SimpleRestaurant restaurant = restaurantService.getRestaurantById(dto.getRestaurantId());
         
         // Basic validation
         if (dto.getReservationDateTime().isBefore(LocalDateTime.now())) {
             throw new RuntimeException("Cannot make reservation in the past");
         }
+        slotGrids.of(restaurant).validate(dto.getReservationDateTime());
         
-        // Check capacity (simplified - just count active reservations in the same hour)
-        LocalDateTime startHour = dto.getReservationDateTime().withMinute(0).withSecond(0);
-        LocalDateTime endHour = startHour.plusHours(1);
-        
-        Long activeReservations = reservationRepository.countActiveReservationsInTimeRange(
-                dto.getRestaurantId(), startHour, endHour);
-        
-        if (activeReservations >= restaurant.getCapacity()) {
-            throw new RuntimeException("Restaurant is fully booked for the requested time");
-        }
+        int durationMinutes = resolveDuration(dto.getDurationMinutes(), restaurant);
+        Set<RestaurantTable> tables = takeCapacity(restaurant, dto.getReservationDateTime(), durationMinutes,
+                dto.getPartySize());
         
         SimpleReservation reservation = SimpleReservation.builder()
                 .customerName(dto.getCustomerName())
@@ -51,81 +92,318 @@ public class SimpleReservationService {
                 .customerPhone(dto.getCustomerPhone())
                 .reservationDateTime(dto.getReservationDateTime())
                 .partySize(dto.getPartySize())
+                .durationMinutes(durationMinutes)
                 .specialRequests(dto.getSpecialRequests())
                 .status(SimpleReservation.ReservationStatus.PENDING)
                 .restaurant(restaurant)
+                .tables(tables)
                 .build();
         
-        return reservationRepository.save(reservation);
+        reservationMetrics.recordOutcome(restaurant, SimpleReservation.ReservationStatus.PENDING);
+        SimpleReservation saved = reservationRepository.save(reservation);
+        customerProfiles.reservationCreated(saved);
+        rankingEvents.bookingCreated(saved);
+        availabilityCalendar.invalidate(restaurant.getId());
+        return saved;
     }
     
+    @OnShard("#id")
     @Transactional(readOnly = true)
     public SimpleReservation getReservationById(Long id) {
-        log.info("Fetching reservation with id: {}", id);
+        log.debug("Fetching reservation with id: {}", id);
         return reservationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservation not found with id: " + id));
     }
     
+    @OnShard("#id")
+    @Transactional(readOnly = true)
+    public Optional<SimpleReservationRepository.ReservationVersionStamp> findVersionStamp(Long id) {
+        return reservationRepository.findVersionStampById(id);
+    }
+    
+    @OnShard("#restaurantId")
     @Transactional(readOnly = true)
     public List<SimpleReservation> getReservationsByRestaurant(Long restaurantId) {
-        log.info("Fetching reservations for restaurant: {}", restaurantId);
+        log.debug("Fetching reservations for restaurant: {}", restaurantId);
         return reservationRepository.findByRestaurantId(restaurantId);
     }
     
+    @OnShard("#restaurantId")
     @Transactional(readOnly = true)
     public Page<SimpleReservation> getReservationsByRestaurant(Long restaurantId, Pageable pageable) {
-        log.info("Fetching reservations for restaurant: {} with pagination", restaurantId);
+        log.debug("Fetching reservations for restaurant: {} with pagination", restaurantId);
         return reservationRepository.findByRestaurantId(restaurantId, pageable);
     }
     
     @Transactional(readOnly = true)
     public List<SimpleReservation> getReservationsByCustomerEmail(String email) {
-        log.info("Fetching reservations for customer email: {}", email);
-        return reservationRepository.findByCustomerEmailIgnoreCase(email);
+        log.debug("Fetching reservations for customer email: {}", email);
+        return shardedQueries.gather(() -> reservationRepository.findByCustomerEmailIgnoreCase(email),
+                SimpleReservationService::initializeAssociations);
     }
     
+    @OnShard("#id")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public SimpleReservation updateReservationStatus(Long id, SimpleReservation.ReservationStatus status) {
-        log.info("Updating reservation {} status to: {}", id, status);
-        
+        log.debug("Updating reservation {} status to: {}", id, status);
+        return onLaneOf(id, () -> initializeAssociations(changeStatus(id, status)));
+    }
+    
+    private SimpleReservation changeStatus(Long id, SimpleReservation.ReservationStatus status) {
         SimpleReservation reservation = getReservationById(id);
+        CustomerProfileService.Contribution before = CustomerProfileService.Contribution.of(reservation);
+        if (isActive(reservation.getStatus()) != isActive(status)) {
+            availabilityCalendar.invalidate(reservation.getRestaurant().getId());
+        }
+        if (isActive(reservation.getStatus()) && !isActive(status)) {
+            seatingAllocator.release(reservation);
+            occupancyIndex.release(reservation.getRestaurant().getId(), reservation.getReservationDateTime(),
+                    reservation.getEffectiveDurationMinutes(), reservation.getPartySize());
+        } else if (!isActive(reservation.getStatus()) && isActive(status)) {
+            // Its covers and tables may have been booked since, so it is admitted like a new booking
+            reservation.setTables(takeCapacity(reservation.getRestaurant(), reservation.getReservationDateTime(),
+                    reservation.getEffectiveDurationMinutes(), reservation.getPartySize()));
+        }
+        if (reservation.getStatus() != status) {
+            reservationMetrics.recordOutcome(reservation.getRestaurant(), status);
+            rankingEvents.statusChanged(reservation, reservation.getStatus(), status);
+        }
         reservation.setStatus(status);
         
-        return reservationRepository.save(reservation);
+        SimpleReservation saved = reservationRepository.save(reservation);
+        customerProfiles.reservationChanged(before, saved);
+        return saved;
     }
     
+    @OnShard("#id")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public SimpleReservation updateReservation(Long id, SimpleReservationDTO dto) {
-        log.info("Updating reservation with id: {}", id);
-        
+        log.debug("Updating reservation with id: {}", id);
+        return onLaneOf(id, () -> initializeAssociations(change(id, dto)));
+    }
+    
+    private SimpleReservation change(Long id, SimpleReservationDTO dto) {
         SimpleReservation reservation = getReservationById(id);
+        CustomerProfileService.Contribution before = CustomerProfileService.Contribution.of(reservation);
         
         // Basic validation
         if (dto.getReservationDateTime().isBefore(LocalDateTime.now())) {
             throw new RuntimeException("Cannot update reservation to a time in the past");
         }
+        if (!dto.getReservationDateTime().equals(reservation.getReservationDateTime())) {
+            slotGrids.of(reservation.getRestaurant()).validate(dto.getReservationDateTime());
+        }
+        
+        Integer requestedDuration = dto.getDurationMinutes() != null
+                ? dto.getDurationMinutes() : reservation.getDurationMinutes();
+        int durationMinutes = resolveDuration(requestedDuration, reservation.getRestaurant());
+        
+        boolean slotChanged = !dto.getReservationDateTime().equals(reservation.getReservationDateTime())
+                || !dto.getPartySize().equals(reservation.getPartySize())
+                || durationMinutes != reservation.getEffectiveDurationMinutes();
+        if (isActive(reservation.getStatus()) && slotChanged) {
+            moveReservation(reservation, dto.getReservationDateTime(), durationMinutes, dto.getPartySize());
+            availabilityCalendar.invalidate(reservation.getRestaurant().getId());
+        }
         
         reservation.setCustomerName(dto.getCustomerName());
         reservation.setCustomerEmail(dto.getCustomerEmail());
         reservation.setCustomerPhone(dto.getCustomerPhone());
         reservation.setReservationDateTime(dto.getReservationDateTime());
         reservation.setPartySize(dto.getPartySize());
+        reservation.setDurationMinutes(durationMinutes);
         reservation.setSpecialRequests(dto.getSpecialRequests());
         
-        return reservationRepository.save(reservation);
+        SimpleReservation saved = reservationRepository.save(reservation);
+        customerProfiles.reservationChanged(before, saved);
+        return saved;
     }
     
+    @OnShard("#id")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void cancelReservation(Long id) {
-        log.info("Cancelling reservation with id: {}", id);
+        log.debug("Cancelling reservation with id: {}", id);
         updateReservationStatus(id, SimpleReservation.ReservationStatus.CANCELLED);
     }
     
+    @OnShard("#id")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void confirmReservation(Long id) {
-        log.info("Confirming reservation with id: {}", id);
+        log.debug("Confirming reservation with id: {}", id);
         updateReservationStatus(id, SimpleReservation.ReservationStatus.CONFIRMED);
     }
     
+    /**
+     * Start times on the restaurant's slot grid for the service day that could still take
+     * the party, in order.
+     */
+    @OnShard("#restaurantId")
+    @Transactional(readOnly = true)
+    public List<LocalDateTime> getAvailableSlots(Long restaurantId, LocalDate date, int partySize,
+                                                 Integer durationMinutes) {
+        if (partySize < 1) {
+            throw new IllegalArgumentException("Party size must be at least 1");
+        }
+        SimpleRestaurant restaurant = restaurantService.getRestaurantById(restaurantId);
+        int duration = resolveDuration(durationMinutes, restaurant);
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> available = new ArrayList<>();
+        for (LocalDateTime slot : slotGrids.of(restaurant).slots(date)) {
+            if (!slot.isBefore(now) && isAvailable(restaurant, slot, duration, partySize)) {
+                available.add(slot);
+            }
+        }
+        return available;
+    }
+    
+    /**
+     * Remaining covers per slot over {@code days} service days from {@code from}, and how
+     * many slots of each day can still take the party.
+     */
+    @OnShard("#restaurantId")
+    @Transactional(readOnly = true)
+    public AvailabilityCalendarDTO getAvailabilityCalendar(Long restaurantId, LocalDate from, int days, int partySize,
+                                                           Integer durationMinutes) {
+        if (partySize < 1) {
+            throw new IllegalArgumentException("Party size must be at least 1");
+        }
+        SimpleRestaurant restaurant = restaurantService.getRestaurantById(restaurantId);
+        int duration = resolveDuration(durationMinutes, restaurant);
+        return availabilityCalendar.calendar(restaurant, slotGrids.of(restaurant), from, days, partySize, duration);
+    }
+    
     @Transactional(readOnly = true)
     public List<SimpleReservation> getReservationsByDateRange(LocalDateTime start, LocalDateTime end) {
-        log.info("Fetching reservations between {} and {}", start, end);
-        return reservationRepository.findByDateTimeRange(start, end);
+        log.debug("Fetching reservations between {} and {}", start, end);
+        return shardedQueries.gather(() -> reservationRepository.findByDateTimeRange(start, end),
+                SimpleReservationService::initializeAssociations);
+    }
+    
+    /**
+     * Runs a change to an existing reservation on its restaurant's lane.
+     */
+    private SimpleReservation onLaneOf(Long id, Supplier<SimpleReservation> change) {
+        Long restaurantId = bookingLanes.isEnabled()
+                ? reservationRepository.findRestaurantIdById(id)
+                        .orElseThrow(() -> new RuntimeException("Reservation not found with id: " + id))
+                : null;
+        return bookingLanes.execute(restaurantId, change);
+    }
+    
+    /**
+     * Books covers for a party, and a table (or combination of tables) where the restaurant
+     * has tables. Returns the tables booked, none for restaurants without tables.
+     */
+    private Set<RestaurantTable> takeCapacity(SimpleRestaurant restaurant, LocalDateTime start, int durationMinutes,
+                                              int partySize) {
+        Set<RestaurantTable> tables = new HashSet<>();
+        if (seatingAllocator.hasTables(restaurant.getId())) {
+            // Admission is decided by whether a table (or combination of tables) fits the party
+            SeatingPlan plan = seatingAllocator.allocate(restaurant.getId(), start, durationMinutes, partySize)
+                    .orElseThrow(() -> capacityConflict(restaurant, true, start, durationMinutes, partySize));
+            plan.getTableIds().forEach(tableId -> tables.add(tableRepository.getReferenceById(tableId)));
+            occupancyIndex.reserve(restaurant.getId(), start, durationMinutes, partySize);
+        } else if (!occupancyIndex.tryReserve(restaurant.getId(), start, durationMinutes, partySize,
+                restaurant.getCapacity())) {
+            // Covers seated at any point of the stay, not just within the same clock hour
+            throw capacityConflict(restaurant, false, start, durationMinutes, partySize);
+        }
+        return tables;
+    }
+    
+    /**
+     * Re-validates an active reservation against its target window while releasing the
+     * one it currently holds, so a party never competes with itself for capacity.
+     */
+    private void moveReservation(SimpleReservation reservation, LocalDateTime start, int durationMinutes, int partySize) {
+        SimpleRestaurant restaurant = reservation.getRestaurant();
+        Long restaurantId = restaurant.getId();
+        
+        if (seatingAllocator.hasTables(restaurantId)) {
+            SeatingPlan plan = seatingAllocator.move(reservation, start, durationMinutes, partySize)
+                    .orElseThrow(() -> capacityConflict(restaurant, true, start, durationMinutes, partySize));
+            occupancyIndex.tryMove(restaurantId,
+                    reservation.getReservationDateTime(), reservation.getEffectiveDurationMinutes(), reservation.getPartySize(),
+                    start, durationMinutes, partySize,
+                    Integer.MAX_VALUE);
+            
+            Set<RestaurantTable> tables = new HashSet<>();
+            plan.getTableIds().forEach(tableId -> tables.add(tableRepository.getReferenceById(tableId)));
+            reservation.setTables(tables);
+        } else if (!occupancyIndex.tryMove(restaurantId,
+                reservation.getReservationDateTime(), reservation.getEffectiveDurationMinutes(), reservation.getPartySize(),
+                start, durationMinutes, partySize,
+                restaurant.getCapacity())) {
+            throw capacityConflict(restaurant, false, start, durationMinutes, partySize);
+        }
+    }
+    
+    private ReservationConflictException capacityConflict(SimpleRestaurant restaurant, boolean seated,
+                                                          LocalDateTime start, int durationMinutes, int partySize) {
+        reservationMetrics.recordCapacityRejection(restaurant, seated);
+        String message = seated
+                ? "No table is available for the requested time"
+                : "Restaurant is fully booked for the requested time";
+        return new ReservationConflictException(message, alternativeSlots(restaurant, start, durationMinutes, partySize));
+    }
+    
+    /**
+     * Nearest slots on either side of the requested one that could take the party.
+     */
+    private List<LocalDateTime> alternativeSlots(SimpleRestaurant restaurant, LocalDateTime requested,
+                                                 int durationMinutes, int partySize) {
+        SlotGrid grid = slotGrids.of(restaurant);
+        int step = grid.intervalMinutes();
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> alternatives = new ArrayList<>(MAX_ALTERNATIVE_SLOTS);
+        
+        for (int offset = step;
+             offset <= ALTERNATIVE_SEARCH_MINUTES && alternatives.size() < MAX_ALTERNATIVE_SLOTS;
+             offset += step) {
+            for (LocalDateTime candidate : List.of(requested.minusMinutes(offset), requested.plusMinutes(offset))) {
+                if (alternatives.size() == MAX_ALTERNATIVE_SLOTS || candidate.isBefore(now)
+                        || !grid.isBookable(candidate)) {
+                    continue;
+                }
+                if (isAvailable(restaurant, candidate, durationMinutes, partySize)) {
+                    alternatives.add(candidate);
+                }
+            }
+        }
+        return alternatives;
+    }
+    
+    private boolean isAvailable(SimpleRestaurant restaurant, LocalDateTime start, int durationMinutes, int partySize) {
+        return seatingAllocator.hasTables(restaurant.getId())
+                ? seatingAllocator.fits(restaurant.getId(), start, durationMinutes, partySize)
+                : occupancyIndex.maxCovers(restaurant.getId(), start, durationMinutes) + partySize
+                        <= restaurant.getCapacity();
+    }
+    
+    private static int resolveDuration(Integer requestedMinutes, SimpleRestaurant restaurant) {
+        int durationMinutes = requestedMinutes != null ? requestedMinutes
+                : restaurant.getDefaultReservationDurationMinutes() != null
+                        ? restaurant.getDefaultReservationDurationMinutes()
+                        : SimpleReservation.DEFAULT_DURATION_MINUTES;
+        if (durationMinutes < 1 || durationMinutes > SimpleReservation.MAX_DURATION_MINUTES) {
+            throw new IllegalArgumentException("Reservation duration must be between 1 and "
+                    + SimpleReservation.MAX_DURATION_MINUTES + " minutes");
+        }
+        return durationMinutes;
+    }
+    
+    /**
+     * Reservations read from another shard or changed on a booking lane are detached
+     * before they are mapped.
+     */
+    private static SimpleReservation initializeAssociations(SimpleReservation reservation) {
+        Hibernate.initialize(reservation.getRestaurant());
+        Hibernate.initialize(reservation.getTables());
+        return reservation;
+    }
+    
+    private static boolean isActive(SimpleReservation.ReservationStatus status) {
+        return status == SimpleReservation.ReservationStatus.PENDING
+                || status == SimpleReservation.ReservationStatus.CONFIRMED;
     }
 }
\ No newline at end of file
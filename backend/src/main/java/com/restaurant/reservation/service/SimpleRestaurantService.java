@@ -1,27 +1,53 @@
 package com.restaurant.reservation.service;
 
 import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.dto.SparseRestaurantDTO;
+import com.restaurant.reservation.model.SimpleReservation;
 import com.restaurant.reservation.model.SimpleRestaurant;
 import com.restaurant.reservation.repository.SimpleRestaurantRepository;
+import com.restaurant.reservation.repository.VersionStamp;
+import com.restaurant.reservation.service.facet.RestaurantFacetIndex;
+import com.restaurant.reservation.service.ranking.RankingEvents;
+import com.restaurant.reservation.sharding.OnShard;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.Tuple;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
+@Timed(value = "restaurant.service", description = "Restaurant service method latency")
 public class SimpleRestaurantService {
     
+    private static final int MIN_SLOT_INTERVAL_MINUTES = 5;
+    private static final int MAX_SLOT_INTERVAL_MINUTES = 240;
+    
     private final SimpleRestaurantRepository restaurantRepository;
+    private final ShardedQueries shardedQueries;
+    private final RankingEvents rankingEvents;
+    private final RestaurantFacetIndex facetIndex;
     
+    @OnShard("#dto.name")
     public SimpleRestaurant createRestaurant(SimpleRestaurantDTO dto) {
-        log.info("Creating restaurant: {}", dto.getName());
+        log.debug("Creating restaurant: {}", dto.getName());
         
         SimpleRestaurant restaurant = SimpleRestaurant.builder()
                 .name(dto.getName())
@@ -36,6 +62,9 @@ public class SimpleRestaurantService {
                 .openingTime(dto.getOpeningTime())
                 .closingTime(dto.getClosingTime())
                 .capacity(dto.getCapacity())
+                .defaultReservationDurationMinutes(dto.getDefaultReservationDurationMinutes() != null
+                        ? dto.getDefaultReservationDurationMinutes() : SimpleReservation.DEFAULT_DURATION_MINUTES)
+                .slotIntervalMinutes(resolveSlotInterval(dto.getSlotIntervalMinutes()))
                 .active(true)
                 .imageUrl(dto.getImageUrl())
                 .gallery(dto.getGallery())
@@ -43,38 +72,97 @@ public class SimpleRestaurantService {
                 .rating(dto.getRating() != null ? dto.getRating() : 0.0)
                 .build();
         
-        return restaurantRepository.save(restaurant);
+        return changed(restaurantRepository.save(restaurant));
     }
     
+    @OnShard("#id")
     @Transactional(readOnly = true)
     public SimpleRestaurant getRestaurantById(Long id) {
-        log.info("Fetching restaurant with id: {}", id);
+        log.debug("Fetching restaurant with id: {}", id);
         return restaurantRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Restaurant not found with id: " + id));
     }
     
+    @OnShard("#id")
+    @Transactional(readOnly = true)
+    public Optional<VersionStamp> findVersionStamp(Long id) {
+        return restaurantRepository.findVersionStampById(id);
+    }
+    
     @Transactional(readOnly = true)
     public List<SimpleRestaurant> getAllActiveRestaurants() {
-        log.info("Fetching all active restaurants");
-        return restaurantRepository.findByActiveTrue();
+        log.debug("Fetching all active restaurants");
+        return shardedQueries.gather(restaurantRepository::findByActiveTrue, SimpleRestaurantService::initializeGallery);
     }
     
     @Transactional(readOnly = true)
     public Page<SimpleRestaurant> getAllActiveRestaurants(Pageable pageable) {
-        log.info("Fetching active restaurants with pagination");
-        return restaurantRepository.findByActiveTrue(pageable);
+        log.debug("Fetching active restaurants with pagination");
+        return shardedQueries.gatherPage(restaurantRepository::findByActiveTrue, pageable,
+                ShardedQueries.beanProperty(), SimpleRestaurantService::initializeGallery);
     }
     
     @Transactional(readOnly = true)
     public Page<SimpleRestaurant> searchRestaurants(String query, Pageable pageable) {
-        log.info("Searching restaurants with query: {}", query);
-        return restaurantRepository.searchActiveRestaurants(query, pageable);
+        log.debug("Searching restaurants with query: {}", query);
+        return shardedQueries.gatherPage(page -> restaurantRepository.searchActiveRestaurants(query, page), pageable,
+                ShardedQueries.beanProperty(), SimpleRestaurantService::initializeGallery);
     }
     
+    /**
+     * Active restaurants, optionally matching {@code query}, reduced to the selected fields.
+     * Only the selected columns are read; the gallery is read in one query for the whole
+     * page, and only when selected.
+     */
+    @Transactional(readOnly = true)
+    public Page<SparseRestaurantDTO> getActiveRestaurantFields(String query, RestaurantFieldSelection selection,
+                                                               Pageable pageable) {
+        List<String> columns = new ArrayList<>(selection.columns());
+        columns.add("version");
+        if (shardedQueries.isSharded()) {
+            // Shard pages are merged in memory, which needs the sort columns
+            pageable.getSort().stream().map(Sort.Order::getProperty)
+                    .filter(property -> !columns.contains(property))
+                    .forEach(columns::add);
+        }
+        Page<Tuple> rows = shardedQueries.gatherPage(page -> restaurantRepository.findActiveColumns(columns, query, page),
+                pageable, (row, property) -> row.get(property));
+        
+        Map<Long, List<String>> galleries = new HashMap<>();
+        if (selection.includesGallery() && rows.hasContent()) {
+            List<Long> ids = rows.map(row -> row.get("id", Long.class)).getContent();
+            for (SimpleRestaurantRepository.GalleryRow image : shardedQueries.gather(() -> restaurantRepository.findGalleries(ids))) {
+                galleries.computeIfAbsent(image.getRestaurantId(), id -> new ArrayList<>()).add(image.getImageUrl());
+            }
+        }
+        
+        return rows.map(row -> {
+            Long id = row.get("id", Long.class);
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (String property : selection.properties()) {
+                properties.put(property, property.equals(RestaurantFieldSelection.GALLERY)
+                        ? galleries.getOrDefault(id, new ArrayList<>())
+                        : row.get(property));
+            }
+            return new SparseRestaurantDTO(id, row.get("version", Long.class), properties);
+        });
+    }
+    
+    /**
+     * Updates the restaurant in place. With sharding, a new name must belong to the shard
+     * the restaurant is on, as names are only checked for uniqueness within a shard.
+     */
+    @OnShard("#id")
     public SimpleRestaurant updateRestaurant(Long id, SimpleRestaurantDTO dto) {
-        log.info("Updating restaurant with id: {}", id);
+        log.debug("Updating restaurant with id: {}", id);
         
         SimpleRestaurant restaurant = getRestaurantById(id);
+        String shard = shardedQueries.shardOf(id);
+        if (shard != null && !restaurant.getName().equals(dto.getName())
+                && !shard.equals(shardedQueries.shardOf(dto.getName()))) {
+            throw new IllegalArgumentException("Restaurant " + id + " cannot be renamed to '" + dto.getName()
+                    + "', the name belongs to another shard");
+        }
         
         restaurant.setName(dto.getName());
         restaurant.setAddress(dto.getAddress());
@@ -88,6 +176,12 @@ public class SimpleRestaurantService {
         restaurant.setOpeningTime(dto.getOpeningTime());
         restaurant.setClosingTime(dto.getClosingTime());
         restaurant.setCapacity(dto.getCapacity());
+        if (dto.getDefaultReservationDurationMinutes() != null) {
+            restaurant.setDefaultReservationDurationMinutes(dto.getDefaultReservationDurationMinutes());
+        }
+        if (dto.getSlotIntervalMinutes() != null) {
+            restaurant.setSlotIntervalMinutes(resolveSlotInterval(dto.getSlotIntervalMinutes()));
+        }
         restaurant.setImageUrl(dto.getImageUrl());
         restaurant.setGallery(dto.getGallery());
         restaurant.setPriceRange(dto.getPriceRange());
@@ -95,37 +189,112 @@ public class SimpleRestaurantService {
             restaurant.setRating(dto.getRating());
         }
         
-        return restaurantRepository.save(restaurant);
+        return changed(restaurantRepository.save(restaurant));
     }
     
+    @OnShard("#id")
     public void deactivateRestaurant(Long id) {
-        log.info("Deactivating restaurant with id: {}", id);
+        log.debug("Deactivating restaurant with id: {}", id);
         SimpleRestaurant restaurant = getRestaurantById(id);
         restaurant.setActive(false);
-        restaurantRepository.save(restaurant);
+        changed(restaurantRepository.save(restaurant));
     }
     
+    @OnShard("#id")
     public void activateRestaurant(Long id) {
-        log.info("Activating restaurant with id: {}", id);
+        log.debug("Activating restaurant with id: {}", id);
         SimpleRestaurant restaurant = getRestaurantById(id);
         restaurant.setActive(true);
-        restaurantRepository.save(restaurant);
+        changed(restaurantRepository.save(restaurant));
+    }
+    
+    /**
+     * The restaurants with the given ids, in the same order; unknown ids are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<SimpleRestaurant> getRestaurantsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, SimpleRestaurant> byId = new HashMap<>();
+        for (SimpleRestaurant restaurant : shardedQueries.gather(() -> restaurantRepository.findAllById(ids),
+                SimpleRestaurantService::initializeGallery)) {
+            byId.put(restaurant.getId(), restaurant);
+        }
+        List<SimpleRestaurant> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            SimpleRestaurant restaurant = byId.get(id);
+            if (restaurant != null) {
+                ordered.add(restaurant);
+            }
+        }
+        return ordered;
+    }
+    
+    @OnShard("#id")
+    @Transactional(readOnly = true)
+    public List<LocalDate> getBlackoutDates(Long id) {
+        return getRestaurantById(id).getBlackoutDates().stream().sorted().toList();
+    }
+    
+    /**
+     * Replaces the days on which the restaurant takes no reservations. Existing
+     * reservations on those days are kept.
+     */
+    @OnShard("#id")
+    public List<LocalDate> updateBlackoutDates(Long id, Collection<LocalDate> dates) {
+        log.debug("Updating blackout dates of restaurant {}", id);
+        SimpleRestaurant restaurant = getRestaurantById(id);
+        restaurant.getBlackoutDates().clear();
+        restaurant.getBlackoutDates().addAll(dates);
+        changed(restaurantRepository.save(restaurant));
+        return restaurant.getBlackoutDates().stream().sorted().toList();
     }
     
     @Transactional(readOnly = true)
     public List<SimpleRestaurant> getRestaurantsByCity(String city) {
-        log.info("Fetching restaurants by city: {}", city);
-        return restaurantRepository.findByCityIgnoreCaseAndActiveTrue(city);
+        log.debug("Fetching restaurants by city: {}", city);
+        return shardedQueries.gather(() -> restaurantRepository.findByCityIgnoreCaseAndActiveTrue(city),
+                SimpleRestaurantService::initializeGallery);
     }
     
     @Transactional(readOnly = true)
     public List<SimpleRestaurant> getRestaurantsByCuisine(String cuisine) {
-        log.info("Fetching restaurants by cuisine: {}", cuisine);
-        return restaurantRepository.findByCuisineIgnoreCaseAndActiveTrue(cuisine);
+        log.debug("Fetching restaurants by cuisine: {}", cuisine);
+        return shardedQueries.gather(() -> restaurantRepository.findByCuisineIgnoreCaseAndActiveTrue(cuisine),
+                SimpleRestaurantService::initializeGallery);
+    }
+    
+    private static int resolveSlotInterval(Integer minutes) {
+        if (minutes == null) {
+            return SimpleRestaurant.DEFAULT_SLOT_INTERVAL_MINUTES;
+        }
+        if (minutes < MIN_SLOT_INTERVAL_MINUTES || minutes > MAX_SLOT_INTERVAL_MINUTES) {
+            throw new IllegalArgumentException("Slot interval must be between " + MIN_SLOT_INTERVAL_MINUTES
+                    + " and " + MAX_SLOT_INTERVAL_MINUTES + " minutes");
+        }
+        return minutes;
+    }
+    
+    /**
+     * Passes a saved restaurant on to the in-memory rankings and facet index.
+     */
+    private SimpleRestaurant changed(SimpleRestaurant restaurant) {
+        rankingEvents.restaurantChanged(restaurant);
+        facetIndex.update(restaurant);
+        return restaurant;
+    }
+    
+    /**
+     * Restaurants read from another shard are detached before their gallery is mapped.
+     */
+    private static void initializeGallery(SimpleRestaurant restaurant) {
+        Hibernate.initialize(restaurant.getGallery());
     }
     
     /**
-     * Convert entity to DTO
+     * Convert entity to DTO. This is the only restaurant mapping; cached JSON in
+     * {@link RestaurantJsonCache} is produced from it as well.
      */
     public SimpleRestaurantDTO toDto(SimpleRestaurant restaurant) {
         return SimpleRestaurantDTO.builder()
@@ -142,6 +311,8 @@ public class SimpleRestaurantService {
                 .openingTime(restaurant.getOpeningTime())
                 .closingTime(restaurant.getClosingTime())
                 .capacity(restaurant.getCapacity())
+                .defaultReservationDurationMinutes(restaurant.getDefaultReservationDurationMinutes())
+                .slotIntervalMinutes(restaurant.getEffectiveSlotIntervalMinutes())
                 .active(restaurant.getActive())
                 .imageUrl(restaurant.getImageUrl())
                 .gallery(restaurant.getGallery())
@@ -0,0 +1,42 @@
+package com.restaurant.reservation.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps in-memory booking state in step with the database transaction that changed it.
+ */
+public final class TransactionHooks {
+    
+    private TransactionHooks() {
+    }
+    
+    /**
+     * Runs {@code onCommit} or {@code onRollback} once the current transaction completes,
+     * or {@code onCommit} immediately when no transaction is active.
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+    
+    public static void afterCommit(Runnable onCommit) {
+        afterCompletion(onCommit, () -> { });
+    }
+    
+    public static void afterRollback(Runnable onRollback) {
+        afterCompletion(() -> { }, onRollback);
+    }
+}
@@ -0,0 +1,294 @@
+package com.restaurant.reservation.service.booking;
+
+import com.restaurant.reservation.exception.BookingUnavailableException;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Optional single-writer execution of booking changes.
+ *
+ * <p>With {@code app.booking.single-writer.enabled=true}, every restaurant is assigned to
+ * one of {@code lanes} threads, one per core by default, and all booking changes for it run
+ * on that thread in arrival order. A restaurant's occupancy and seating state is therefore
+ * only ever changed by one thread, so admission never waits on another booking, and their
+ * monitors stay uncontended.
+ *
+ * <p>A lane drains up to {@code batch-size} queued changes and commits them in a single
+ * transaction. If one of them fails, the transaction is rolled back, the changes before it
+ * are committed again as a group, the failed one reports its error, and the lane continues
+ * with the rest. Because nothing else changes the lane's restaurants in between, re-running
+ * a prefix gives the same outcome. If the commit itself fails, each change is retried in a
+ * transaction of its own. Anything else that goes wrong with a batch fails its remaining
+ * changes, and the lane carries on with the next one.
+ *
+ * <p>Callers wait at most {@code enqueue-timeout} for room in the mailbox and
+ * {@code result-timeout} for the result, and get a {@link BookingUnavailableException}
+ * otherwise. A change that times out before its lane picked it up is withdrawn; one that
+ * is already running may still commit.
+ *
+ * <p>When disabled, changes run on the calling thread in a regular transaction.
+ */
+@Component
+@Slf4j
+public class BookingLanes implements MeterBinder, DisposableBean {
+    
+    private final TransactionTemplate transactionTemplate;
+    private final ShardedQueries shardedQueries;
+    private final int batchSize;
+    private final Duration enqueueTimeout;
+    private final Duration resultTimeout;
+    private final Lane[] lanes;
+    private DistributionSummary batchSizes;
+    
+    public BookingLanes(PlatformTransactionManager transactionManager,
+                        ShardedQueries shardedQueries,
+                        @Value("${app.booking.single-writer.enabled:false}") boolean enabled,
+                        @Value("${app.booking.single-writer.lanes:0}") int lanes,
+                        @Value("${app.booking.single-writer.batch-size:32}") int batchSize,
+                        @Value("${app.booking.single-writer.mailbox-capacity:10000}") int mailboxCapacity,
+                        @Value("${app.booking.single-writer.enqueue-timeout:PT1S}") Duration enqueueTimeout,
+                        @Value("${app.booking.single-writer.result-timeout:PT10S}") Duration resultTimeout) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardedQueries = shardedQueries;
+        this.batchSize = Math.max(1, batchSize);
+        this.enqueueTimeout = enqueueTimeout;
+        this.resultTimeout = resultTimeout;
+        if (!enabled) {
+            this.lanes = null;
+            return;
+        }
+        int count = lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            this.lanes[i] = new Lane(i, mailboxCapacity);
+        }
+        log.info("Running booking changes on {} single-writer lane(s)", count);
+    }
+    
+    public boolean isEnabled() {
+        return lanes != null;
+    }
+    
+    /**
+     * Runs a booking change for the restaurant and returns its result once committed.
+     * Calls made from the restaurant's own lane run directly in the lane's transaction.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Long restaurantId, Supplier<T> change) {
+        if (lanes == null) {
+            return transactionTemplate.execute(status -> change.get());
+        }
+        Lane lane = lanes[laneOf(restaurantId)];
+        if (Thread.currentThread() == lane.thread) {
+            return change.get();
+        }
+        
+        Command command = new Command(restaurantId, change);
+        try {
+            if (!lane.mailbox.offer(command, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new BookingUnavailableException("Bookings for this restaurant are backed up, please retry");
+            }
+            return (T) command.result.get(resultTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            command.claim();
+            throw new IllegalStateException("Interrupted while waiting for booking change", ex);
+        } catch (TimeoutException ex) {
+            if (command.claim()) {
+                throw new BookingUnavailableException("Bookings for this restaurant are backed up, please retry");
+            }
+            log.warn("Booking change for restaurant {} still running after {}", restaurantId, resultTimeout);
+            throw new BookingUnavailableException(
+                    "The booking change is taking too long; check the reservation before retrying");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(ex.getCause());
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (lanes == null) {
+            return;
+        }
+        batchSizes = DistributionSummary.builder("booking.lanes.batch.size")
+                .description("Booking changes committed per lane transaction")
+                .register(registry);
+        Gauge.builder("booking.lanes.queued", this, BookingLanes::queued)
+                .description("Booking changes waiting in lane mailboxes")
+                .register(registry);
+    }
+    
+    @Override
+    public void destroy() {
+        if (lanes != null) {
+            for (Lane lane : lanes) {
+                lane.thread.interrupt();
+            }
+        }
+    }
+    
+    private int laneOf(Long restaurantId) {
+        // Mixed first: ids are not uniformly spread modulo small numbers, e.g. when sharded
+        return Math.floorMod(Long.hashCode(restaurantId * 0x9E3779B97F4A7C15L), lanes.length);
+    }
+    
+    private double queued() {
+        int queued = 0;
+        for (Lane lane : lanes) {
+            queued += lane.mailbox.size();
+        }
+        return queued;
+    }
+    
+    /**
+     * Commits a drained batch, one transaction per shard.
+     */
+    private void commit(List<Command> batch) {
+        if (batchSizes != null) {
+            batchSizes.record(batch.size());
+        }
+        Map<String, List<Command>> byShard = new LinkedHashMap<>();
+        for (Command command : batch) {
+            byShard.computeIfAbsent(shardedQueries.shardOf(command.restaurantId), shard -> new ArrayList<>()).add(command);
+        }
+        for (List<Command> commands : byShard.values()) {
+            shardedQueries.onShardOf(commands.get(0).restaurantId, () -> {
+                commitGroup(commands);
+                return null;
+            });
+        }
+    }
+    
+    private void commitGroup(List<Command> commands) {
+        int from = 0;
+        while (from < commands.size()) {
+            List<Command> group = commands.subList(from, commands.size());
+            Outcome outcome;
+            try {
+                outcome = transactionTemplate.execute(status -> {
+                    List<Object> values = new ArrayList<>(group.size());
+                    for (Command command : group) {
+                        try {
+                            values.add(command.change.get());
+                        } catch (RuntimeException ex) {
+                            status.setRollbackOnly();
+                            return new Outcome(values, ex);
+                        }
+                    }
+                    return new Outcome(values, null);
+                });
+            } catch (RuntimeException ex) {
+                log.warn("Group commit of {} booking change(s) failed, retrying one by one", group.size(), ex);
+                group.forEach(this::commitAlone);
+                return;
+            }
+            
+            if (outcome.failure == null) {
+                for (int i = 0; i < group.size(); i++) {
+                    group.get(i).result.complete(outcome.values.get(i));
+                }
+                return;
+            }
+            int failed = outcome.values.size();
+            if (failed > 0) {
+                commitGroup(group.subList(0, failed));
+            }
+            group.get(failed).result.completeExceptionally(outcome.failure);
+            from += failed + 1;
+        }
+    }
+    
+    private void commitAlone(Command command) {
+        try {
+            command.result.complete(transactionTemplate.execute(status -> command.change.get()));
+        } catch (RuntimeException ex) {
+            command.result.completeExceptionally(ex);
+        }
+    }
+    
+    private static final class Command {
+        private final Long restaurantId;
+        private final Supplier<?> change;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        
+        private Command(Long restaurantId, Supplier<?> change) {
+            this.restaurantId = restaurantId;
+            this.change = change;
+        }
+        
+        /**
+         * Claims the change, either for its lane to run or for its caller to withdraw. Only
+         * the first claim succeeds.
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+    
+    private record Outcome(List<Object> values, RuntimeException failure) {
+    }
+    
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Command> mailbox;
+        private final Thread thread;
+        
+        private Lane(int index, int capacity) {
+            this.mailbox = new LinkedBlockingQueue<>(capacity);
+            this.thread = new Thread(this, "booking-lane-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+        
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(batchSize);
+            while (true) {
+                try {
+                    batch.add(mailbox.take());
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                mailbox.drainTo(batch, batchSize - 1);
+                batch.removeIf(command -> !command.claim());
+                try {
+                    if (!batch.isEmpty()) {
+                        commit(batch);
+                    }
+                } catch (Throwable ex) {
+                    // Completing an already completed result is a no-op, so only the pending ones fail
+                    log.error("Booking lane {} failed to commit {} change(s)", thread.getName(), batch.size(), ex);
+                    batch.forEach(command -> command.result.completeExceptionally(ex));
+                }
+                batch.clear();
+            }
+        }
+    }
+}
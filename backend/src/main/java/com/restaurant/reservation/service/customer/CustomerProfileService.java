@@ -0,0 +1,289 @@
+package com.restaurant.reservation.service.customer;
+
+import com.restaurant.reservation.dto.CustomerProfileDTO;
+import com.restaurant.reservation.exception.ResourceNotFoundException;
+import com.restaurant.reservation.model.CustomerProfile;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.CustomerProfileRepository;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps a profile of reservation counts per customer, keyed by normalized email, and
+ * lists customers from the profiles alone.
+ *
+ * <p>The reservation service reports every created or changed reservation, and the counts
+ * it contributes are moved from its old state to its new one in the same transaction, so
+ * profiles commit and roll back with the reservations. A missing profile is inserted in the
+ * same transaction with an insert that skips an existing row, so concurrent first bookings
+ * of one customer agree on a single row without holding a second connection. At startup, a shard without profiles builds them once from its
+ * reservations.
+ *
+ * <p>With sharding, each shard counts its own reservations; a customer who booked on
+ * several shards is merged when read, and listings merge all profiles in memory.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class CustomerProfileService implements SmartInitializingSingleton {
+    
+    private static final Set<String> SORTABLE = Set.of(
+            "email", "name", "reservations", "visits", "covers", "cancellations", "noShows", "lastVisit");
+    
+    private final CustomerProfileRepository profileRepository;
+    private final SimpleReservationRepository reservationRepository;
+    private final ShardedQueries shardedQueries;
+    private final TransactionTemplate writable;
+    private final boolean onConflict;
+    
+    public CustomerProfileService(CustomerProfileRepository profileRepository,
+                                  SimpleReservationRepository reservationRepository,
+                                  ShardedQueries shardedQueries,
+                                  PlatformTransactionManager transactionManager,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.profileRepository = profileRepository;
+        this.reservationRepository = reservationRepository;
+        this.shardedQueries = shardedQueries;
+        this.writable = new TransactionTemplate(transactionManager);
+        this.onConflict = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+    
+    /**
+     * The fields of a reservation that count towards its customer's profile, taken before
+     * the reservation is changed.
+     */
+    public record Contribution(String email, String name, String phone,
+                               SimpleReservation.ReservationStatus status, int partySize, LocalDateTime start) {
+        
+        public static Contribution of(SimpleReservation reservation) {
+            return new Contribution(normalizeEmail(reservation.getCustomerEmail()), reservation.getCustomerName(),
+                    reservation.getCustomerPhone(), reservation.getStatus(), reservation.getPartySize(),
+                    reservation.getReservationDateTime());
+        }
+        
+        /**
+         * Reservations, visits, covers, cancellations and no-shows this reservation adds.
+         */
+        long[] counts() {
+            return new long[]{1,
+                    status == SimpleReservation.ReservationStatus.COMPLETED ? 1 : 0,
+                    status == SimpleReservation.ReservationStatus.COMPLETED ? partySize : 0,
+                    status == SimpleReservation.ReservationStatus.CANCELLED ? 1 : 0,
+                    status == SimpleReservation.ReservationStatus.NO_SHOW ? 1 : 0};
+        }
+        
+        boolean isVisit() {
+            return status == SimpleReservation.ReservationStatus.COMPLETED;
+        }
+    }
+    
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public Page<CustomerProfileDTO> getProfiles(Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Customers can only be sorted by "
+                        + String.join(", ", SORTABLE.stream().sorted().toList()));
+            }
+        }
+        // Email breaks ties, so pages do not overlap
+        Sort sort = pageable.getSort().getOrderFor("email") != null
+                ? pageable.getSort() : pageable.getSort().and(Sort.by("email"));
+        if (!shardedQueries.isSharded()) {
+            Pageable sorted = pageable.isPaged()
+                    ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                    : Pageable.unpaged(sort);
+            return profileRepository.findByReservationsGreaterThan(0, sorted).map(CustomerProfileService::toDto);
+        }
+        
+        List<CustomerProfileDTO> merged = merge(shardedQueries.gather(profileRepository::findAll));
+        merged.removeIf(profile -> profile.getReservations() == 0);
+        merged.sort(ShardedQueries.comparator(sort, ShardedQueries.beanProperty()));
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, merged.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, merged.size());
+    }
+    
+    public CustomerProfileDTO getProfile(String email) {
+        String normalized = normalizeEmail(email);
+        List<CustomerProfileDTO> profiles = merge(shardedQueries.gather(
+                () -> profileRepository.findByEmail(normalized).map(List::of).orElse(List.of())));
+        if (profiles.isEmpty() || profiles.get(0).getReservations() == 0) {
+            throw new ResourceNotFoundException("Customer not found with email: " + email);
+        }
+        return profiles.get(0);
+    }
+    
+    /**
+     * Counts a new reservation. Runs in the transaction that saves it.
+     */
+    @Transactional
+    public void reservationCreated(SimpleReservation reservation) {
+        Contribution created = Contribution.of(reservation);
+        if (!createIfAbsent(created)) {
+            profileRepository.updateContact(created.email, created.name, created.phone, LocalDateTime.now());
+        }
+        addCounts(created.email, created.counts(), 1);
+        if (created.isVisit()) {
+            profileRepository.recordVisit(created.email, created.start);
+        }
+    }
+    
+    /**
+     * Moves the counts of a changed reservation from its state before the change to its
+     * current state. Runs in the transaction that saves it, after its fields are set.
+     */
+    @Transactional
+    public void reservationChanged(Contribution before, SimpleReservation reservation) {
+        Contribution after = Contribution.of(reservation);
+        boolean moved = !after.email.equals(before.email);
+        if (moved) {
+            addCounts(before.email, before.counts(), -1);
+            createIfAbsent(after);
+            addCounts(after.email, after.counts(), 1);
+        } else {
+            long[] delta = after.counts();
+            long[] previous = before.counts();
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] -= previous[i];
+            }
+            addCounts(after.email, delta, 1);
+        }
+        if (moved || !Objects.equals(after.name, before.name) || !Objects.equals(after.phone, before.phone)) {
+            profileRepository.updateContact(after.email, after.name, after.phone, LocalDateTime.now());
+        }
+        
+        boolean sameVisit = before.isVisit() && after.isVisit() && !moved && after.start.equals(before.start);
+        if (before.isVisit() && !sameVisit) {
+            // The last visit cannot be taken back from the counts; find the one before it
+            profileRepository.resetLastVisit(before.email, reservationRepository.findLastVisit(before.email));
+        }
+        if (after.isVisit() && !sameVisit) {
+            profileRepository.recordVisit(after.email, after.start);
+        }
+    }
+    
+    /**
+     * Builds the profiles of shards that have none from their reservations, so existing
+     * reservations are counted once the profiles are introduced.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void afterSingletonsInstantiated() {
+        shardedQueries.onEachShard(() -> writable.executeWithoutResult(status -> {
+            if (profileRepository.findTopByOrderByIdAsc().isPresent()) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            List<CustomerProfile> profiles = new ArrayList<>();
+            for (SimpleReservationRepository.CustomerTotalsRow row : reservationRepository.countByCustomer()) {
+                profiles.add(CustomerProfile.builder()
+                        .email(row.getEmail())
+                        .name(row.getName())
+                        .phone(row.getPhone())
+                        .reservations(row.getReservations().intValue())
+                        .visits(row.getVisits().intValue())
+                        .covers(row.getCovers())
+                        .cancellations(row.getCancellations().intValue())
+                        .noShows(row.getNoShows().intValue())
+                        .lastVisit(row.getLastVisit())
+                        .build());
+            }
+            if (!profiles.isEmpty()) {
+                profileRepository.saveAll(profiles);
+                log.info("Built {} customer profile(s) from existing reservations in {} ms",
+                        profiles.size(), System.currentTimeMillis() - started);
+            }
+        }));
+    }
+    
+    /**
+     * Inserts an empty profile unless one exists and returns whether it did.
+     */
+    private boolean createIfAbsent(Contribution contribution) {
+        LocalDateTime now = LocalDateTime.now();
+        int inserted = onConflict
+                ? profileRepository.insertIfAbsent(contribution.email, contribution.name, contribution.phone, now)
+                : profileRepository.mergeIfAbsent(contribution.email, contribution.name, contribution.phone, now);
+        return inserted > 0;
+    }
+    
+    private void addCounts(String email, long[] counts, int sign) {
+        boolean changed = false;
+        for (long count : counts) {
+            changed |= count != 0;
+        }
+        if (changed) {
+            profileRepository.addCounts(email, sign * (int) counts[0], sign * (int) counts[1], sign * counts[2],
+                    sign * (int) counts[3], sign * (int) counts[4], LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Sums the profiles of the same customer from different shards. The name and phone
+     * are taken from the most recently updated one.
+     */
+    private static List<CustomerProfileDTO> merge(List<CustomerProfile> profiles) {
+        Map<String, CustomerProfile> latest = new LinkedHashMap<>();
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        Map<String, LocalDateTime> lastVisits = new LinkedHashMap<>();
+        for (CustomerProfile profile : profiles) {
+            latest.merge(profile.getEmail(), profile,
+                    (a, b) -> a.getUpdatedAt().isAfter(b.getUpdatedAt()) ? a : b);
+            long[] total = totals.computeIfAbsent(profile.getEmail(), email -> new long[6]);
+            total[0] += profile.getReservations();
+            total[1] += profile.getVisits();
+            total[2] += profile.getCovers();
+            total[3] += profile.getCancellations();
+            total[4] += profile.getNoShows();
+            total[5] += profile.getVersion();
+            if (profile.getLastVisit() != null) {
+                lastVisits.merge(profile.getEmail(), profile.getLastVisit(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+        List<CustomerProfileDTO> merged = new ArrayList<>(latest.size());
+        latest.forEach((email, profile) -> {
+            long[] total = totals.get(email);
+            merged.add(new CustomerProfileDTO(email, profile.getName(), profile.getPhone(),
+                    (int) total[0], (int) total[1], total[2], (int) total[3], (int) total[4],
+                    lastVisits.get(email), total[5]));
+        });
+        return merged;
+    }
+    
+    private static CustomerProfileDTO toDto(CustomerProfile profile) {
+        return new CustomerProfileDTO(profile.getEmail(), profile.getName(), profile.getPhone(),
+                profile.getReservations(), profile.getVisits(), profile.getCovers(),
+                profile.getCancellations(), profile.getNoShows(), profile.getLastVisit(), profile.getVersion());
+    }
+}
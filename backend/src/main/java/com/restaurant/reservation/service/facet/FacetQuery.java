@@ -0,0 +1,12 @@
+package com.restaurant.reservation.service.facet;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selected values per facet, any of which may match, and optionally a time of day the
+ * restaurant has to be open at. Facets without values do not filter.
+ */
+public record FacetQuery(Map<RestaurantFacet, List<String>> selected, LocalTime openAt) {
+}
@@ -0,0 +1,11 @@
+package com.restaurant.reservation.service.facet;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The requested page of matching restaurant ids, the number of matches, and per facet
+ * parameter the matching restaurants per value, most frequent first.
+ */
+public record FacetResult(List<Long> ids, long total, Map<String, Map<String, Integer>> facets) {
+}
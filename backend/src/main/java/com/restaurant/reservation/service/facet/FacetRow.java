@@ -0,0 +1,87 @@
+package com.restaurant.reservation.service.facet;
+
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The indexed properties of one restaurant, by ordinal.
+ */
+final class FacetRow {
+    
+    private final Long id;
+    private final Long version;
+    private final int ordinal;
+    private final boolean active;
+    private final double rating;
+    private final Map<RestaurantFacet, String> labels = new EnumMap<>(RestaurantFacet.class);
+    private final BitSet open = new BitSet(FacetSnapshot.SLOTS);
+    
+    FacetRow(Long id, Long version, int ordinal, boolean active, String city, String cuisine, String priceRange,
+             Double rating, LocalTime openingTime, LocalTime closingTime) {
+        this.id = id;
+        this.version = version;
+        this.ordinal = ordinal;
+        this.active = active;
+        this.rating = rating != null ? rating : 0.0;
+        labels.put(RestaurantFacet.CITY, city);
+        labels.put(RestaurantFacet.CUISINE, cuisine);
+        labels.put(RestaurantFacet.PRICE_RANGE, priceRange);
+        labels.put(RestaurantFacet.RATING, Integer.toString(RestaurantFacet.ratingBucket(this.rating)));
+        if (openingTime != null && closingTime != null) {
+            for (int slot = 0; slot < FacetSnapshot.SLOTS; slot++) {
+                if (opensAt(openingTime, closingTime, LocalTime.ofSecondOfDay(slot * FacetSnapshot.SLOT_MINUTES * 60L))) {
+                    open.set(slot);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether the restaurant is open at {@code time}. A closing time before the opening time
+     * is on the next day; equal times mean open around the clock.
+     */
+    static boolean opensAt(LocalTime openingTime, LocalTime closingTime, LocalTime time) {
+        if (openingTime.equals(closingTime)) {
+            return true;
+        }
+        if (openingTime.isBefore(closingTime)) {
+            return !time.isBefore(openingTime) && time.isBefore(closingTime);
+        }
+        return !time.isBefore(openingTime) || time.isBefore(closingTime);
+    }
+    
+    Long id() {
+        return id;
+    }
+    
+    Long version() {
+        return version;
+    }
+    
+    int ordinal() {
+        return ordinal;
+    }
+    
+    double rating() {
+        return rating;
+    }
+    
+    boolean listed() {
+        return active;
+    }
+    
+    boolean isOpen(int slot) {
+        return open.get(slot);
+    }
+    
+    String key(RestaurantFacet facet) {
+        return facet.key(labels.get(facet));
+    }
+    
+    String label(RestaurantFacet facet) {
+        String label = labels.get(facet);
+        return label != null ? label.trim() : null;
+    }
+}
@@ -0,0 +1,247 @@
+package com.restaurant.reservation.service.facet;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable version of the facet index. Restaurants are numbered by dense ordinals,
+ * and every facet value, as well as every quarter hour of the day, has a bitmap of the
+ * listed restaurants it applies to. A change produces a new snapshot that shares all
+ * bitmaps it does not touch, so searches never see a half-applied change.
+ */
+final class FacetSnapshot {
+    
+    static final int SLOT_MINUTES = 15;
+    static final int SLOTS = 24 * 60 / SLOT_MINUTES;
+    
+    private final Map<RestaurantFacet, Map<String, Value>> values;
+    private final RoaringBitmap listed;
+    private final RoaringBitmap[] open;
+    private final long[] ids;
+    private final double[] ratings;
+    
+    private FacetSnapshot(Map<RestaurantFacet, Map<String, Value>> values, RoaringBitmap listed, RoaringBitmap[] open,
+                          long[] ids, double[] ratings) {
+        this.values = values;
+        this.listed = listed;
+        this.open = open;
+        this.ids = ids;
+        this.ratings = ratings;
+    }
+    
+    static FacetSnapshot build(Collection<FacetRow> rows, long[] ids, double[] ratings) {
+        Map<RestaurantFacet, Map<String, Value>> values = new EnumMap<>(RestaurantFacet.class);
+        for (RestaurantFacet facet : RestaurantFacet.values()) {
+            values.put(facet, new HashMap<>());
+        }
+        RoaringBitmap listed = new RoaringBitmap();
+        RoaringBitmap[] open = new RoaringBitmap[SLOTS];
+        Arrays.setAll(open, slot -> new RoaringBitmap());
+        
+        for (FacetRow row : rows) {
+            if (!row.listed()) {
+                continue;
+            }
+            listed.add(row.ordinal());
+            for (RestaurantFacet facet : RestaurantFacet.values()) {
+                String key = row.key(facet);
+                if (key != null) {
+                    values.get(facet).computeIfAbsent(key, k -> new Value(row.label(facet), new RoaringBitmap()))
+                            .restaurants.add(row.ordinal());
+                }
+            }
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (row.isOpen(slot)) {
+                    open[slot].add(row.ordinal());
+                }
+            }
+        }
+        
+        listed.runOptimize();
+        values.values().forEach(byKey -> byKey.values().forEach(value -> value.restaurants.runOptimize()));
+        Arrays.stream(open).forEach(RoaringBitmap::runOptimize);
+        return new FacetSnapshot(values, listed, open, ids, ratings);
+    }
+    
+    /**
+     * This snapshot with {@code row} replacing {@code previous}, which is null for a
+     * restaurant not indexed before. Only bitmaps whose members change are copied.
+     */
+    FacetSnapshot with(FacetRow previous, FacetRow row, long[] ids, double[] ratings) {
+        int ordinal = row.ordinal();
+        boolean was = previous != null && previous.listed();
+        boolean is = row.listed();
+        
+        Map<RestaurantFacet, Map<String, Value>> nextValues = new EnumMap<>(values);
+        for (RestaurantFacet facet : RestaurantFacet.values()) {
+            String from = was ? previous.key(facet) : null;
+            String to = is ? row.key(facet) : null;
+            if (Objects.equals(from, to)) {
+                continue;
+            }
+            Map<String, Value> byKey = new HashMap<>(values.get(facet));
+            if (from != null) {
+                Value value = byKey.get(from);
+                RoaringBitmap restaurants = value.restaurants.clone();
+                restaurants.remove(ordinal);
+                if (restaurants.isEmpty()) {
+                    byKey.remove(from);
+                } else {
+                    byKey.put(from, new Value(value.label, restaurants));
+                }
+            }
+            if (to != null) {
+                Value value = byKey.get(to);
+                RoaringBitmap restaurants = value != null ? value.restaurants.clone() : new RoaringBitmap();
+                restaurants.add(ordinal);
+                byKey.put(to, new Value(value != null ? value.label : row.label(facet), restaurants));
+            }
+            nextValues.put(facet, byKey);
+        }
+        
+        RoaringBitmap[] nextOpen = open.clone();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            boolean wasOpen = was && previous.isOpen(slot);
+            boolean isOpen = is && row.isOpen(slot);
+            if (wasOpen != isOpen) {
+                nextOpen[slot] = toggled(open[slot], ordinal, isOpen);
+            }
+        }
+        RoaringBitmap nextListed = was != is ? toggled(listed, ordinal, is) : listed;
+        return new FacetSnapshot(nextValues, nextListed, nextOpen, ids, ratings);
+    }
+    
+    FacetResult search(FacetQuery query, Pageable pageable, int maxFacetValues) {
+        RoaringBitmap base = query.openAt() != null ? open[slotOf(query.openAt())] : listed;
+        Map<RestaurantFacet, RoaringBitmap> filters = new EnumMap<>(RestaurantFacet.class);
+        query.selected().forEach((facet, selected) -> {
+            if (selected == null || selected.isEmpty()) {
+                return;
+            }
+            RoaringBitmap any = null;
+            for (String value : selected) {
+                Value indexed = values.get(facet).get(facet.key(value));
+                if (indexed != null) {
+                    any = any == null ? indexed.restaurants : RoaringBitmap.or(any, indexed.restaurants);
+                }
+            }
+            filters.put(facet, any != null ? any : new RoaringBitmap());
+        });
+        
+        RoaringBitmap matches = matching(base, filters, null);
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        for (RestaurantFacet facet : RestaurantFacet.values()) {
+            // Counts for a facet ignore its own selection, so they show what selecting a value would add
+            RoaringBitmap others = filters.containsKey(facet) ? matching(base, filters, facet) : matches;
+            facets.put(facet.parameter(), counts(values.get(facet), others, maxFacetValues));
+        }
+        return new FacetResult(page(matches, pageable), matches.getLongCardinality(), facets);
+    }
+    
+    int listedCount() {
+        return listed.getCardinality();
+    }
+    
+    static int slotOf(LocalTime time) {
+        return time.toSecondOfDay() / (SLOT_MINUTES * 60);
+    }
+    
+    private static RoaringBitmap matching(RoaringBitmap base, Map<RestaurantFacet, RoaringBitmap> filters,
+                                          RestaurantFacet except) {
+        RoaringBitmap matches = base;
+        for (Map.Entry<RestaurantFacet, RoaringBitmap> filter : filters.entrySet()) {
+            if (filter.getKey() != except) {
+                matches = RoaringBitmap.and(matches, filter.getValue());
+            }
+        }
+        return matches;
+    }
+    
+    private static Map<String, Integer> counts(Map<String, Value> byKey, RoaringBitmap restaurants, int limit) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Value value : byKey.values()) {
+            int count = RoaringBitmap.andCardinality(restaurants, value.restaurants);
+            if (count > 0) {
+                counts.add(Map.entry(value.label, count));
+            }
+        }
+        counts.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int i = 0; i < counts.size() && i < limit; i++) {
+            top.put(counts.get(i).getKey(), counts.get(i).getValue());
+        }
+        return top;
+    }
+    
+    /**
+     * Matches ordered by rating, best first. Rating buckets are walked from five stars down
+     * and counted first, so only the buckets that overlap the page are sorted.
+     */
+    private List<Long> page(RoaringBitmap matches, Pageable pageable) {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int size = pageable.isPaged() ? pageable.getPageSize() : matches.getCardinality();
+        List<Long> page = new ArrayList<>(Math.min(size, matches.getCardinality()));
+        Map<String, Value> buckets = values.get(RestaurantFacet.RATING);
+        long skipped = 0;
+        for (int bucket = 5; bucket >= 0 && page.size() < size; bucket--) {
+            Value value = buckets.get(Integer.toString(bucket));
+            if (value == null) {
+                continue;
+            }
+            int inBucket = RoaringBitmap.andCardinality(matches, value.restaurants);
+            if (skipped + inBucket <= offset) {
+                skipped += inBucket;
+                continue;
+            }
+            int[] ordinals = RoaringBitmap.and(matches, value.restaurants).toArray();
+            long[] keys = new long[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                // Higher rating first, then lower ordinal
+                long rank = 1_000_000L - Math.round(ratings[ordinals[i]] * 1000);
+                keys[i] = rank << 32 | ordinals[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length && page.size() < size; i++) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page.add(ids[(int) keys[i]]);
+                }
+            }
+        }
+        return page;
+    }
+    
+    private static RoaringBitmap toggled(RoaringBitmap bitmap, int ordinal, boolean member) {
+        RoaringBitmap copy = bitmap.clone();
+        if (member) {
+            copy.add(ordinal);
+        } else {
+            copy.remove(ordinal);
+        }
+        return copy;
+    }
+    
+    private static final class Value {
+        private final String label;
+        private final RoaringBitmap restaurants;
+        
+        private Value(String label, RoaringBitmap restaurants) {
+            this.label = label;
+            this.restaurants = restaurants;
+        }
+    }
+}
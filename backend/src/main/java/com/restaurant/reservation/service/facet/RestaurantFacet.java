@@ -0,0 +1,44 @@
+package com.restaurant.reservation.service.facet;
+
+import java.util.Locale;
+
+/**
+ * The restaurant properties that {@link RestaurantFacetIndex} can filter and count by,
+ * named after their request parameters.
+ */
+public enum RestaurantFacet {
+    
+    CITY("city"),
+    CUISINE("cuisine"),
+    PRICE_RANGE("priceRange"),
+    
+    /**
+     * Whole stars, 0 to 5; a 4.5 rating is in bucket 4.
+     */
+    RATING("rating");
+    
+    private final String parameter;
+    
+    RestaurantFacet(String parameter) {
+        this.parameter = parameter;
+    }
+    
+    public String parameter() {
+        return parameter;
+    }
+    
+    /**
+     * The index key of a value: city and cuisine match regardless of case.
+     */
+    String key(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return this == CITY || this == CUISINE ? trimmed.toLowerCase(Locale.ROOT) : trimmed;
+    }
+    
+    static int ratingBucket(double rating) {
+        return (int) Math.max(0, Math.min(5, Math.floor(rating)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.restaurant.reservation.service.facet;
+
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.SimpleRestaurantRepository;
+import com.restaurant.reservation.service.TransactionHooks;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Faceted search over active restaurants by city, cuisine, price range, rating and
+ * opening hours, answered from compressed bitmaps without touching the database.
+ *
+ * <p>The index is loaded on first use with one query per shard and then follows restaurant
+ * changes as they commit. Searches run against an immutable {@link FacetSnapshot}; each
+ * change publishes a new one that copies only the bitmaps it affects.
+ */
+@Component
+@Slf4j
+public class RestaurantFacetIndex {
+    
+    private final SimpleRestaurantRepository restaurantRepository;
+    private final ShardedQueries shardedQueries;
+    private final TransactionTemplate readOnly;
+    private final int maxFacetValues;
+    
+    private final Map<Long, FacetRow> rows = new HashMap<>();
+    private long[] ids = new long[0];
+    private double[] ratings = new double[0];
+    private volatile FacetSnapshot snapshot;
+    
+    public RestaurantFacetIndex(SimpleRestaurantRepository restaurantRepository,
+                                ShardedQueries shardedQueries,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.facets.max-values:50}") int maxFacetValues) {
+        this.restaurantRepository = restaurantRepository;
+        this.shardedQueries = shardedQueries;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.maxFacetValues = maxFacetValues;
+    }
+    
+    public FacetResult search(FacetQuery query, Pageable pageable) {
+        FacetSnapshot current = snapshot;
+        if (current == null) {
+            current = load();
+        }
+        return current.search(query, pageable, maxFacetValues);
+    }
+    
+    /**
+     * Re-indexes the restaurant once the surrounding transaction commits.
+     */
+    public void update(SimpleRestaurant restaurant) {
+        TransactionHooks.afterCommit(() -> apply(restaurant.getId(), restaurant.getVersion(),
+                Boolean.TRUE.equals(restaurant.getActive()), restaurant.getCity(), restaurant.getCuisine(),
+                restaurant.getPriceRange(), restaurant.getRating(), restaurant.getOpeningTime(), restaurant.getClosingTime()));
+    }
+    
+    private synchronized FacetSnapshot load() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        List<SimpleRestaurantRepository.FacetColumns> loaded = readOnly.execute(
+                status -> shardedQueries.gather(restaurantRepository::findFacetColumns));
+        for (SimpleRestaurantRepository.FacetColumns row : loaded) {
+            int ordinal = ordinalOf(row.getId(), row.getRating());
+            rows.put(row.getId(), new FacetRow(row.getId(), row.getVersion(), ordinal, true, row.getCity(),
+                    row.getCuisine(), row.getPriceRange(), row.getRating(), row.getOpeningTime(), row.getClosingTime()));
+        }
+        snapshot = FacetSnapshot.build(rows.values(), ids, ratings);
+        log.info("Indexed {} restaurants for faceted search", snapshot.listedCount());
+        return snapshot;
+    }
+    
+    private synchronized void apply(Long id, Long version, boolean active, String city, String cuisine,
+                                    String priceRange, Double rating, LocalTime openingTime,
+                                    LocalTime closingTime) {
+        if (snapshot == null) {
+            // Not loaded yet; loading reads the committed change
+            return;
+        }
+        FacetRow previous = rows.get(id);
+        if (previous != null && previous.version() != null && version != null && version < previous.version()) {
+            return;
+        }
+        int ordinal = previous != null ? previous.ordinal() : ordinalOf(id, rating);
+        FacetRow row = new FacetRow(id, version, ordinal, active, city, cuisine, priceRange, rating,
+                openingTime, closingTime);
+        ratings[ordinal] = row.rating();
+        rows.put(id, row);
+        snapshot = snapshot.with(previous, row, ids, ratings);
+    }
+    
+    /**
+     * Assigns the next ordinal. The arrays grow by copying, so snapshots taken before keep
+     * theirs, which hold every ordinal they know.
+     */
+    private int ordinalOf(Long id, Double rating) {
+        int ordinal = rows.size();
+        if (ordinal == ids.length) {
+            int capacity = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+        }
+        ids[ordinal] = id;
+        ratings[ordinal] = rating != null ? rating : 0.0;
+        return ordinal;
+    }
+}
@@ -0,0 +1,44 @@
+package com.restaurant.reservation.service.idempotency;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Optional store shared between nodes, consulted when a key is not in local memory.
+ *
+ * <p>A node claims a key before it executes the request and completes the claim with the
+ * response, so the same key never runs on two nodes at once.
+ */
+public interface IdempotencyBackingStore {
+    
+    /**
+     * Claims {@code key} for this node. Returns empty if the claim was recorded, otherwise
+     * what is recorded for the key: a completed response, or another node's pending claim.
+     * Claims that were not completed within {@code lease} are taken over.
+     */
+    Optional<StoredResponse> claim(String key, String fingerprint, Duration lease);
+    
+    Optional<StoredResponse> find(String key);
+    
+    /**
+     * Records the response of a key claimed by this node, kept until {@code expiresAt}.
+     */
+    void complete(String key, String body, Instant expiresAt);
+    
+    /**
+     * Drops a claim whose execution failed, so the request can be retried.
+     */
+    void release(String key);
+    
+    /**
+     * Serialized response recorded for an idempotency key; the body is null while the
+     * request is still executing.
+     */
+    record StoredResponse(String fingerprint, String body, Instant expiresAt) {
+        
+        public boolean isPending() {
+            return body == null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.restaurant.reservation.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.reservation.exception.IdempotencyKeyInProgressException;
+import com.restaurant.reservation.exception.IdempotencyKeyReuseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Executes a request at most once per Idempotency-Key.
+ *
+ * <p>Completed responses are kept in a bounded, TTL-expiring in-memory map, so replays
+ * are answered without touching the database. Duplicates that arrive while the first
+ * request is still running wait for and share its result. When an
+ * {@link IdempotencyBackingStore} is configured, keys are also shared between nodes: a node
+ * claims the key before executing, and a duplicate on another node waits up to
+ * {@code claim-wait} for the response, then gets a conflict. Failed executions are not
+ * recorded, so the client may retry them; a response that could not be recorded after the
+ * execution succeeded is still returned. Responses expire {@code ttl} after the first
+ * execution began, wherever they are replayed.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    private static final long CLAIM_POLL_MILLIS = 50;
+    
+    private final ObjectMapper objectMapper;
+    private final IdempotencyBackingStore backingStore;
+    private final Duration ttl;
+    private final Duration claimLease;
+    private final Duration claimWait;
+    private final Map<String, Entry> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    
+    public IdempotencyService(ObjectMapper objectMapper,
+                              ObjectProvider<IdempotencyBackingStore> backingStore,
+                              @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${app.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${app.idempotency.shared-store.claim-lease:PT1M}") Duration claimLease,
+                              @Value("${app.idempotency.shared-store.claim-wait:PT5S}") Duration claimWait) {
+        this.objectMapper = objectMapper;
+        this.backingStore = backingStore.getIfAvailable();
+        this.ttl = ttl;
+        this.claimLease = claimLease;
+        this.claimWait = claimWait;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    public <T> IdempotentResult<T> execute(String key, Object request, Class<T> type, Supplier<T> action) {
+        String fingerprint = fingerprint(request);
+        
+        Entry done = lookup(key);
+        if (done != null) {
+            return replay(key, done, fingerprint, type);
+        }
+        
+        CompletableFuture<Entry> execution = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            log.debug("Coalescing duplicate request for idempotency key {}", key);
+            return replay(key, await(running), fingerprint, type);
+        }
+        
+        try {
+            // The first execution may have finished between the lookup and claiming the key
+            done = lookup(key);
+            if (done == null && backingStore != null) {
+                done = claimShared(key, fingerprint);
+            }
+            if (done != null) {
+                execution.complete(done);
+                return replay(key, done, fingerprint, type);
+            }
+            
+            long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+            T value = runClaimed(key, action);
+            Entry entry = new Entry(fingerprint, value, false, expiresAt);
+            remember(key, entry);
+            if (backingStore != null) {
+                completeShared(key, value, expiresAt);
+            }
+            execution.complete(entry);
+            return new IdempotentResult<>(value, false);
+        } catch (RuntimeException ex) {
+            execution.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+    
+    /**
+     * Runs the action for a key claimed in the backing store, releasing the claim if it fails.
+     */
+    private <T> T runClaimed(String key, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException ex) {
+            if (backingStore != null) {
+                backingStore.release(key);
+            }
+            throw ex;
+        }
+    }
+    
+    /**
+     * Records the response of an action that already ran. A failure here must not fail the
+     * request, which has taken effect; the claim is kept instead, so other nodes answer
+     * duplicates with a conflict until its lease runs out.
+     */
+    private void completeShared(String key, Object value, long expiresAt) {
+        try {
+            backingStore.complete(key, toJson(value), Instant.ofEpochMilli(expiresAt));
+        } catch (RuntimeException ex) {
+            log.error("Unable to record the response of idempotency key {}; its claim is kept", key, ex);
+        }
+    }
+    
+    /**
+     * Claims the key in the backing store. Returns null once this node holds the claim, or
+     * the response another node recorded, waiting up to {@code claim-wait} for a pending one.
+     */
+    private Entry claimShared(String key, String fingerprint) {
+        long deadline = System.currentTimeMillis() + claimWait.toMillis();
+        Optional<IdempotencyBackingStore.StoredResponse> recorded = backingStore.claim(key, fingerprint, claimLease);
+        while (recorded.isPresent()) {
+            IdempotencyBackingStore.StoredResponse response = recorded.get();
+            if (!response.isPending()) {
+                Entry entry = Entry.stored(response);
+                remember(key, entry);
+                return entry;
+            }
+            if (!response.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReuseException(
+                        "Idempotency key " + key + " was already used with a different request body");
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyKeyInProgressException(
+                        "A request with idempotency key " + key + " is still in progress");
+            }
+            sleep(CLAIM_POLL_MILLIS);
+            recorded = backingStore.find(key);
+            if (recorded.isEmpty()) {
+                // The other node failed and released the key, or its lease ran out
+                recorded = backingStore.claim(key, fingerprint, claimLease);
+            }
+        }
+        return null;
+    }
+    
+    public int size() {
+        synchronized (completed) {
+            return completed.size();
+        }
+    }
+    
+    private Entry lookup(String key) {
+        synchronized (completed) {
+            Entry entry = completed.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                return entry;
+            }
+            if (entry != null) {
+                completed.remove(key);
+            }
+        }
+        if (backingStore == null) {
+            return null;
+        }
+        Optional<IdempotencyBackingStore.StoredResponse> stored = backingStore.find(key);
+        if (stored.isEmpty() || stored.get().isPending()) {
+            return null;
+        }
+        Entry entry = Entry.stored(stored.get());
+        remember(key, entry);
+        return entry;
+    }
+    
+    private void remember(String key, Entry entry) {
+        synchronized (completed) {
+            completed.put(key, entry);
+        }
+    }
+    
+    private <T> IdempotentResult<T> replay(String key, Entry entry, String fingerprint, Class<T> type) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyReuseException(
+                    "Idempotency key " + key + " was already used with a different request body");
+        }
+        return new IdempotentResult<>(entry.value(type, objectMapper), true);
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idempotent request", ex);
+        }
+    }
+    
+    private static Entry await(CompletableFuture<Entry> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+    
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Unable to fingerprint request", ex);
+        }
+    }
+    
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize idempotent response", ex);
+        }
+    }
+    
+    /**
+     * A completed response; values read from the backing store stay as JSON until replayed.
+     */
+    private static final class Entry {
+        private final String fingerprint;
+        private final Object value;
+        private final boolean json;
+        private final long expiresAt;
+        
+        private Entry(String fingerprint, Object value, boolean json, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+            this.json = json;
+            this.expiresAt = expiresAt;
+        }
+        
+        private static Entry stored(IdempotencyBackingStore.StoredResponse response) {
+            return new Entry(response.fingerprint(), response.body(), true, response.expiresAt().toEpochMilli());
+        }
+        
+        private <T> T value(Class<T> type, ObjectMapper objectMapper) {
+            if (!json) {
+                return type.cast(value);
+            }
+            try {
+                return objectMapper.readValue((String) value, type);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Unable to read stored idempotent response", ex);
+            }
+        }
+    }
+}
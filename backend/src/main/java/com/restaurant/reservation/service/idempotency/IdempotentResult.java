@@ -0,0 +1,15 @@
+package com.restaurant.reservation.service.idempotency;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Response of an idempotent call and whether it was replayed from an earlier execution.
+ */
+@Getter
+@RequiredArgsConstructor
+public class IdempotentResult<T> {
+    
+    private final T value;
+    private final boolean replayed;
+}
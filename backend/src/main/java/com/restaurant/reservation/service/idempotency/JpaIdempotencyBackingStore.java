@@ -0,0 +1,91 @@
+package com.restaurant.reservation.service.idempotency;
+
+import com.restaurant.reservation.model.IdempotencyRecord;
+import com.restaurant.reservation.repository.IdempotencyRecordRepository;
+import com.restaurant.reservation.service.PrimaryReads;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+/**
+ * Shares idempotency keys between nodes through the idempotency_keys table.
+ *
+ * <p>A claim is a row without a response body; the unique key lets only one node insert
+ * it. Claims expire after their lease and completed rows after their TTL, and an expired row
+ * is deleted when the key is claimed again. Keys are always read from the primary, since a
+ * replica may not have seen a claim yet.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.idempotency.shared-store.enabled", havingValue = "true")
+public class JpaIdempotencyBackingStore implements IdempotencyBackingStore {
+    
+    private static final int CLAIM_ATTEMPTS = 3;
+    
+    private final IdempotencyRecordRepository recordRepository;
+    private final PrimaryReads primaryReads;
+    
+    @Override
+    public Optional<StoredResponse> claim(String key, String fingerprint, Duration lease) {
+        for (int attempt = 1; ; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                recordRepository.save(IdempotencyRecord.builder()
+                        .idempotencyKey(key)
+                        .fingerprint(fingerprint)
+                        .expiresAt(now.plus(lease))
+                        .build());
+                return Optional.empty();
+            } catch (DataIntegrityViolationException ex) {
+                Optional<StoredResponse> recorded = find(key);
+                if (recorded.isPresent() || attempt == CLAIM_ATTEMPTS) {
+                    return recorded;
+                }
+                // The row expired: an abandoned claim or an old response
+                recordRepository.deleteExpired(key, now);
+            }
+        }
+    }
+    
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return primaryReads.read(() -> recordRepository.findByIdempotencyKeyAndExpiresAtAfter(key, LocalDateTime.now()))
+                .map(record -> new StoredResponse(record.getFingerprint(), record.getResponseBody(),
+                        record.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant()));
+    }
+    
+    @Override
+    public void complete(String key, String body, Instant expiresAt) {
+        int completed = recordRepository.complete(key, body,
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), LocalDateTime.now());
+        if (completed == 0) {
+            // The lease ran out and another node took the key over
+            log.warn("Idempotency key {} was no longer claimed when its response was recorded", key);
+        }
+    }
+    
+    @Override
+    public void release(String key) {
+        recordRepository.deletePending(key);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.idempotency.shared-store.purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = recordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
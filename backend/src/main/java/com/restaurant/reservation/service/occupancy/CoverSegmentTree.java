@@ -0,0 +1,85 @@
+package com.restaurant.reservation.service.occupancy;
+
+/**
+ * Segment tree over the time buckets of one day supporting range add and range max
+ * with lazy propagation, so "max concurrent covers over [from, to)" costs O(log n).
+ */
+final class CoverSegmentTree implements DayCovers {
+    
+    private final int size;
+    private final int[] max;
+    private final int[] pending;
+    private int changes;
+    
+    CoverSegmentTree(int size) {
+        this.size = size;
+        this.max = new int[4 * size];
+        this.pending = new int[4 * size];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Number of updates so far, to detect changes between two reads.
+     */
+    int changes() {
+        return changes;
+    }
+    
+    /**
+     * Adds {@code delta} covers to every bucket in [from, to).
+     */
+    @Override
+    public void add(int from, int to, int delta) {
+        if (from < to) {
+            add(1, 0, size, from, to, delta);
+            changes++;
+        }
+    }
+    
+    /**
+     * Maximum covers of any bucket in [from, to).
+     */
+    @Override
+    public int max(int from, int to) {
+        return from < to ? max(1, 0, size, from, to) : 0;
+    }
+    
+    /**
+     * Covers held in a single bucket.
+     */
+    int get(int bucket) {
+        return max(bucket, bucket + 1);
+    }
+    
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, int delta) {
+        if (to <= nodeFrom || nodeTo <= from) {
+            return;
+        }
+        if (from <= nodeFrom && nodeTo <= to) {
+            max[node] += delta;
+            pending[node] += delta;
+            return;
+        }
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        add(2 * node, nodeFrom, mid, from, to, delta);
+        add(2 * node + 1, mid, nodeTo, from, to, delta);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+    }
+    
+    private int max(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from) {
+            return Integer.MIN_VALUE;
+        }
+        if (from <= nodeFrom && nodeTo <= to) {
+            return max[node];
+        }
+        int mid = (nodeFrom + nodeTo) >>> 1;
+        int childMax = Math.max(
+                max(2 * node, nodeFrom, mid, from, to),
+                max(2 * node + 1, mid, nodeTo, from, to));
+        return childMax + pending[node];
+    }
+}
@@ -0,0 +1,22 @@
+package com.restaurant.reservation.service.occupancy;
+
+/**
+ * Covers per time bucket of one restaurant and day. Callers hold {@link #lock()}
+ * while checking and updating, so a check and the update it guards are atomic.
+ */
+interface DayCovers {
+    
+    /**
+     * Maximum covers of any bucket in [from, to).
+     */
+    int max(int from, int to);
+    
+    /**
+     * Adds {@code delta} covers to every bucket in [from, to).
+     */
+    void add(int from, int to, int delta);
+    
+    default Object lock() {
+        return this;
+    }
+}
@@ -0,0 +1,426 @@
+package com.restaurant.reservation.service.occupancy;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.PrimaryReads;
+import com.restaurant.reservation.service.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-memory covers per restaurant and day, answering "max concurrent covers over
+ * [t, t + d)" in O(log n) instead of counting reservations in the database.
+ *
+ * <p>Each (restaurant, day) pair owns a {@link CoverSegmentTree} whose buckets are
+ * {@code app.occupancy.resolution-minutes} wide. Trees are loaded lazily from
+ * {@link SimpleReservationRepository} on first use and days before yesterday are
+ * evicted. Reservations that run past midnight are split across both days.
+ *
+ * <p>With an {@link OffHeapOccupancyStore}, days within its range are kept in the store
+ * at its slot width instead, and only the remaining days use trees.
+ *
+ * <p>With an {@link OccupancyJournal}, every change to a tree is journaled while its day
+ * is locked, and {@link OccupancyRecovery} restores the trees after a restart.
+ */
+@Component
+@Slf4j
+public class OccupancyIndex {
+    
+    static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private final SimpleReservationRepository reservationRepository;
+    private final PrimaryReads primaryReads;
+    private final OffHeapOccupancyStore store;
+    private final OccupancyJournal journal;
+    private final int resolutionMinutes;
+    
+    private final ConcurrentHashMap<DayKey, CoverSegmentTree> days = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> changesInFlight = new ConcurrentHashMap<>();
+    private volatile LocalDate lastEviction = LocalDate.MIN;
+    
+    public OccupancyIndex(SimpleReservationRepository reservationRepository,
+                          PrimaryReads primaryReads,
+                          ObjectProvider<OffHeapOccupancyStore> store,
+                          ObjectProvider<OccupancyJournal> journal,
+                          @Value("${app.occupancy.resolution-minutes:5}") int resolutionMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.primaryReads = primaryReads;
+        this.store = store.getIfAvailable();
+        this.journal = journal.getIfAvailable();
+        this.resolutionMinutes = this.store != null ? this.store.slotMinutes() : resolutionMinutes;
+    }
+    
+    /**
+     * Highest number of covers seated at any moment in [start, start + durationMinutes).
+     */
+    public int maxCovers(Long restaurantId, LocalDateTime start, int durationMinutes) {
+        List<Span> spans = spans(restaurantId, start, durationMinutes);
+        return withLocks(spans, 0, () -> peak(spans));
+    }
+    
+    /**
+     * Adds the party if the restaurant stays within {@code capacity} covers for the whole
+     * duration. The check and the update happen under the same locks. The covers are
+     * removed again if the surrounding transaction rolls back.
+     */
+    public boolean tryReserve(Long restaurantId, LocalDateTime start, int durationMinutes, int covers, int capacity) {
+        List<Span> spans = spans(restaurantId, start, durationMinutes);
+        int change = beginChange(restaurantId);
+        boolean reserved = withLocks(spans, 0, () -> {
+            if ((long) peak(spans) + covers > capacity) {
+                return false;
+            }
+            apply(spans, covers, OccupancyJournal.Kind.RESERVE);
+            return true;
+        });
+        if (reserved) {
+            TransactionHooks.afterRollback(() -> remove(restaurantId, start, durationMinutes, covers, OccupancyJournal.Kind.UNDO));
+        }
+        endChange(restaurantId, change, reserved);
+        return reserved;
+    }
+    
+    /**
+     * Moves a party from one window to another as a single step: the old covers are
+     * taken out and the new window is checked and booked while holding the locks of every
+     * day involved. If the new window does not fit, the old booking is left untouched.
+     * Pass {@link Integer#MAX_VALUE} as capacity to move without a check.
+     */
+    public boolean tryMove(Long restaurantId,
+                           LocalDateTime oldStart, int oldDurationMinutes, int oldCovers,
+                           LocalDateTime newStart, int newDurationMinutes, int newCovers,
+                           int capacity) {
+        List<Span> oldSpans = spans(restaurantId, oldStart, oldDurationMinutes);
+        List<Span> newSpans = spans(restaurantId, newStart, newDurationMinutes);
+        int change = beginChange(restaurantId);
+        boolean moved = withLocks(lockOrder(oldSpans, newSpans), 0, () -> {
+            apply(oldSpans, -oldCovers, OccupancyJournal.Kind.MOVE);
+            if ((long) peak(newSpans) + newCovers > capacity) {
+                apply(oldSpans, oldCovers, OccupancyJournal.Kind.UNDO);
+                return false;
+            }
+            apply(newSpans, newCovers, OccupancyJournal.Kind.MOVE);
+            return true;
+        });
+        if (moved) {
+            TransactionHooks.afterRollback(() -> tryMove(restaurantId,
+                    newStart, newDurationMinutes, newCovers,
+                    oldStart, oldDurationMinutes, oldCovers,
+                    Integer.MAX_VALUE));
+        }
+        endChange(restaurantId, change, moved);
+        return moved;
+    }
+    
+    /**
+     * Adds the party without a capacity check, e.g. when admission was decided by table fit.
+     */
+    public void reserve(Long restaurantId, LocalDateTime start, int durationMinutes, int covers) {
+        List<Span> spans = spans(restaurantId, start, durationMinutes);
+        int change = beginChange(restaurantId);
+        withLocks(spans, 0, () -> {
+            apply(spans, covers, OccupancyJournal.Kind.RESERVE);
+            return null;
+        });
+        TransactionHooks.afterRollback(() -> remove(restaurantId, start, durationMinutes, covers, OccupancyJournal.Kind.UNDO));
+        endChange(restaurantId, change, true);
+    }
+    
+    /**
+     * Removes the party once the surrounding transaction commits.
+     */
+    public void release(Long restaurantId, LocalDateTime start, int durationMinutes, int covers) {
+        TransactionHooks.afterCommit(() -> remove(restaurantId, start, durationMinutes, covers, OccupancyJournal.Kind.RELEASE));
+    }
+    
+    public int loadedDays() {
+        return days.size();
+    }
+    
+    /**
+     * Bucket count of a day tree.
+     */
+    int buckets() {
+        return MINUTES_PER_DAY / resolutionMinutes;
+    }
+    
+    /**
+     * Puts a tree rebuilt from a snapshot and the journal in place, before any request uses the day.
+     */
+    void restore(Long restaurantId, LocalDate date, CoverSegmentTree tree) {
+        days.put(new DayKey(restaurantId, date), tree);
+    }
+    
+    /**
+     * The covers of every loaded day from yesterday on, each with the sequence number of
+     * the last journal record it reflects.
+     */
+    List<OccupancyJournal.DaySnapshot> snapshot() {
+        LocalDate cutoff = LocalDate.now().minusDays(1);
+        List<OccupancyJournal.DaySnapshot> snapshot = new ArrayList<>();
+        for (Map.Entry<DayKey, CoverSegmentTree> day : days.entrySet()) {
+            if (day.getKey().getDate().isBefore(cutoff)) {
+                continue;
+            }
+            CoverSegmentTree tree = day.getValue();
+            synchronized (tree) {
+                int[] covers = new int[tree.size()];
+                for (int bucket = 0; bucket < covers.length; bucket++) {
+                    covers[bucket] = tree.get(bucket);
+                }
+                snapshot.add(new OccupancyJournal.DaySnapshot(day.getKey().getRestaurantId(),
+                        day.getKey().getDate().toEpochDay(), journal.lastSequence(), covers));
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Changes applied so far to a day, or -1 while a change of the restaurant has not
+     * completed yet.
+     */
+    int changes(Long restaurantId, LocalDate date) {
+        CoverSegmentTree tree = days.get(new DayKey(restaurantId, date));
+        if (inFlight(restaurantId)) {
+            return -1;
+        }
+        if (tree == null) {
+            return 0;
+        }
+        synchronized (tree) {
+            return tree.changes();
+        }
+    }
+    
+    /**
+     * Replaces a day's covers with the given reservations, unless it changed since
+     * {@link #changes} returned {@code seen} or a change of the restaurant is in flight.
+     */
+    boolean reconcile(Long restaurantId, LocalDate date, int seen, List<SimpleReservationRepository.OccupancyRow> rows) {
+        CoverSegmentTree tree = days.get(new DayKey(restaurantId, date));
+        if (tree == null) {
+            return true;
+        }
+        CoverSegmentTree loaded = new CoverSegmentTree(tree.size());
+        fill(loaded, date, rows, resolutionMinutes);
+        synchronized (tree) {
+            if (tree.changes() != seen || inFlight(restaurantId)) {
+                return false;
+            }
+            for (int bucket = 0; bucket < tree.size(); bucket++) {
+                int delta = loaded.get(bucket) - tree.get(bucket);
+                if (delta != 0) {
+                    tree.add(bucket, bucket + 1, delta);
+                    journal.append(OccupancyJournal.Kind.RECONCILE, restaurantId, date.toEpochDay(), bucket, bucket + 1, delta);
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void remove(Long restaurantId, LocalDateTime start, int durationMinutes, int covers, OccupancyJournal.Kind kind) {
+        List<Span> spans = spans(restaurantId, start, durationMinutes);
+        withLocks(spans, 0, () -> {
+            apply(spans, -covers, kind);
+            return null;
+        });
+    }
+    
+    /**
+     * Records that the restaurant's counters are about to run ahead of the database, so
+     * background reloads leave them alone until the change completes. Called after the spans
+     * are resolved, which registers the restaurant with the store.
+     */
+    private int beginChange(Long restaurantId) {
+        if (journal != null) {
+            changesInFlight.computeIfAbsent(restaurantId, id -> new AtomicInteger()).incrementAndGet();
+        }
+        return store != null ? store.beginChange(restaurantId) : -1;
+    }
+    
+    /**
+     * Ends a change once its transaction completes, or right away if nothing was changed.
+     */
+    private void endChange(Long restaurantId, int change, boolean changed) {
+        if (journal == null && change < 0) {
+            return;
+        }
+        Runnable end = () -> {
+            if (journal != null) {
+                changesInFlight.get(restaurantId).decrementAndGet();
+            }
+            if (change >= 0) {
+                store.endChange(change);
+            }
+        };
+        if (changed) {
+            TransactionHooks.afterCompletion(end, end);
+        } else {
+            end.run();
+        }
+    }
+    
+    private boolean inFlight(Long restaurantId) {
+        AtomicInteger changes = changesInFlight.get(restaurantId);
+        return changes != null && changes.get() != 0;
+    }
+    
+    private static int peak(List<Span> spans) {
+        int peak = 0;
+        for (Span span : spans) {
+            peak = Math.max(peak, span.covers.max(span.fromBucket, span.toBucket));
+        }
+        return peak;
+    }
+    
+    private void apply(List<Span> spans, int covers, OccupancyJournal.Kind kind) {
+        for (Span span : spans) {
+            span.covers.add(span.fromBucket, span.toBucket, covers);
+            // Rows of the off-heap store are durable themselves
+            if (journal != null && span.covers instanceof CoverSegmentTree) {
+                journal.append(kind, span.restaurantId, span.date.toEpochDay(), span.fromBucket, span.toBucket, covers);
+            }
+        }
+    }
+    
+    /**
+     * Distinct day trees of both windows sorted by date. Every caller locks days in this
+     * order, so two moves between the same pair of days cannot deadlock.
+     */
+    private static List<Span> lockOrder(List<Span> first, List<Span> second) {
+        TreeMap<LocalDate, Span> byDate = new TreeMap<>();
+        for (Span span : first) {
+            byDate.putIfAbsent(span.date, span);
+        }
+        for (Span span : second) {
+            byDate.putIfAbsent(span.date, span);
+        }
+        return new ArrayList<>(byDate.values());
+    }
+    
+    /**
+     * Acquires the day locks in date order, so concurrent multi-day operations cannot deadlock.
+     */
+    private static <T> T withLocks(List<Span> spans, int index, Supplier<T> action) {
+        if (index == spans.size()) {
+            return action.get();
+        }
+        synchronized (spans.get(index).covers.lock()) {
+            return withLocks(spans, index + 1, action);
+        }
+    }
+    
+    /**
+     * Per-day bucket ranges covered by [start, start + durationMinutes), ordered by date.
+     * Partially covered buckets are included, so checks err on the side of caution.
+     */
+    private List<Span> spans(Long restaurantId, LocalDateTime start, int durationMinutes) {
+        evictPastDays();
+        List<Span> spans = new ArrayList<>(2);
+        LocalDate date = start.toLocalDate();
+        int from = start.getHour() * 60 + start.getMinute();
+        int to = from + durationMinutes;
+        while (to > 0) {
+            int dayTo = Math.min(to, MINUTES_PER_DAY);
+            if (from < dayTo) {
+                spans.add(new Span(restaurantId, date, day(restaurantId, date),
+                        from / resolutionMinutes, ceilDiv(dayTo, resolutionMinutes)));
+            }
+            date = date.plusDays(1);
+            from = 0;
+            to -= MINUTES_PER_DAY;
+        }
+        return spans;
+    }
+    
+    private DayCovers day(Long restaurantId, LocalDate date) {
+        if (store != null) {
+            DayCovers row = store.row(restaurantId, date, covers -> load(covers, restaurantId, date));
+            if (row != null) {
+                return row;
+            }
+        }
+        return days.computeIfAbsent(new DayKey(restaurantId, date), key -> {
+            CoverSegmentTree tree = new CoverSegmentTree(MINUTES_PER_DAY / resolutionMinutes);
+            load(tree, restaurantId, date);
+            return tree;
+        });
+    }
+    
+    private void load(DayCovers covers, Long restaurantId, LocalDate date) {
+        LocalDateTime dayStart = date.atStartOfDay();
+        List<SimpleReservationRepository.OccupancyRow> rows = primaryReads.read(() -> reservationRepository.findActiveOccupancy(
+                restaurantId,
+                dayStart.minusMinutes(SimpleReservation.MAX_DURATION_MINUTES),
+                dayStart.plusDays(1)));
+        fill(covers, date, rows, resolutionMinutes);
+        log.debug("Loaded occupancy for restaurant {} on {} from {} reservations", restaurantId, date, rows.size());
+    }
+    
+    /**
+     * Adds the part of each reservation that falls on {@code date}; rows for other days add nothing.
+     */
+    static void fill(DayCovers covers, LocalDate date, List<SimpleReservationRepository.OccupancyRow> rows,
+                     int resolutionMinutes) {
+        LocalDateTime dayStart = date.atStartOfDay();
+        for (SimpleReservationRepository.OccupancyRow row : rows) {
+            int duration = row.getDurationMinutes() != null
+                    ? row.getDurationMinutes() : SimpleReservation.DEFAULT_DURATION_MINUTES;
+            long from = Duration.between(dayStart, row.getReservationDateTime()).toMinutes();
+            long to = Math.min(from + duration, MINUTES_PER_DAY);
+            from = Math.max(from, 0);
+            if (from < to) {
+                covers.add((int) from / resolutionMinutes, ceilDiv((int) to, resolutionMinutes), row.getPartySize());
+            }
+        }
+    }
+    
+    private void evictPastDays() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(lastEviction)) {
+            return;
+        }
+        lastEviction = today;
+        LocalDate cutoff = today.minusDays(1);
+        days.keySet().removeIf(key -> key.getDate().isBefore(cutoff));
+    }
+    
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+    
+    @lombok.Value
+    private static class DayKey {
+        Long restaurantId;
+        LocalDate date;
+    }
+    
+    private static final class Span {
+        private final Long restaurantId;
+        private final LocalDate date;
+        private final DayCovers covers;
+        private final int fromBucket;
+        private final int toBucket;
+        
+        private Span(Long restaurantId, LocalDate date, DayCovers covers, int fromBucket, int toBucket) {
+            this.restaurantId = restaurantId;
+            this.date = date;
+            this.covers = covers;
+            this.fromBucket = fromBucket;
+            this.toBucket = toBucket;
+        }
+    }
+}
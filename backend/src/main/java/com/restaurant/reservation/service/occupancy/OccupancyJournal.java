@@ -0,0 +1,369 @@
+package com.restaurant.reservation.service.occupancy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the changes made to the in-memory occupancy index, with
+ * snapshots of the index to replay from.
+ *
+ * <p>Every change to a day's covers is appended as a fixed-size record to a memory-mapped
+ * segment file while the day is locked, so records of one day are in the order they were
+ * applied. Appending costs a write to memory; the operating system writes the pages back,
+ * and {@link #force()} flushes them every {@code force-interval}. A record that was only
+ * partly written before a crash fails its checksum and ends the replay of its segment.
+ *
+ * <p>A snapshot holds the covers of every loaded day together with the sequence number
+ * of the last record already reflected in it. Segments that only hold older records are
+ * deleted once the snapshot is saved.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.journal.enabled", havingValue = "true")
+@Slf4j
+public class OccupancyJournal implements DisposableBean {
+    
+    static final int RECORD_BYTES = 40;
+    private static final int CHECKED_BYTES = 32;
+    private static final int SNAPSHOT_MAGIC = 0x4F434353;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT = "snapshot.bin";
+    
+    /**
+     * What caused a change: admission, a move to another window, a release on cancellation
+     * or completion, the undo of a change that did not commit, or a reload from the database.
+     */
+    enum Kind {
+        RESERVE, MOVE, RELEASE, UNDO, RECONCILE
+    }
+    
+    record Entry(long sequence, Kind kind, long restaurantId, long epochDay, int fromBucket, int toBucket, int delta) {
+    }
+    
+    record DaySnapshot(long restaurantId, long epochDay, long sequence, int[] covers) {
+    }
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32C checksum = new CRC32C();
+    private final List<MappedByteBuffer> unforced = new ArrayList<>();
+    private MappedByteBuffer current;
+    private int position;
+    private long lastSequence;
+    
+    public OccupancyJournal(@Value("${app.booking.journal.path:data/journal}") Path directory,
+                            @Value("${app.booking.journal.segment-size:64MB}") DataSize segmentSize) throws IOException {
+        this.directory = directory;
+        long records = Math.max(1, Math.min(segmentSize.toBytes(), Integer.MAX_VALUE) / RECORD_BYTES);
+        this.segmentBytes = (int) records * RECORD_BYTES;
+        Files.createDirectories(directory);
+        
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(file -> segments.add(new Segment(file, firstSequence(file))));
+        }
+        int intact = 0;
+        for (Segment segment : segments) {
+            intact = read(segment, entry -> lastSequence = entry.sequence());
+        }
+        // Records the snapshot reflects may not have reached the segments before a crash
+        for (DaySnapshot day : readSnapshot()) {
+            lastSequence = Math.max(lastSequence, day.sequence());
+        }
+        if (!segments.isEmpty()) {
+            reopen(segments.get(segments.size() - 1), intact);
+        }
+        log.info("Opened occupancy journal {} with {} segment(s) up to sequence {}",
+                directory, segments.size(), lastSequence);
+    }
+    
+    /**
+     * Appends a change and returns its sequence number. Callers hold the lock of the day.
+     */
+    synchronized long append(Kind kind, long restaurantId, long epochDay, int fromBucket, int toBucket, int delta) {
+        if (current == null || position == segmentBytes) {
+            roll();
+        }
+        long sequence = ++lastSequence;
+        ByteBuffer buffer = current;
+        int at = position;
+        buffer.putLong(at, sequence);
+        buffer.putLong(at + 8, restaurantId);
+        buffer.putInt(at + 16, (int) epochDay);
+        buffer.putShort(at + 20, (short) fromBucket);
+        buffer.putShort(at + 22, (short) toBucket);
+        buffer.putInt(at + 24, delta);
+        buffer.put(at + 28, (byte) kind.ordinal());
+        checksum.reset();
+        checksum.update(buffer.slice(at, CHECKED_BYTES));
+        buffer.putInt(at + CHECKED_BYTES, (int) checksum.getValue());
+        position += RECORD_BYTES;
+        return sequence;
+    }
+    
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+    
+    /**
+     * Passes every intact record after {@code sequence} to {@code consumer}, oldest first.
+     */
+    void replay(long sequence, Consumer<Entry> consumer) {
+        List<Segment> candidates;
+        synchronized (this) {
+            candidates = new ArrayList<>(segments);
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i + 1 < candidates.size() && candidates.get(i + 1).firstSequence <= sequence + 1) {
+                continue;
+            }
+            read(candidates.get(i), entry -> {
+                if (entry.sequence() > sequence) {
+                    consumer.accept(entry);
+                }
+            });
+        }
+    }
+    
+    /**
+     * The days of the last saved snapshot, or none if it was taken with another bucket count.
+     */
+    List<DaySnapshot> loadSnapshot(int buckets) {
+        List<DaySnapshot> days = readSnapshot();
+        if (!days.isEmpty() && days.get(0).covers().length != buckets) {
+            log.info("Ignoring occupancy snapshot {} taken with {} buckets", directory.resolve(SNAPSHOT),
+                    days.get(0).covers().length);
+            return new ArrayList<>();
+        }
+        return days;
+    }
+    
+    /**
+     * Replaces the snapshot and deletes the segments it makes obsolete. Records up to
+     * {@code replayedFrom} may be dropped: no day of the snapshot needs them.
+     */
+    void saveSnapshot(int buckets, List<DaySnapshot> days, long replayedFrom) {
+        // Every record the snapshot reflects is on disk before it, so their sequences are not reused
+        force();
+        Path snapshot = directory.resolve(SNAPSHOT);
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(buckets);
+            out.writeInt(days.size());
+            for (DaySnapshot day : days) {
+                out.writeLong(day.restaurantId());
+                out.writeLong(day.epochDay());
+                out.writeLong(day.sequence());
+                int used = 0;
+                for (int covers : day.covers()) {
+                    used += covers != 0 ? 1 : 0;
+                }
+                out.writeShort(used);
+                for (int bucket = 0; bucket < day.covers().length; bucket++) {
+                    if (day.covers()[bucket] != 0) {
+                        out.writeShort(bucket);
+                        out.writeInt(day.covers()[bucket]);
+                    }
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write occupancy snapshot " + temporary, ex);
+        }
+        try {
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to replace occupancy snapshot " + snapshot, ex);
+        }
+        
+        List<Segment> obsolete = new ArrayList<>();
+        synchronized (this) {
+            // The last segment is being written to and is always kept
+            while (segments.size() > 1 && segments.get(1).firstSequence <= replayedFrom + 1) {
+                obsolete.add(segments.remove(0));
+            }
+        }
+        for (Segment segment : obsolete) {
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException ex) {
+                log.warn("Unable to delete journal segment {}", segment.file, ex);
+            }
+        }
+        log.debug("Saved occupancy snapshot of {} day(s), dropped {} journal segment(s)", days.size(), obsolete.size());
+    }
+    
+    @Scheduled(fixedDelayString = "${app.booking.journal.force-interval:PT1S}")
+    public void force() {
+        List<MappedByteBuffer> buffers;
+        synchronized (this) {
+            buffers = new ArrayList<>(unforced);
+            unforced.clear();
+            if (current != null) {
+                buffers.add(current);
+            }
+        }
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        force();
+    }
+    
+    /**
+     * Starts a new segment. Its name holds the sequence of its first record, so segments
+     * sort in order and can be skipped without reading them.
+     */
+    private void roll() {
+        if (current != null) {
+            unforced.add(current);
+        }
+        long firstSequence = lastSequence + 1;
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to create journal segment " + file, ex);
+        }
+        position = 0;
+        segments.add(new Segment(file, firstSequence));
+    }
+    
+    /**
+     * Continues the last segment after its last intact record. A segment is created at full
+     * size, so after a crash it may hold no records at all and must not be created again.
+     * Records past the last intact one were never part of the journal and are cleared.
+     */
+    private void reopen(Segment segment, int records) throws IOException {
+        lastSequence = Math.max(lastSequence, segment.firstSequence - 1);
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != segmentBytes) {
+                // Written with another segment size; the next record starts a new segment
+                if (records == 0) {
+                    Files.delete(segment.file);
+                    segments.remove(segment);
+                }
+                return;
+            }
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        position = records * RECORD_BYTES;
+        byte[] empty = new byte[RECORD_BYTES];
+        for (int at = position; at < segmentBytes; at += RECORD_BYTES) {
+            if (current.getLong(at) != 0) {
+                current.put(at, empty);
+            }
+        }
+    }
+    
+    /**
+     * The days of the snapshot with the bucket count they were taken with, or none if there is
+     * no snapshot of this layout version.
+     */
+    private List<DaySnapshot> readSnapshot() {
+        Path file = directory.resolve(SNAPSHOT);
+        List<DaySnapshot> days = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return days;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.info("Ignoring occupancy snapshot {} taken with a different layout", file);
+                return days;
+            }
+            int buckets = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long restaurantId = in.readLong();
+                long epochDay = in.readLong();
+                long sequence = in.readLong();
+                int[] covers = new int[buckets];
+                int used = in.readShort();
+                for (int j = 0; j < used; j++) {
+                    covers[in.readShort()] = in.readInt();
+                }
+                days.add(new DaySnapshot(restaurantId, epochDay, sequence, covers));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read occupancy snapshot " + file, ex);
+        }
+        return days;
+    }
+    
+    /**
+     * Passes the intact records of a segment to {@code consumer} and returns how many there were.
+     */
+    private int read(Segment segment, Consumer<Entry> consumer) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read journal segment " + segment.file, ex);
+        }
+        CRC32C crc = new CRC32C();
+        Kind[] kinds = Kind.values();
+        int records = 0;
+        for (int at = 0; at + RECORD_BYTES <= buffer.limit(); at += RECORD_BYTES) {
+            long sequence = buffer.getLong(at);
+            if (sequence == 0) {
+                return records;
+            }
+            crc.reset();
+            crc.update(buffer.slice(at, CHECKED_BYTES));
+            int kind = buffer.get(at + 28);
+            if (buffer.getInt(at + CHECKED_BYTES) != (int) crc.getValue() || kind < 0 || kind >= kinds.length) {
+                log.warn("Journal segment {} ends with a damaged record at sequence {}", segment.file, sequence);
+                return records;
+            }
+            records++;
+            consumer.accept(new Entry(sequence, kinds[kind], buffer.getLong(at + 8), buffer.getInt(at + 16),
+                    buffer.getShort(at + 20), buffer.getShort(at + 22), buffer.getInt(at + 24)));
+        }
+        return records;
+    }
+    
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    
+    private record Segment(Path file, long firstSequence) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.restaurant.reservation.service.occupancy;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.PrimaryReads;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restores the occupancy index from the journal when the application starts, saves
+ * snapshots periodically and checks the restored days against the database.
+ *
+ * <p>Restoring reads the last snapshot and replays the journal records that came after
+ * each day's snapshot, before any request is served. Days that were not in the snapshot are
+ * loaded from the database on first use as usual. Once the application is ready, every
+ * restored day is compared with its reservations in the background, which removes changes
+ * that were journaled but never committed.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.journal.enabled", havingValue = "true")
+@Slf4j
+public class OccupancyRecovery {
+    
+    private static final long RECONCILE_RETRY_MILLIS = 100;
+    
+    private final OccupancyIndex occupancyIndex;
+    private final OccupancyJournal journal;
+    private final SimpleReservationRepository reservationRepository;
+    private final ShardedQueries shardedQueries;
+    private final PrimaryReads primaryReads;
+    private final TransactionTemplate readOnly;
+    private final List<DayKey> restored;
+    
+    public OccupancyRecovery(OccupancyIndex occupancyIndex,
+                             OccupancyJournal journal,
+                             SimpleReservationRepository reservationRepository,
+                             ShardedQueries shardedQueries,
+                             PrimaryReads primaryReads,
+                             PlatformTransactionManager transactionManager) {
+        this.occupancyIndex = occupancyIndex;
+        this.journal = journal;
+        this.reservationRepository = reservationRepository;
+        this.shardedQueries = shardedQueries;
+        this.primaryReads = primaryReads;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.restored = restore();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.booking.journal.snapshot-interval:PT5M}",
+            initialDelayString = "${app.booking.journal.snapshot-interval:PT5M}")
+    public void snapshot() {
+        long sequence = journal.lastSequence();
+        List<OccupancyJournal.DaySnapshot> days = occupancyIndex.snapshot();
+        for (OccupancyJournal.DaySnapshot day : days) {
+            sequence = Math.min(sequence, day.sequence());
+        }
+        journal.saveSnapshot(occupancyIndex.buckets(), days, sequence);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconcile() {
+        if (restored.isEmpty()) {
+            return;
+        }
+        Thread thread = new Thread(this::reconcileAll, "occupancy-journal-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private List<DayKey> restore() {
+        long started = System.currentTimeMillis();
+        int buckets = occupancyIndex.buckets();
+        long cutoff = LocalDate.now().minusDays(1).toEpochDay();
+        
+        Map<DayKey, Restored> days = new HashMap<>();
+        long from = Long.MAX_VALUE;
+        for (OccupancyJournal.DaySnapshot day : journal.loadSnapshot(buckets)) {
+            if (day.epochDay() < cutoff) {
+                continue;
+            }
+            CoverSegmentTree tree = new CoverSegmentTree(buckets);
+            int[] covers = day.covers();
+            for (int bucket = 0; bucket < covers.length; bucket++) {
+                tree.add(bucket, bucket + 1, covers[bucket]);
+            }
+            days.put(new DayKey(day.restaurantId(), day.epochDay()), new Restored(tree, day.sequence()));
+            from = Math.min(from, day.sequence());
+        }
+        
+        int[] replayed = new int[1];
+        if (!days.isEmpty()) {
+            journal.replay(from, entry -> {
+                Restored day = days.get(new DayKey(entry.restaurantId(), entry.epochDay()));
+                if (day != null && entry.sequence() > day.sequence) {
+                    day.tree.add(entry.fromBucket(), entry.toBucket(), entry.delta());
+                    replayed[0]++;
+                }
+            });
+        }
+        days.forEach((key, day) -> occupancyIndex.restore(key.restaurantId, LocalDate.ofEpochDay(key.epochDay), day.tree));
+        log.info("Restored occupancy of {} restaurant day(s) from the snapshot and {} journal record(s) in {} ms",
+                days.size(), replayed[0], System.currentTimeMillis() - started);
+        return List.copyOf(days.keySet());
+    }
+    
+    private void reconcileAll() {
+        long started = System.currentTimeMillis();
+        Deque<DayKey> remaining = new ArrayDeque<>(restored);
+        int attempts = 0;
+        while (!remaining.isEmpty()) {
+            DayKey day = remaining.poll();
+            try {
+                if (reconcile(day)) {
+                    attempts = 0;
+                    continue;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Reconciling occupancy of restaurant {} on {} failed, retrying",
+                        day.restaurantId, LocalDate.ofEpochDay(day.epochDay), ex);
+            }
+            remaining.add(day);
+            if (++attempts >= remaining.size()) {
+                // Every remaining day is busy; wait for their changes to complete
+                attempts = 0;
+                try {
+                    Thread.sleep(RECONCILE_RETRY_MILLIS);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+        log.info("Reconciled {} restored restaurant day(s) with the database in {} ms",
+                restored.size(), System.currentTimeMillis() - started);
+    }
+    
+    private boolean reconcile(DayKey day) {
+        LocalDate date = LocalDate.ofEpochDay(day.epochDay);
+        int seen = occupancyIndex.changes(day.restaurantId, date);
+        if (seen < 0) {
+            return false;
+        }
+        LocalDateTime dayStart = date.atStartOfDay();
+        List<SimpleReservationRepository.OccupancyRow> rows = shardedQueries.onShardOf(day.restaurantId,
+                () -> primaryReads.read(() -> readOnly.execute(status -> reservationRepository.findActiveOccupancy(
+                        day.restaurantId,
+                        dayStart.minusMinutes(SimpleReservation.MAX_DURATION_MINUTES),
+                        dayStart.plusDays(1)))));
+        return occupancyIndex.reconcile(day.restaurantId, date, seen, rows);
+    }
+    
+    private record DayKey(Long restaurantId, long epochDay) {
+    }
+    
+    private record Restored(CoverSegmentTree tree, long sequence) {
+    }
+}
@@ -0,0 +1,565 @@
+package com.restaurant.reservation.service.occupancy;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.PrimaryReads;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Occupancy counters kept outside the heap in a memory-mapped file, for catalogs too
+ * large for one {@link CoverSegmentTree} per restaurant and day.
+ *
+ * <p>Every registered restaurant gets a dense index and a fixed block of {@code days}
+ * rows, used as a ring over the dates from yesterday on. A row holds the date it belongs
+ * to followed by one unsigned 16-bit counter per {@code slot-minutes} slot, two to an int
+ * word, updated with compare-and-set through a {@link VarHandle}. A row is claimed and
+ * loaded from the database the first time its date is used; dates outside the ring are
+ * left to the heap index.
+ *
+ * <p>The file keeps the restaurant ids and rows across restarts, so startup only maps it
+ * again. Bookings that were not committed before a crash may still be counted, so every
+ * claimed row is reloaded from {@link SimpleReservationRepository} in the background once
+ * the application is ready. A restaurant with changes in flight is retried later.
+ */
+@Component
+@ConditionalOnProperty(name = "app.occupancy.off-heap.enabled", havingValue = "true")
+@Slf4j
+public class OffHeapOccupancyStore implements DisposableBean {
+    
+    private static final long MAGIC = 0x4F43435550414E43L;
+    private static final int LAYOUT_VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int COUNT_OFFSET = 24;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final int LOCK_STRIPES = 1024;
+    private static final long RECONCILE_RETRY_MILLIS = 100;
+    
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    
+    private final SimpleReservationRepository reservationRepository;
+    private final ShardedQueries shardedQueries;
+    private final PrimaryReads primaryReads;
+    private final TransactionTemplate readOnly;
+    private final int slotMinutes;
+    private final int slots;
+    private final int days;
+    private final int maxRestaurants;
+    private final int rowBytes;
+    private final long restaurantBytes;
+    private final int restaurantsPerChunk;
+    
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicIntegerArray pending;
+    private final AtomicIntegerArray versions;
+    private volatile IdTable idTable;
+    private volatile Horizon horizon = new Horizon(0, Long.MIN_VALUE);
+    private boolean warnedFull;
+    
+    public OffHeapOccupancyStore(SimpleReservationRepository reservationRepository,
+                                 ShardedQueries shardedQueries,
+                                 PrimaryReads primaryReads,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.occupancy.off-heap.path:data/occupancy.bin}") Path path,
+                                 @Value("${app.occupancy.off-heap.max-restaurants:10000}") int maxRestaurants,
+                                 @Value("${app.occupancy.off-heap.days:90}") int days,
+                                 @Value("${app.occupancy.off-heap.slot-minutes:30}") int slotMinutes) throws IOException {
+        if (slotMinutes <= 0 || OccupancyIndex.MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalArgumentException("app.occupancy.off-heap.slot-minutes must divide a day, was " + slotMinutes);
+        }
+        if (days < 2 || maxRestaurants <= 0) {
+            throw new IllegalArgumentException("app.occupancy.off-heap needs at least 2 days and 1 restaurant");
+        }
+        this.reservationRepository = reservationRepository;
+        this.shardedQueries = shardedQueries;
+        this.primaryReads = primaryReads;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.slotMinutes = slotMinutes;
+        this.slots = OccupancyIndex.MINUTES_PER_DAY / slotMinutes;
+        this.days = days;
+        this.maxRestaurants = maxRestaurants;
+        this.rowBytes = Integer.BYTES * (1 + (slots + 1) / 2);
+        this.restaurantBytes = (long) rowBytes * days;
+        this.restaurantsPerChunk = (int) Math.max(1, Math.min(maxRestaurants, MAX_CHUNK_BYTES / restaurantBytes));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.pending = new AtomicIntegerArray(maxRestaurants);
+        this.versions = new AtomicIntegerArray(maxRestaurants);
+        
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.fileLock = channel.tryLock();
+        if (fileLock == null) {
+            channel.close();
+            throw new IllegalStateException("Occupancy store " + path + " is in use by another process");
+        }
+        
+        long regionStart = align(HEADER_BYTES + (long) Long.BYTES * maxRestaurants, HEADER_BYTES);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionStart);
+        if (!matchesLayout(mapped, slotMinutes, days, maxRestaurants)) {
+            if (channel.size() > regionStart) {
+                log.info("Occupancy store {} has a different layout, starting empty", path);
+            }
+            // Mapped again after truncating, the old mapping must not be touched past the end of the file
+            channel.truncate(0);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionStart);
+            LONGS.set(mapped, 0, MAGIC);
+            INTS.set(mapped, 8, LAYOUT_VERSION);
+            INTS.set(mapped, 12, slotMinutes);
+            INTS.set(mapped, 16, days);
+            INTS.set(mapped, 20, maxRestaurants);
+            INTS.setVolatile(mapped, COUNT_OFFSET, 0);
+        }
+        this.header = mapped;
+        
+        int chunkCount = (maxRestaurants + restaurantsPerChunk - 1) / restaurantsPerChunk;
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int restaurants = Math.min(restaurantsPerChunk, maxRestaurants - i * restaurantsPerChunk);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    regionStart + i * restaurantsPerChunk * restaurantBytes, restaurants * restaurantBytes);
+        }
+        
+        int count = count();
+        IdTable table = new IdTable(capacityFor(count));
+        for (int index = 0; index < count; index++) {
+            table.put(restaurantId(index), index);
+        }
+        this.idTable = table;
+        log.info("Mapped occupancy store {} with {} of {} restaurants, {} days of {}-minute slots",
+                path, count, maxRestaurants, days, slotMinutes);
+    }
+    
+    public int slotMinutes() {
+        return slotMinutes;
+    }
+    
+    public int registeredRestaurants() {
+        return count();
+    }
+    
+    /**
+     * The counters of a restaurant on a date, loaded with {@code loader} the first time the
+     * date is used. Returns null for dates outside the ring, or when no more restaurants fit.
+     */
+    DayCovers row(Long restaurantId, LocalDate date, Consumer<DayCovers> loader) {
+        long epochDay = date.toEpochDay();
+        long first = firstDay();
+        if (epochDay < first || epochDay >= first + days) {
+            return null;
+        }
+        int index = indexOf(restaurantId, true);
+        if (index < 0) {
+            return null;
+        }
+        
+        Row row = new Row(index, epochDay);
+        int stamp = row.stamp();
+        if (stamp == row.expectedStamp()) {
+            return row;
+        }
+        synchronized (row.lock()) {
+            stamp = row.stamp();
+            if (stamp == row.expectedStamp()) {
+                return row;
+            }
+            if (stamp > row.expectedStamp()) {
+                // The slot already holds a later date; only possible if the clock went back
+                return null;
+            }
+            Scratch scratch = new Scratch();
+            loader.accept(scratch);
+            row.copy(scratch);
+            row.claim();
+        }
+        return row;
+    }
+    
+    /**
+     * Marks an uncommitted change of the restaurant's counters, so the background reload
+     * leaves it alone until {@link #endChange(int)}. Returns the index to pass there.
+     */
+    int beginChange(Long restaurantId) {
+        int index = indexOf(restaurantId, false);
+        if (index >= 0) {
+            pending.incrementAndGet(index);
+        }
+        return index;
+    }
+    
+    void endChange(int index) {
+        if (index >= 0) {
+            pending.decrementAndGet(index);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconcile() {
+        Thread thread = new Thread(this::reconcileAll, "occupancy-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @Override
+    public void destroy() throws IOException {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        fileLock.release();
+        channel.close();
+    }
+    
+    private void reconcileAll() {
+        long started = System.currentTimeMillis();
+        int count = count();
+        Deque<Integer> remaining = new ArrayDeque<>(count);
+        for (int index = 0; index < count; index++) {
+            remaining.add(index);
+        }
+        int reconciled = 0;
+        int attempts = 0;
+        while (!remaining.isEmpty()) {
+            int index = remaining.poll();
+            try {
+                if (reconcile(index)) {
+                    reconciled++;
+                    attempts = 0;
+                    continue;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Reconciling occupancy of restaurant {} failed, retrying", restaurantId(index), ex);
+            }
+            remaining.add(index);
+            if (++attempts >= remaining.size()) {
+                // Every remaining restaurant is busy; wait for their changes to complete
+                attempts = 0;
+                try {
+                    Thread.sleep(RECONCILE_RETRY_MILLIS);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+        log.info("Reconciled occupancy of {} restaurant(s) in {} ms", reconciled, System.currentTimeMillis() - started);
+    }
+    
+    /**
+     * Reloads the claimed rows of one restaurant from a single query over the whole ring.
+     * Gives up if a change was in flight or was applied while the query ran. Each row is
+     * rebuilt on the heap and copied in word by word, so it never reads as empty.
+     */
+    boolean reconcile(int index) {
+        Long restaurantId = restaurantId(index);
+        int version = versions.get(index);
+        if (pending.get(index) != 0) {
+            return false;
+        }
+        LocalDate first = LocalDate.now().minusDays(1);
+        LocalDateTime from = first.atStartOfDay();
+        List<SimpleReservationRepository.OccupancyRow> rows = shardedQueries.onShardOf(restaurantId,
+                () -> primaryReads.read(() -> readOnly.execute(status -> reservationRepository.findActiveOccupancy(
+                        restaurantId,
+                        from.minusMinutes(SimpleReservation.MAX_DURATION_MINUTES),
+                        from.plusDays(days)))));
+        
+        synchronized (locks[index & (LOCK_STRIPES - 1)]) {
+            if (pending.get(index) != 0 || versions.get(index) != version) {
+                return false;
+            }
+            Scratch scratch = new Scratch();
+            for (int day = 0; day < days; day++) {
+                LocalDate date = first.plusDays(day);
+                Row row = new Row(index, date.toEpochDay());
+                if (row.stamp() == row.expectedStamp()) {
+                    scratch.clear();
+                    OccupancyIndex.fill(scratch, date, rows, slotMinutes);
+                    row.copy(scratch);
+                }
+            }
+        }
+        return true;
+    }
+    
+    private long firstDay() {
+        Horizon current = horizon;
+        if (System.currentTimeMillis() >= current.until) {
+            LocalDate today = LocalDate.now();
+            current = new Horizon(today.minusDays(1).toEpochDay(),
+                    today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            horizon = current;
+        }
+        return current.firstDay;
+    }
+    
+    private static boolean matchesLayout(MappedByteBuffer header, int slotMinutes, int days, int maxRestaurants) {
+        return (long) LONGS.get(header, 0) == MAGIC
+                && (int) INTS.get(header, 8) == LAYOUT_VERSION
+                && (int) INTS.get(header, 12) == slotMinutes
+                && (int) INTS.get(header, 16) == days
+                && (int) INTS.get(header, 20) == maxRestaurants;
+    }
+    
+    private int count() {
+        return (int) INTS.getVolatile(header, COUNT_OFFSET);
+    }
+    
+    private Long restaurantId(int index) {
+        return (long) LONGS.getVolatile(header, HEADER_BYTES + index * Long.BYTES);
+    }
+    
+    int indexOf(Long restaurantId, boolean register) {
+        int index = idTable.get(restaurantId);
+        if (index >= 0 || !register) {
+            return index;
+        }
+        return register(restaurantId);
+    }
+    
+    private synchronized int register(Long restaurantId) {
+        IdTable table = idTable;
+        int index = table.get(restaurantId);
+        if (index >= 0) {
+            return index;
+        }
+        index = count();
+        if (index == maxRestaurants) {
+            if (!warnedFull) {
+                warnedFull = true;
+                log.warn("Occupancy store is full with {} restaurants; further restaurants stay on the heap", maxRestaurants);
+            }
+            return -1;
+        }
+        LONGS.setVolatile(header, HEADER_BYTES + index * Long.BYTES, restaurantId);
+        INTS.setVolatile(header, COUNT_OFFSET, index + 1);
+        if (table.isFull(index + 1)) {
+            IdTable grown = new IdTable(capacityFor(index + 1));
+            for (int i = 0; i <= index; i++) {
+                grown.put(restaurantId(i), i);
+            }
+            idTable = grown;
+        } else {
+            table.put(restaurantId, index);
+        }
+        return index;
+    }
+    
+    private static int capacityFor(int count) {
+        return Math.max(1024, Integer.highestOneBit(Math.max(count, 1)) * 4);
+    }
+    
+    private static long align(long value, long alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+    
+    /**
+     * The first day of the ring, and until when it holds.
+     */
+    private record Horizon(long firstDay, long until) {
+    }
+    
+    /**
+     * One date's row of one restaurant.
+     */
+    private final class Row implements DayCovers {
+        private final int index;
+        private final long epochDay;
+        private final MappedByteBuffer chunk;
+        private final int offset;
+        
+        private Row(int index, long epochDay) {
+            this.index = index;
+            this.epochDay = epochDay;
+            this.chunk = chunks[index / restaurantsPerChunk];
+            this.offset = (int) ((index % restaurantsPerChunk) * restaurantBytes
+                    + Math.floorMod(epochDay, days) * rowBytes);
+        }
+        
+        private int expectedStamp() {
+            return (int) epochDay + 1;
+        }
+        
+        private int stamp() {
+            return (int) INTS.getVolatile(chunk, offset);
+        }
+        
+        private void claim() {
+            INTS.setVolatile(chunk, offset, expectedStamp());
+        }
+        
+        /**
+         * Replaces the counters with those of {@code scratch}, one word at a time.
+         */
+        private void copy(Scratch scratch) {
+            for (int slot = 0; slot < slots; slot += 2) {
+                int high = slot + 1 < slots ? scratch.covers[slot + 1] : 0;
+                INTS.setVolatile(chunk, wordOffset(slot), scratch.covers[slot] | (high << 16));
+            }
+        }
+        
+        private int get(int slot) {
+            int word = (int) INTS.getVolatile(chunk, wordOffset(slot));
+            return (word >>> shift(slot)) & 0xFFFF;
+        }
+        
+        @Override
+        public int max(int from, int to) {
+            int max = 0;
+            for (int slot = from; slot < to; slot++) {
+                max = Math.max(max, get(slot));
+            }
+            return max;
+        }
+        
+        @Override
+        public void add(int from, int to, int delta) {
+            for (int slot = from; slot < to; slot++) {
+                if (get(slot) + delta > 0xFFFF) {
+                    throw new IllegalStateException("More than " + 0xFFFF + " covers in an occupancy slot of restaurant "
+                            + restaurantId(index));
+                }
+            }
+            for (int slot = from; slot < to; slot++) {
+                int wordOffset = wordOffset(slot);
+                int shift = shift(slot);
+                int word;
+                int updated;
+                do {
+                    word = (int) INTS.getVolatile(chunk, wordOffset);
+                    // Removals are clamped, e.g. for a rollback of a change the row was reloaded without
+                    int covers = Math.max(0, ((word >>> shift) & 0xFFFF) + delta);
+                    updated = (word & ~(0xFFFF << shift)) | (covers << shift);
+                } while (!INTS.compareAndSet(chunk, wordOffset, word, updated));
+            }
+            versions.incrementAndGet(index);
+        }
+        
+        @Override
+        public Object lock() {
+            return locks[index & (LOCK_STRIPES - 1)];
+        }
+        
+        private int wordOffset(int slot) {
+            return offset + Integer.BYTES * (1 + slot / 2);
+        }
+        
+        private int shift(int slot) {
+            return (slot & 1) * 16;
+        }
+    }
+    
+    /**
+     * Counters of one row built on the heap before they are copied into the file.
+     */
+    private final class Scratch implements DayCovers {
+        private final int[] covers = new int[slots];
+        
+        private void clear() {
+            Arrays.fill(covers, 0);
+        }
+        
+        @Override
+        public int max(int from, int to) {
+            int max = 0;
+            for (int slot = from; slot < to; slot++) {
+                max = Math.max(max, covers[slot]);
+            }
+            return max;
+        }
+        
+        @Override
+        public void add(int from, int to, int delta) {
+            for (int slot = from; slot < to; slot++) {
+                int updated = Math.max(0, covers[slot] + delta);
+                if (updated > 0xFFFF) {
+                    throw new IllegalStateException("More than " + 0xFFFF + " covers in an occupancy slot");
+                }
+                covers[slot] = updated;
+            }
+        }
+    }
+    
+    /**
+     * Open-addressing map from restaurant id to index. Lookups take no lock; entries are
+     * only added by {@link #register(Long)}, which publishes a larger table when needed.
+     */
+    private static final class IdTable {
+        private final AtomicLongArray keys;
+        private final int[] values;
+        private final int mask;
+        
+        private IdTable(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+        }
+        
+        private boolean isFull(int count) {
+            return count * 2 > keys.length();
+        }
+        
+        private int get(long key) {
+            for (int slot = hash(key); ; slot = (slot + 1) & mask) {
+                long current = keys.get(slot);
+                if (current == key) {
+                    return values[slot];
+                }
+                if (current == 0) {
+                    return -1;
+                }
+            }
+        }
+        
+        private void put(long key, int value) {
+            int slot = hash(key);
+            while (keys.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            // The value is written first; the key's volatile store publishes it
+            values[slot] = value;
+            keys.set(slot, key);
+        }
+        
+        private int hash(long key) {
+            return Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        }
+    }
+}
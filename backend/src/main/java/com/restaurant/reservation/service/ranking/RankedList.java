@@ -0,0 +1,18 @@
+package com.restaurant.reservation.service.ranking;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.util.List;
+
+/**
+ * A published ranking: the restaurants' JSON, best first, and a hash over their ids and
+ * versions that changes whenever the list or a listed restaurant does.
+ */
+public record RankedList(List<Long> ids, List<RawValue> restaurants, long tag) {
+    
+    static final RankedList EMPTY = new RankedList(List.of(), List.of(), 0);
+    
+    public List<RawValue> top(int limit) {
+        return restaurants.subList(0, Math.min(limit, restaurants.size()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.restaurant.reservation.service.ranking;
+
+/**
+ * The restaurant rankings kept by {@link RestaurantRankings}.
+ */
+public enum Ranking {
+    
+    /**
+     * Bookings decayed with the popular half-life, weighted by rating.
+     */
+    POPULAR,
+    
+    /**
+     * Bookings decayed with the shorter trending half-life.
+     */
+    TRENDING;
+    
+    /**
+     * The value restaurants are ranked by, highest first.
+     */
+    double score(double decayedBookings, double rating) {
+        if (this == POPULAR) {
+            // From 1/6 for unrated to 1 for five stars, so volume leads and rating tips the balance
+            return decayedBookings * (1 + Math.max(0, Math.min(5, rating))) / 6;
+        }
+        return decayedBookings;
+    }
+}
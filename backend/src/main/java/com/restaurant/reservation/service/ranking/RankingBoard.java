@@ -0,0 +1,183 @@
+package com.restaurant.reservation.service.ranking;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Decayed booking counts of all restaurants and their top-K per group. Not thread-safe;
+ * {@link RestaurantRankings} only uses it while refreshing.
+ *
+ * <p>Counts use forward decay: a booking made at {@code t} adds {@code 2^((t - landmark) / halfLife)}
+ * instead of decaying every count as time passes. All counts would be scaled by the same
+ * factor to get their value at any later time, so their order never changes by itself. Only
+ * restaurants that received bookings or were edited can move, and only the groups they are
+ * in have to be ranked again.
+ *
+ * <p>Every active restaurant is in four groups: all restaurants, its city, its cuisine, and
+ * its city and cuisine together.
+ */
+final class RankingBoard {
+    
+    static final String ANY = "*";
+    
+    // Counts are rebased before the weights of new bookings approach the double range
+    private static final double MAX_HALF_LIVES = 512;
+    
+    private final int topK;
+    private final double[] halfLifeMillis;
+    private long landmark;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Entry>> groups = new HashMap<>();
+    private final Set<String> dirty = new HashSet<>();
+    
+    RankingBoard(int topK, Duration popularHalfLife, Duration trendingHalfLife, long now) {
+        this.topK = topK;
+        this.halfLifeMillis = new double[Ranking.values().length];
+        this.halfLifeMillis[Ranking.POPULAR.ordinal()] = popularHalfLife.toMillis();
+        this.halfLifeMillis[Ranking.TRENDING.ordinal()] = trendingHalfLife.toMillis();
+        this.landmark = now;
+    }
+    
+    static String group(String city, String cuisine) {
+        return normalize(city) + '|' + normalize(cuisine);
+    }
+    
+    void upsert(RankingEvents.RestaurantChange change) {
+        Entry entry = entries.computeIfAbsent(change.id(), Entry::new);
+        if (entry.version != null && change.version() != null && change.version() < entry.version) {
+            return;
+        }
+        leaveGroups(entry);
+        entry.version = change.version();
+        entry.active = change.active();
+        entry.city = change.city();
+        entry.cuisine = change.cuisine();
+        entry.rating = change.rating();
+        joinGroups(entry);
+    }
+    
+    void addBookings(Long restaurantId, long bookedAt, long count) {
+        Entry entry = entries.computeIfAbsent(restaurantId, Entry::new);
+        for (Ranking ranking : Ranking.values()) {
+            int i = ranking.ordinal();
+            entry.counts[i] = Math.max(0, entry.counts[i] + count * Math.pow(2, (bookedAt - landmark) / halfLifeMillis[i]));
+        }
+        if (listed(entry)) {
+            dirty.addAll(groupsOf(entry));
+        }
+    }
+    
+    /**
+     * Moves the landmark to {@code now} once it lies too many half-lives back. Scaling all
+     * counts alike keeps their order.
+     */
+    void rebase(long now) {
+        double elapsed = now - landmark;
+        double shortest = Math.min(halfLifeMillis[0], halfLifeMillis[1]);
+        if (elapsed / shortest < MAX_HALF_LIVES) {
+            return;
+        }
+        for (Entry entry : entries.values()) {
+            for (int i = 0; i < entry.counts.length; i++) {
+                entry.counts[i] *= Math.pow(2, -elapsed / halfLifeMillis[i]);
+            }
+        }
+        landmark = now;
+    }
+    
+    Set<String> drainDirty() {
+        Set<String> drained = new HashSet<>(dirty);
+        dirty.clear();
+        return drained;
+    }
+    
+    /**
+     * The group's best {@code topK} restaurants, best first, from a bounded min-heap over
+     * its members.
+     */
+    List<Entry> top(String group, Ranking ranking) {
+        Set<Entry> members = groups.getOrDefault(group, Set.of());
+        Comparator<Entry> best = Comparator.comparingDouble((Entry entry) -> entry.score(ranking)).reversed()
+                .thenComparing(Comparator.comparingDouble((Entry entry) -> entry.rating).reversed())
+                .thenComparing(entry -> entry.id);
+        PriorityQueue<Entry> heap = new PriorityQueue<>(topK + 1, best.reversed());
+        for (Entry entry : members) {
+            heap.add(entry);
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+        List<Entry> top = new ArrayList<>(heap);
+        top.sort(best);
+        return top;
+    }
+    
+    int size() {
+        return entries.size();
+    }
+    
+    private void joinGroups(Entry entry) {
+        if (!listed(entry)) {
+            return;
+        }
+        for (String group : groupsOf(entry)) {
+            groups.computeIfAbsent(group, key -> new HashSet<>()).add(entry);
+            dirty.add(group);
+        }
+    }
+    
+    private void leaveGroups(Entry entry) {
+        if (!listed(entry)) {
+            return;
+        }
+        for (String group : groupsOf(entry)) {
+            Set<Entry> members = groups.get(group);
+            if (members != null) {
+                members.remove(entry);
+                if (members.isEmpty()) {
+                    groups.remove(group);
+                }
+            }
+            dirty.add(group);
+        }
+    }
+    
+    private static boolean listed(Entry entry) {
+        return entry.active && entry.city != null && entry.cuisine != null;
+    }
+    
+    private static List<String> groupsOf(Entry entry) {
+        return List.of(group(null, null), group(entry.city, null), group(null, entry.cuisine),
+                group(entry.city, entry.cuisine));
+    }
+    
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? ANY : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    static final class Entry {
+        final Long id;
+        Long version;
+        boolean active;
+        String city;
+        String cuisine;
+        double rating;
+        final double[] counts = new double[Ranking.values().length];
+        
+        private Entry(Long id) {
+            this.id = id;
+        }
+        
+        private double score(Ranking ranking) {
+            return ranking.score(counts[ranking.ordinal()], rating);
+        }
+    }
+}
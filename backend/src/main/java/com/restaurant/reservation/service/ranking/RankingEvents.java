@@ -0,0 +1,78 @@
+package com.restaurant.reservation.service.ranking;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.TransactionHooks;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Booking and restaurant changes that move the rankings. They are queued once their
+ * transaction commits and applied by {@link RestaurantRankings} on its next refresh,
+ * so recording them costs the booking path no more than a queue append.
+ */
+@Component
+public class RankingEvents {
+    
+    private final Queue<BookingChange> bookings = new ConcurrentLinkedQueue<>();
+    private final Queue<RestaurantChange> restaurants = new ConcurrentLinkedQueue<>();
+    
+    public void bookingCreated(SimpleReservation reservation) {
+        bookingChanged(reservation, 1);
+    }
+    
+    /**
+     * Takes a booking out of the counts when it is cancelled, and back in if it is reinstated.
+     */
+    public void statusChanged(SimpleReservation reservation, SimpleReservation.ReservationStatus from,
+                              SimpleReservation.ReservationStatus to) {
+        if (counts(from) != counts(to)) {
+            bookingChanged(reservation, counts(to) ? 1 : -1);
+        }
+    }
+    
+    /**
+     * Records the restaurant's listing, city, cuisine and rating as committed.
+     */
+    public void restaurantChanged(SimpleRestaurant restaurant) {
+        TransactionHooks.afterCommit(() -> restaurants.add(new RestaurantChange(restaurant.getId(), restaurant.getVersion(),
+                Boolean.TRUE.equals(restaurant.getActive()), restaurant.getCity(), restaurant.getCuisine(),
+                restaurant.getRating() != null ? restaurant.getRating() : 0.0)));
+    }
+    
+    static boolean counts(SimpleReservation.ReservationStatus status) {
+        return status != SimpleReservation.ReservationStatus.CANCELLED;
+    }
+    
+    BookingChange pollBooking() {
+        return bookings.poll();
+    }
+    
+    RestaurantChange pollRestaurant() {
+        return restaurants.poll();
+    }
+    
+    void clear() {
+        bookings.clear();
+        restaurants.clear();
+    }
+    
+    private void bookingChanged(SimpleReservation reservation, int delta) {
+        Long restaurantId = reservation.getRestaurant().getId();
+        LocalDateTime bookedAt = reservation.getCreatedAt() != null ? reservation.getCreatedAt() : LocalDateTime.now();
+        TransactionHooks.afterCommit(() -> bookings.add(new BookingChange(restaurantId, bookedAt, delta)));
+    }
+    
+    /**
+     * A booking counted ({@code delta} 1) or withdrawn (-1), at the time it was originally
+     * made, so a withdrawal removes exactly the weight the booking added.
+     */
+    record BookingChange(Long restaurantId, LocalDateTime bookedAt, int delta) {
+    }
+    
+    record RestaurantChange(Long id, Long version, boolean active, String city, String cuisine, double rating) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.restaurant.reservation.service.ranking;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.repository.SimpleRestaurantRepository;
+import com.restaurant.reservation.service.RestaurantJsonCache;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Popular and trending restaurants overall, per city, per cuisine and per city and cuisine.
+ *
+ * <p>Rankings are built from decayed booking counts kept in a {@link RankingBoard}, which
+ * is loaded once from the reservations of the last {@code history} and then follows the
+ * {@link RankingEvents}. Every {@code refresh-interval}, the groups touched by new events
+ * are ranked again and their top {@code top-k} restaurants published, already rendered
+ * as JSON. Lookups are a map read and never touch the database.
+ */
+@Component
+@Slf4j
+public class RestaurantRankings {
+    
+    private final RankingEvents events;
+    private final SimpleRestaurantRepository restaurantRepository;
+    private final SimpleReservationRepository reservationRepository;
+    private final RestaurantJsonCache restaurantJsonCache;
+    private final ShardedQueries shardedQueries;
+    private final TransactionTemplate readOnly;
+    private final int topK;
+    private final Duration popularHalfLife;
+    private final Duration trendingHalfLife;
+    private final Duration history;
+    
+    private RankingBoard board;
+    private final Map<Long, Rendered> rendered = new HashMap<>();
+    private volatile Map<String, RankedList> published = Map.of();
+    private volatile boolean loaded;
+    
+    public RestaurantRankings(RankingEvents events,
+                              SimpleRestaurantRepository restaurantRepository,
+                              SimpleReservationRepository reservationRepository,
+                              RestaurantJsonCache restaurantJsonCache,
+                              ShardedQueries shardedQueries,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.rankings.top-k:50}") int topK,
+                              @Value("${app.rankings.popular-half-life:P7D}") Duration popularHalfLife,
+                              @Value("${app.rankings.trending-half-life:P1D}") Duration trendingHalfLife,
+                              @Value("${app.rankings.history:P60D}") Duration history) {
+        this.events = events;
+        this.restaurantRepository = restaurantRepository;
+        this.reservationRepository = reservationRepository;
+        this.restaurantJsonCache = restaurantJsonCache;
+        this.shardedQueries = shardedQueries;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.topK = topK;
+        this.popularHalfLife = popularHalfLife;
+        this.trendingHalfLife = trendingHalfLife;
+        this.history = history;
+    }
+    
+    /**
+     * The published ranking for the city and cuisine, either of which may be null for any.
+     * Only the very first lookup waits for the rankings to be loaded.
+     */
+    public RankedList top(Ranking ranking, String city, String cuisine) {
+        if (!loaded) {
+            refresh();
+        }
+        return published.getOrDefault(key(ranking, RankingBoard.group(city, cuisine)), RankedList.EMPTY);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.rankings.refresh-interval:PT30S}")
+    public synchronized void refresh() {
+        long now = millis(LocalDateTime.now());
+        if (!loaded) {
+            load(now);
+        }
+        
+        RankingEvents.RestaurantChange restaurant;
+        while ((restaurant = events.pollRestaurant()) != null) {
+            board.upsert(restaurant);
+        }
+        RankingEvents.BookingChange booking;
+        while ((booking = events.pollBooking()) != null) {
+            board.addBookings(booking.restaurantId(), millis(booking.bookedAt()), booking.delta());
+        }
+        board.rebase(now);
+        
+        Set<String> dirty = board.drainDirty();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Map<String, List<RankingBoard.Entry>> ranked = new HashMap<>();
+        for (String group : dirty) {
+            for (Ranking ranking : Ranking.values()) {
+                ranked.put(key(ranking, group), board.top(group, ranking));
+            }
+        }
+        render(ranked.values());
+        publish(ranked);
+        log.debug("Ranked {} group(s) of {} restaurants", dirty.size(), board.size());
+    }
+    
+    private void load(long now) {
+        // Everything committed up to here is read from the database instead
+        events.clear();
+        board = new RankingBoard(topK, popularHalfLife, trendingHalfLife, now);
+        LocalDateTime since = LocalDateTime.now().minus(history);
+        readOnly.executeWithoutResult(status -> {
+            for (SimpleRestaurantRepository.RankingRow row : shardedQueries.gather(restaurantRepository::findRankingRows)) {
+                board.upsert(new RankingEvents.RestaurantChange(row.getId(), row.getVersion(), true,
+                        row.getCity(), row.getCuisine(), row.getRating() != null ? row.getRating() : 0.0));
+            }
+            for (SimpleReservationRepository.BookingVolumeRow row
+                    : shardedQueries.gather(() -> reservationRepository.countBookingsByHourSince(since))) {
+                // Bookings of the hour are counted at its middle
+                LocalDateTime hour = row.getDay().atTime(row.getHour(), 30);
+                board.addBookings(row.getRestaurantId(), millis(hour), row.getBookings());
+            }
+        });
+        loaded = true;
+        log.info("Loaded restaurant rankings for {} restaurants", board.size());
+    }
+    
+    /**
+     * Renders restaurants that are new to the lists or changed since they were rendered,
+     * reading them in one query per shard.
+     */
+    private void render(Iterable<List<RankingBoard.Entry>> lists) {
+        Set<Long> stale = new HashSet<>();
+        for (List<RankingBoard.Entry> entries : lists) {
+            for (RankingBoard.Entry entry : entries) {
+                Rendered current = rendered.get(entry.id);
+                if (current == null || !Objects.equals(current.version, entry.version)) {
+                    stale.add(entry.id);
+                }
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        readOnly.executeWithoutResult(status -> {
+            List<SimpleRestaurant> restaurants = shardedQueries.gather(() -> restaurantRepository.findAllById(stale),
+                    restaurant -> Hibernate.initialize(restaurant.getGallery()));
+            for (SimpleRestaurant restaurant : restaurants) {
+                rendered.put(restaurant.getId(), new Rendered(restaurant.getVersion(), restaurantJsonCache.json(restaurant)));
+            }
+        });
+    }
+    
+    private void publish(Map<String, List<RankingBoard.Entry>> ranked) {
+        Map<String, RankedList> next = new HashMap<>(published);
+        ranked.forEach((key, entries) -> {
+            List<Long> ids = new ArrayList<>(entries.size());
+            List<RawValue> restaurants = new ArrayList<>(entries.size());
+            long tag = 17;
+            for (RankingBoard.Entry entry : entries) {
+                Rendered restaurant = rendered.get(entry.id);
+                if (restaurant == null) {
+                    continue;
+                }
+                ids.add(entry.id);
+                restaurants.add(restaurant.json);
+                tag = 31 * (31 * tag + entry.id) + (restaurant.version != null ? restaurant.version : 0);
+            }
+            if (ids.isEmpty()) {
+                next.remove(key);
+            } else {
+                next.put(key, new RankedList(List.copyOf(ids), List.copyOf(restaurants), tag));
+            }
+        });
+        published = next;
+        
+        Set<Long> listed = new HashSet<>();
+        next.values().forEach(list -> listed.addAll(list.ids()));
+        rendered.keySet().retainAll(listed);
+    }
+    
+    private static String key(Ranking ranking, String group) {
+        return ranking.name() + '|' + group;
+    }
+    
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000;
+    }
+    
+    private record Rendered(Long version, RawValue json) {
+    }
+}
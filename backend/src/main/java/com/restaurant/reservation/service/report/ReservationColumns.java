@@ -0,0 +1,353 @@
+package com.restaurant.reservation.service.report;
+
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.customer.CustomerProfileService;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, column-oriented copy of the reservations table.
+ *
+ * <p>Each column is a primitive array indexed by row. Restaurants, customers and statuses
+ * are dictionary-encoded: rows hold small codes, and the ids, emails and names are stored
+ * once. Rows are grouped by customer, whose emails are sorted, so the rows of customer
+ * {@code c} are {@code [customerStart[c], customerStart[c + 1])}; {@link #byRestaurant}
+ * lists the rows grouped by restaurant the same way. Start times are minutes since the
+ * epoch in local time.
+ *
+ * <p>The file format is a header with the dictionaries followed by each column in turn,
+ * so loading is a handful of bulk reads.
+ */
+final class ReservationColumns {
+    
+    private static final int MAGIC = 0x52455343;
+    private static final int FORMAT_VERSION = 1;
+    
+    /**
+     * Status codes of the status column, independent of the enum's order. New statuses are
+     * appended. Files also name their statuses, so codes are mapped again when reading.
+     */
+    private static final SimpleReservation.ReservationStatus[] STATUSES = {
+            SimpleReservation.ReservationStatus.PENDING,
+            SimpleReservation.ReservationStatus.CONFIRMED,
+            SimpleReservation.ReservationStatus.CANCELLED,
+            SimpleReservation.ReservationStatus.COMPLETED,
+            SimpleReservation.ReservationStatus.NO_SHOW
+    };
+    private static final Map<SimpleReservation.ReservationStatus, Byte> STATUS_CODES =
+            new EnumMap<>(SimpleReservation.ReservationStatus.class);
+    
+    static {
+        for (byte code = 0; code < STATUSES.length; code++) {
+            STATUS_CODES.put(STATUSES[code], code);
+        }
+        if (STATUS_CODES.size() != SimpleReservation.ReservationStatus.values().length) {
+            throw new IllegalStateException("Every reservation status needs a code in ReservationColumns");
+        }
+    }
+    
+    final long exportedAt;
+    final long[] restaurantIds;
+    final String[] customerEmails;
+    final String[] customerNames;
+    final int[] customerStart;
+    final long[] ids;
+    final int[] restaurant;
+    final byte[] status;
+    final int[] startMinute;
+    final short[] partySize;
+    final int[] byRestaurant;
+    final int[] restaurantStart;
+    private final Map<Long, Integer> restaurantCodes;
+    
+    private ReservationColumns(long exportedAt, long[] restaurantIds, String[] customerEmails, String[] customerNames,
+                               int[] customerStart, long[] ids, int[] restaurant, byte[] status,
+                               int[] startMinute, short[] partySize) {
+        this.exportedAt = exportedAt;
+        this.restaurantIds = restaurantIds;
+        this.customerEmails = customerEmails;
+        this.customerNames = customerNames;
+        this.customerStart = customerStart;
+        this.ids = ids;
+        this.restaurant = restaurant;
+        this.status = status;
+        this.startMinute = startMinute;
+        this.partySize = partySize;
+        
+        this.restaurantCodes = new HashMap<>(restaurantIds.length * 2);
+        for (int code = 0; code < restaurantIds.length; code++) {
+            restaurantCodes.put(restaurantIds[code], code);
+        }
+        this.restaurantStart = new int[restaurantIds.length + 1];
+        this.byRestaurant = groupRows(restaurant, restaurantStart);
+    }
+    
+    int rows() {
+        return ids.length;
+    }
+    
+    int customers() {
+        return customerEmails.length;
+    }
+    
+    int restaurants() {
+        return restaurantIds.length;
+    }
+    
+    /**
+     * The code of a restaurant, or -1 if it has no reservations in the export.
+     */
+    int restaurantCode(Long restaurantId) {
+        return restaurantCodes.getOrDefault(restaurantId, -1);
+    }
+    
+    static int statusCount() {
+        return STATUSES.length;
+    }
+    
+    static SimpleReservation.ReservationStatus status(byte code) {
+        return STATUSES[code];
+    }
+    
+    static byte statusCode(SimpleReservation.ReservationStatus status) {
+        return STATUS_CODES.get(status);
+    }
+    
+    static int toMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+    
+    static LocalDateTime fromMinute(int minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+    
+    void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(exportedAt);
+        out.writeInt(rows());
+        out.writeInt(restaurants());
+        out.writeInt(customers());
+        out.writeInt(STATUSES.length);
+        for (SimpleReservation.ReservationStatus value : STATUSES) {
+            writeString(out, value.name());
+        }
+        for (long id : restaurantIds) {
+            out.writeLong(id);
+        }
+        for (int c = 0; c < customers(); c++) {
+            writeString(out, customerEmails[c]);
+            writeString(out, customerNames[c]);
+        }
+        for (int start : customerStart) {
+            out.writeInt(start);
+        }
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+        for (int code : restaurant) {
+            out.writeInt(code);
+        }
+        out.write(status);
+        for (int minute : startMinute) {
+            out.writeInt(minute);
+        }
+        for (short party : partySize) {
+            out.writeShort(party);
+        }
+        out.flush();
+    }
+    
+    static ReservationColumns read(Path file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a reservation export: " + file);
+        }
+        long exportedAt = in.getLong();
+        int rows = in.getInt();
+        int restaurants = in.getInt();
+        int customers = in.getInt();
+        
+        // Status codes of the file, mapped to the codes used now by name
+        byte[] statusCodes = new byte[in.getInt()];
+        for (int i = 0; i < statusCodes.length; i++) {
+            String name = readString(in);
+            try {
+                statusCodes[i] = statusCode(SimpleReservation.ReservationStatus.valueOf(name));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Unknown reservation status " + name + " in " + file, ex);
+            }
+        }
+        long[] restaurantIds = new long[restaurants];
+        in.asLongBuffer().get(restaurantIds);
+        in.position(in.position() + restaurants * Long.BYTES);
+        String[] emails = new String[customers];
+        String[] names = new String[customers];
+        for (int c = 0; c < customers; c++) {
+            emails[c] = readString(in);
+            names[c] = readString(in);
+        }
+        int[] customerStart = new int[customers + 1];
+        in.asIntBuffer().get(customerStart);
+        in.position(in.position() + customerStart.length * Integer.BYTES);
+        long[] ids = new long[rows];
+        in.asLongBuffer().get(ids);
+        in.position(in.position() + rows * Long.BYTES);
+        int[] restaurant = new int[rows];
+        in.asIntBuffer().get(restaurant);
+        in.position(in.position() + rows * Integer.BYTES);
+        byte[] status = new byte[rows];
+        in.get(status);
+        for (int row = 0; row < rows; row++) {
+            if (status[row] < 0 || status[row] >= statusCodes.length) {
+                throw new IOException("Reservation export " + file + " has an undefined status code " + status[row]);
+            }
+            status[row] = statusCodes[status[row]];
+        }
+        int[] startMinute = new int[rows];
+        in.asIntBuffer().get(startMinute);
+        in.position(in.position() + rows * Integer.BYTES);
+        short[] partySize = new short[rows];
+        in.asShortBuffer().get(partySize);
+        return new ReservationColumns(exportedAt, restaurantIds, emails, names, customerStart,
+                ids, restaurant, status, startMinute, partySize);
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Counting sort of the rows by group code: returns the rows in group order and fills
+     * {@code start} with the first row of every group.
+     */
+    private static int[] groupRows(int[] codes, int[] start) {
+        for (int code : codes) {
+            start[code + 1]++;
+        }
+        for (int group = 1; group < start.length; group++) {
+            start[group] += start[group - 1];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        int[] rows = new int[codes.length];
+        for (int row = 0; row < codes.length; row++) {
+            rows[next[codes[row]]++] = row;
+        }
+        return rows;
+    }
+    
+    /**
+     * Collects exported rows in any order and lays them out by customer.
+     */
+    static final class Builder {
+        private final Map<Long, Integer> restaurantCodes = new HashMap<>();
+        private final Map<String, Integer> customerCodes = new HashMap<>();
+        private String[] names = new String[1024];
+        private long[] nameIds = new long[1024];
+        private long[] ids = new long[1024];
+        private int[] customer = new int[1024];
+        private int[] restaurant = new int[1024];
+        private byte[] status = new byte[1024];
+        private int[] startMinute = new int[1024];
+        private short[] partySize = new short[1024];
+        private int rows;
+        
+        void add(SimpleReservationRepository.ExportRow row) {
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                customer = Arrays.copyOf(customer, capacity);
+                restaurant = Arrays.copyOf(restaurant, capacity);
+                status = Arrays.copyOf(status, capacity);
+                startMinute = Arrays.copyOf(startMinute, capacity);
+                partySize = Arrays.copyOf(partySize, capacity);
+            }
+            String email = CustomerProfileService.normalizeEmail(row.getCustomerEmail());
+            int code = customerCodes.computeIfAbsent(email, key -> customerCodes.size());
+            if (code == names.length) {
+                names = Arrays.copyOf(names, code * 2);
+                nameIds = Arrays.copyOf(nameIds, code * 2);
+            }
+            // The name given most recently wins
+            if (names[code] == null || row.getId() > nameIds[code]) {
+                names[code] = row.getCustomerName();
+                nameIds[code] = row.getId();
+            }
+            ids[rows] = row.getId();
+            customer[rows] = code;
+            restaurant[rows] = restaurantCodes.computeIfAbsent(row.getRestaurantId(), id -> restaurantCodes.size());
+            status[rows] = statusCode(row.getStatus());
+            startMinute[rows] = toMinute(row.getReservationDateTime());
+            partySize[rows] = row.getPartySize().shortValue();
+            rows++;
+        }
+        
+        ReservationColumns build(long exportedAt) {
+            // Customers in email order, restaurants in id order
+            String[] emails = customerCodes.keySet().toArray(new String[0]);
+            Arrays.sort(emails);
+            int[] customerRank = new int[emails.length];
+            String[] sortedNames = new String[emails.length];
+            for (int rank = 0; rank < emails.length; rank++) {
+                int code = customerCodes.get(emails[rank]);
+                customerRank[code] = rank;
+                sortedNames[rank] = names[code];
+            }
+            long[] restaurantIds = restaurantCodes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            int[] restaurantRank = new int[restaurantIds.length];
+            for (int rank = 0; rank < restaurantIds.length; rank++) {
+                restaurantRank[restaurantCodes.get(restaurantIds[rank])] = rank;
+            }
+            
+            int[] ranks = new int[rows];
+            for (int row = 0; row < rows; row++) {
+                ranks[row] = customerRank[customer[row]];
+            }
+            int[] customerStart = new int[emails.length + 1];
+            int[] order = groupRows(ranks, customerStart);
+            
+            long[] sortedIds = new long[rows];
+            int[] sortedRestaurant = new int[rows];
+            byte[] sortedStatus = new byte[rows];
+            int[] sortedStart = new int[rows];
+            short[] sortedParty = new short[rows];
+            for (int i = 0; i < rows; i++) {
+                int row = order[i];
+                sortedIds[i] = ids[row];
+                sortedRestaurant[i] = restaurantRank[restaurant[row]];
+                sortedStatus[i] = status[row];
+                sortedStart[i] = startMinute[row];
+                sortedParty[i] = partySize[row];
+            }
+            return new ReservationColumns(exportedAt, restaurantIds, emails, sortedNames, customerStart,
+                    sortedIds, sortedRestaurant, sortedStatus, sortedStart, sortedParty);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.restaurant.reservation.service.report;
+
+import com.restaurant.reservation.dto.CustomerReportDTO;
+import com.restaurant.reservation.dto.ReservationSummaryDTO;
+import com.restaurant.reservation.dto.RestaurantReportDTO;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Reports over a periodic columnar export of the reservations table.
+ *
+ * <p>Every {@code export-interval}, all reservations are read in id order and written to a
+ * new {@link ReservationColumns} file under {@code path}; the newest file is loaded again at
+ * startup. Without sharding the export reads from a single repeatable-read transaction, so
+ * it is a consistent snapshot of the table. Reports are computed from the columns in
+ * memory on a dedicated fork/join pool and never query the database.
+ *
+ * <p>Visits are completed reservations; covers and the last visit are counted from them.
+ * The no-show rate is the share of no-shows among completed reservations and no-shows.
+ */
+@Service
+@ConditionalOnProperty(name = "app.reports.enabled", havingValue = "true")
+@Slf4j
+public class ReservationReports implements DisposableBean {
+    
+    private static final String FILE_PREFIX = "reservations-";
+    private static final String FILE_SUFFIX = ".col";
+    private static final int KEPT_EXPORTS = 2;
+    private static final int ROWS_PER_TASK = 1 << 16;
+    private static final List<String> CUSTOMER_SORTS =
+            List.of("email", "reservations", "visits", "cancellations", "noShows", "covers", "lastVisit", "noShowRate");
+    private static final List<String> RESTAURANT_SORTS =
+            List.of("restaurantId", "reservations", "visits", "cancellations", "noShows", "covers", "lastVisit", "noShowRate");
+    
+    private static final byte COMPLETED = ReservationColumns.statusCode(SimpleReservation.ReservationStatus.COMPLETED);
+    private static final byte CANCELLED = ReservationColumns.statusCode(SimpleReservation.ReservationStatus.CANCELLED);
+    private static final byte NO_SHOW = ReservationColumns.statusCode(SimpleReservation.ReservationStatus.NO_SHOW);
+    
+    private final SimpleReservationRepository reservationRepository;
+    private final ShardedQueries shardedQueries;
+    private final TransactionTemplate snapshot;
+    private final Path directory;
+    private final Duration exportInterval;
+    private final int batchSize;
+    private final ForkJoinPool pool;
+    private volatile ReservationColumns current;
+    
+    public ReservationReports(SimpleReservationRepository reservationRepository,
+                              ShardedQueries shardedQueries,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.reports.path:data/reports}") Path directory,
+                              @Value("${app.reports.export-interval:PT15M}") Duration exportInterval,
+                              @Value("${app.reports.batch-size:5000}") int batchSize,
+                              @Value("${app.reports.parallelism:0}") int parallelism) throws IOException {
+        this.reservationRepository = reservationRepository;
+        this.shardedQueries = shardedQueries;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.directory = directory;
+        this.exportInterval = exportInterval;
+        this.batchSize = batchSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        Files.createDirectories(directory);
+        
+        List<Path> exports = exports();
+        if (!exports.isEmpty()) {
+            Path latest = exports.get(exports.size() - 1);
+            try {
+                current = ReservationColumns.read(latest);
+                log.info("Loaded reservation export {} with {} reservation(s)", latest, current.rows());
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Unable to load reservation export {}, exporting again", latest, ex);
+            }
+        }
+    }
+    
+    /**
+     * Exports the reservations unless the loaded export is younger than the interval, as
+     * it is right after a restart.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.export-interval:PT15M}")
+    public void export() {
+        ReservationColumns loaded = current;
+        if (loaded != null && System.currentTimeMillis() - loaded.exportedAt < exportInterval.toMillis()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        ReservationColumns columns = shardedQueries.isSharded() ? read(started) : snapshot.execute(status -> read(started));
+        Path file = directory.resolve(FILE_PREFIX + started + FILE_SUFFIX);
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+                columns.write(out);
+                out.getFD().sync();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write reservation export " + file, ex);
+        }
+        current = columns;
+        
+        List<Path> exports = exports();
+        for (Path obsolete : exports.subList(0, Math.max(0, exports.size() - KEPT_EXPORTS))) {
+            try {
+                Files.deleteIfExists(obsolete);
+            } catch (IOException ex) {
+                log.warn("Unable to delete reservation export {}", obsolete, ex);
+            }
+        }
+        log.info("Exported {} reservation(s) of {} customer(s) to {} in {} ms",
+                columns.rows(), columns.customers(), file, System.currentTimeMillis() - started);
+    }
+    
+    /**
+     * Time of the export reports are currently computed from, in epoch milliseconds.
+     */
+    public long exportedAt() {
+        return columns().exportedAt;
+    }
+    
+    public ReservationSummaryDTO summary(Long restaurantId, LocalDate from, LocalDate to) {
+        ReservationColumns columns = columns();
+        Filter filter = filter(columns, restaurantId, from, to);
+        Summary summary = filter.restaurant == Filter.NONE
+                ? new Summary()
+                : pool.invoke(new SummaryTask(columns, filter, 0, columns.rows()));
+        
+        Map<SimpleReservation.ReservationStatus, Long> byStatus = new EnumMap<>(SimpleReservation.ReservationStatus.class);
+        long reservations = 0;
+        for (byte code = 0; code < summary.byStatus.length; code++) {
+            byStatus.put(ReservationColumns.status(code), summary.byStatus[code]);
+            reservations += summary.byStatus[code];
+        }
+        Map<DayOfWeek, Long> byDayOfWeek = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            byDayOfWeek.put(day, summary.byDayOfWeek[day.ordinal()]);
+        }
+        return new ReservationSummaryDTO(exportTime(columns), reservations, byStatus, summary.covers,
+                noShowRate(summary.byStatus[COMPLETED], summary.byStatus[NO_SHOW]), byDayOfWeek, summary.byHour);
+    }
+    
+    /**
+     * Customers with reservations matching the filter. Sortable by {@link #CUSTOMER_SORTS},
+     * by visits descending if unsorted.
+     */
+    public Page<CustomerReportDTO> customers(Long restaurantId, LocalDate from, LocalDate to, Pageable pageable) {
+        ReservationColumns columns = columns();
+        Filter filter = filter(columns, restaurantId, from, to);
+        GroupStats stats = new GroupStats(columns.customers());
+        if (filter.restaurant != Filter.NONE) {
+            pool.invoke(new GroupTask(columns, filter, stats, null, columns.customerStart, 0, columns.customers()));
+        }
+        return page(stats, pageable, CUSTOMER_SORTS, code -> new CustomerReportDTO(
+                columns.customerEmails[code], columns.customerNames[code],
+                stats.reservations[code], stats.visits[code], stats.cancellations[code], stats.noShows[code],
+                stats.covers[code], lastVisit(stats, code), noShowRate(stats.visits[code], stats.noShows[code])));
+    }
+    
+    /**
+     * Restaurants with reservations matching the filter. Sortable by {@link #RESTAURANT_SORTS},
+     * by visits descending if unsorted.
+     */
+    public Page<RestaurantReportDTO> restaurants(LocalDate from, LocalDate to, Pageable pageable) {
+        ReservationColumns columns = columns();
+        Filter filter = filter(columns, null, from, to);
+        GroupStats stats = new GroupStats(columns.restaurants());
+        pool.invoke(new GroupTask(columns, filter, stats, columns.byRestaurant, columns.restaurantStart, 0, columns.restaurants()));
+        return page(stats, pageable, RESTAURANT_SORTS, code -> new RestaurantReportDTO(
+                columns.restaurantIds[code],
+                stats.reservations[code], stats.visits[code], stats.cancellations[code], stats.noShows[code],
+                stats.covers[code], lastVisit(stats, code), noShowRate(stats.visits[code], stats.noShows[code])));
+    }
+    
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+    
+    private ReservationColumns columns() {
+        ReservationColumns columns = current;
+        if (columns == null) {
+            throw new IllegalStateException("Reservations have not been exported yet");
+        }
+        return columns;
+    }
+    
+    /**
+     * Reads all reservations in batches of increasing id. Sharded, every shard returns its
+     * next batch, and only the lowest {@code batchSize} ids of the merged batches are taken:
+     * those are certain to include every reservation below the last id taken.
+     */
+    private ReservationColumns read(long exportedAt) {
+        ReservationColumns.Builder builder = new ReservationColumns.Builder();
+        long afterId = 0;
+        while (true) {
+            long after = afterId;
+            List<SimpleReservationRepository.ExportRow> rows = new ArrayList<>(shardedQueries.gather(
+                    () -> reservationRepository.findExportRowsAfter(after, PageRequest.of(0, batchSize))));
+            if (rows.isEmpty()) {
+                return builder.build(exportedAt);
+            }
+            if (shardedQueries.isSharded()) {
+                rows.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+                rows = rows.subList(0, Math.min(rows.size(), batchSize));
+            }
+            rows.forEach(builder::add);
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+    }
+    
+    private List<Path> exports() {
+        try (Stream<Path> files = Files.list(directory)) {
+            // Names hold the export time, so the newest export sorts last
+            return files.filter(file -> file.getFileName().toString().startsWith(FILE_PREFIX)
+                            && file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted((a, b) -> Long.compare(exportTime(a), exportTime(b)))
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to list reservation exports in " + directory, ex);
+        }
+    }
+    
+    private static long exportTime(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+    
+    private static LocalDateTime exportTime(ReservationColumns columns) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(columns.exportedAt), ZoneId.systemDefault());
+    }
+    
+    private static Filter filter(ReservationColumns columns, Long restaurantId, LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        int restaurant = restaurantId == null ? Filter.ANY : columns.restaurantCode(restaurantId);
+        if (restaurantId != null && restaurant < 0) {
+            restaurant = Filter.NONE;
+        }
+        return new Filter(restaurant,
+                from != null ? ReservationColumns.toMinute(from.atStartOfDay()) : Integer.MIN_VALUE,
+                to != null ? ReservationColumns.toMinute(to.plusDays(1).atStartOfDay()) : Integer.MAX_VALUE);
+    }
+    
+    private static LocalDateTime lastVisit(GroupStats stats, int code) {
+        return stats.lastVisit[code] != Integer.MIN_VALUE ? ReservationColumns.fromMinute(stats.lastVisit[code]) : null;
+    }
+    
+    private static double noShowRate(long visits, long noShows) {
+        return visits + noShows > 0 ? (double) noShows / (visits + noShows) : 0;
+    }
+    
+    /**
+     * Sorts the groups with reservations by one property and cuts the page. Each group is
+     * packed into a long with its sort key in the high half and its code in the low half,
+     * so a primitive sort orders by key and then by code.
+     */
+    private static <T> Page<T> page(GroupStats stats, Pageable pageable, List<String> properties,
+                                    IntFunction<T> row) {
+        Sort.Order order = pageable.getSort().isSorted()
+                ? pageable.getSort().iterator().next()
+                : Sort.Order.desc("visits");
+        int property = properties.indexOf(order.getProperty());
+        if (property < 0) {
+            throw new IllegalArgumentException("Reports can only be sorted by " + String.join(", ", properties));
+        }
+        
+        long[] keys = new long[stats.reservations.length];
+        int count = 0;
+        for (int code = 0; code < keys.length; code++) {
+            if (stats.reservations[code] == 0) {
+                continue;
+            }
+            int key = switch (property) {
+                // Emails and restaurant ids are numbered in order
+                case 0 -> code;
+                case 1 -> stats.reservations[code];
+                case 2 -> stats.visits[code];
+                case 3 -> stats.cancellations[code];
+                case 4 -> stats.noShows[code];
+                case 5 -> (int) Math.min(stats.covers[code], Integer.MAX_VALUE);
+                case 6 -> stats.lastVisit[code];
+                default -> (int) (noShowRate(stats.visits[code], stats.noShows[code]) * 1_000_000);
+            };
+            keys[count++] = (long) (order.isAscending() ? key : ~key) << 32 | code;
+        }
+        Arrays.sort(keys, 0, count);
+        
+        List<T> content = new ArrayList<>();
+        if (pageable.isPaged()) {
+            long end = Math.min(count, pageable.getOffset() + pageable.getPageSize());
+            for (long i = pageable.getOffset(); i < end; i++) {
+                content.add(row.apply((int) keys[(int) i]));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                content.add(row.apply((int) keys[i]));
+            }
+        }
+        return new PageImpl<>(content, pageable, count);
+    }
+    
+    /**
+     * Rows to count: those of one restaurant code, or of {@link #ANY}, starting in
+     * {@code [fromMinute, toMinute)}. {@link #NONE} matches nothing.
+     */
+    private record Filter(int restaurant, int fromMinute, int toMinute) {
+        static final int ANY = -1;
+        static final int NONE = -2;
+        
+        boolean matches(ReservationColumns columns, int row) {
+            int start = columns.startMinute[row];
+            return (restaurant == ANY || columns.restaurant[row] == restaurant)
+                    && start >= fromMinute && start < toMinute;
+        }
+    }
+    
+    private static final class Summary {
+        final long[] byStatus = new long[ReservationColumns.statusCount()];
+        final long[] byDayOfWeek = new long[7];
+        final long[] byHour = new long[24];
+        long covers;
+        
+        Summary merge(Summary other) {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] += other.byStatus[i];
+            }
+            for (int i = 0; i < byDayOfWeek.length; i++) {
+                byDayOfWeek[i] += other.byDayOfWeek[i];
+            }
+            for (int i = 0; i < byHour.length; i++) {
+                byHour[i] += other.byHour[i];
+            }
+            covers += other.covers;
+            return this;
+        }
+    }
+    
+    /**
+     * Counts a range of rows, splitting it in halves down to {@link #ROWS_PER_TASK}.
+     */
+    private static final class SummaryTask extends RecursiveTask<Summary> {
+        private final ReservationColumns columns;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+        
+        SummaryTask(ReservationColumns columns, Filter filter, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Summary compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SummaryTask left = new SummaryTask(columns, filter, from, middle);
+                left.fork();
+                Summary right = new SummaryTask(columns, filter, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Summary summary = new Summary();
+            byte[] status = columns.status;
+            int[] startMinute = columns.startMinute;
+            short[] partySize = columns.partySize;
+            for (int row = from; row < to; row++) {
+                if (!filter.matches(columns, row)) {
+                    continue;
+                }
+                summary.byStatus[status[row]]++;
+                if (status[row] == COMPLETED) {
+                    summary.covers += partySize[row];
+                }
+                // Epoch day 0 was a Thursday
+                int day = Math.floorDiv(startMinute[row], 1440);
+                summary.byDayOfWeek[Math.floorMod(day + 3, 7)]++;
+                summary.byHour[Math.floorMod(startMinute[row], 1440) / 60]++;
+            }
+            return summary;
+        }
+    }
+    
+    /**
+     * Counters per group code, each written by the one task that owns the group.
+     */
+    private static final class GroupStats {
+        final int[] reservations;
+        final int[] visits;
+        final int[] cancellations;
+        final int[] noShows;
+        final long[] covers;
+        final int[] lastVisit;
+        
+        GroupStats(int groups) {
+            reservations = new int[groups];
+            visits = new int[groups];
+            cancellations = new int[groups];
+            noShows = new int[groups];
+            covers = new long[groups];
+            lastVisit = new int[groups];
+            Arrays.fill(lastVisit, Integer.MIN_VALUE);
+        }
+    }
+    
+    /**
+     * Counts the rows of a range of groups. Group {@code g} owns positions
+     * {@code [start[g], start[g + 1])}, which are rows themselves or indexes into
+     * {@code rows}.
+     */
+    private static final class GroupTask extends RecursiveAction {
+        private final ReservationColumns columns;
+        private final Filter filter;
+        private final GroupStats stats;
+        private final int[] rows;
+        private final int[] start;
+        private final int from;
+        private final int to;
+        
+        GroupTask(ReservationColumns columns, Filter filter, GroupStats stats, int[] rows, int[] start, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.stats = stats;
+            this.rows = rows;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > 1 && start[to] - start[from] > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GroupTask(columns, filter, stats, rows, start, from, middle),
+                        new GroupTask(columns, filter, stats, rows, start, middle, to));
+                return;
+            }
+            byte[] status = columns.status;
+            short[] partySize = columns.partySize;
+            int[] startMinute = columns.startMinute;
+            for (int group = from; group < to; group++) {
+                for (int position = start[group]; position < start[group + 1]; position++) {
+                    int row = rows != null ? rows[position] : position;
+                    if (!filter.matches(columns, row)) {
+                        continue;
+                    }
+                    stats.reservations[group]++;
+                    byte code = status[row];
+                    if (code == COMPLETED) {
+                        stats.visits[group]++;
+                        stats.covers[group] += partySize[row];
+                        stats.lastVisit[group] = Math.max(stats.lastVisit[group], startMinute[row]);
+                    } else if (code == CANCELLED) {
+                        stats.cancellations[group]++;
+                    } else if (code == NO_SHOW) {
+                        stats.noShows[group]++;
+                    }
+                }
+            }
+        }
+    }
+}
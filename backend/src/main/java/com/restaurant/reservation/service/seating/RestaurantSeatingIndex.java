@@ -0,0 +1,222 @@
+package com.restaurant.reservation.service.seating;
+
+import com.restaurant.reservation.model.RestaurantTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory seating state of one restaurant: its active tables ordered by capacity
+ * and a {@link TableSchedule} per table. All access is serialized on the instance.
+ */
+final class RestaurantSeatingIndex {
+    
+    private static final long EVICTION_INTERVAL_MINUTES = 60;
+    
+    private final Long restaurantId;
+    private final List<TableSlot> tables;
+    private final Map<Long, TableSlot> tablesById = new HashMap<>();
+    private long lastEvictionMinute;
+    
+    RestaurantSeatingIndex(Long restaurantId, List<RestaurantTable> activeTables) {
+        this.restaurantId = restaurantId;
+        this.tables = new ArrayList<>(activeTables.size());
+        for (RestaurantTable table : activeTables) {
+            TableSlot slot = new TableSlot(table);
+            tables.add(slot);
+            tablesById.put(slot.tableId, slot);
+        }
+        tables.sort(Comparator.comparingInt((TableSlot slot) -> slot.capacity).thenComparing(slot -> slot.tableId));
+    }
+    
+    boolean hasTables() {
+        return !tables.isEmpty();
+    }
+    
+    synchronized SeatingPlan allocate(int partySize, long start, long end) {
+        SeatingPlan plan = findSingleTable(partySize, start, end);
+        if (plan == null) {
+            plan = findCombination(partySize, start, end);
+        }
+        if (plan != null) {
+            book(plan.getTableIds(), start, end);
+        }
+        return plan;
+    }
+    
+    /**
+     * Frees the old tables and seats the party again for the new window in one step.
+     * If nothing fits, the old tables stay booked and null is returned.
+     */
+    synchronized SeatingPlan move(Collection<Long> oldTableIds, long oldStart, long oldEnd,
+                                  int partySize, long start, long end) {
+        release(oldTableIds, oldStart, oldEnd);
+        SeatingPlan plan = allocate(partySize, start, end);
+        if (plan == null) {
+            book(oldTableIds, oldStart, oldEnd);
+        }
+        return plan;
+    }
+    
+    synchronized void rebook(Collection<Long> releaseTableIds, long releaseStart, long releaseEnd,
+                             Collection<Long> bookTableIds, long bookStart, long bookEnd) {
+        release(releaseTableIds, releaseStart, releaseEnd);
+        book(bookTableIds, bookStart, bookEnd);
+    }
+    
+    synchronized boolean fits(int partySize, long start, long end) {
+        return findSingleTable(partySize, start, end) != null || findCombination(partySize, start, end) != null;
+    }
+    
+    /**
+     * Books every table for the window, or none if any of them is taken.
+     */
+    synchronized void book(Collection<Long> tableIds, long start, long end) {
+        for (Long tableId : tableIds) {
+            TableSlot slot = tablesById.get(tableId);
+            if (slot != null && !slot.schedule.isFree(start, end)) {
+                throw new IllegalStateException("Table " + tableId + " of restaurant " + restaurantId
+                        + " is already booked within [" + start + ", " + end + ")");
+            }
+        }
+        for (Long tableId : tableIds) {
+            TableSlot slot = tablesById.get(tableId);
+            if (slot != null) {
+                slot.schedule.book(start, end);
+            }
+        }
+    }
+    
+    synchronized void release(Collection<Long> tableIds, long start, long end) {
+        for (Long tableId : tableIds) {
+            TableSlot slot = tablesById.get(tableId);
+            if (slot != null) {
+                slot.schedule.release(start, end);
+            }
+        }
+    }
+    
+    synchronized void evictEndingBefore(long cutoff) {
+        if (cutoff - lastEvictionMinute < EVICTION_INTERVAL_MINUTES) {
+            return;
+        }
+        lastEvictionMinute = cutoff;
+        for (TableSlot slot : tables) {
+            slot.schedule.evictEndingBefore(cutoff);
+        }
+    }
+    
+    synchronized int bookedIntervals() {
+        int total = 0;
+        for (TableSlot slot : tables) {
+            total += slot.schedule.size();
+        }
+        return total;
+    }
+    
+    /**
+     * Best fit: tables are sorted by capacity, so the first free table that is large
+     * enough wastes the fewest seats.
+     */
+    private SeatingPlan findSingleTable(int partySize, long start, long end) {
+        for (TableSlot slot : tables) {
+            if (slot.capacity >= partySize && slot.schedule.isFree(start, end)) {
+                return new SeatingPlan(restaurantId, List.of(slot.tableId), slot.capacity, start, end);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Smallest set of free, combinable tables within one combination group whose seats
+     * cover the party. Solved as a 0/1 subset sum per group; groups are small, so this
+     * stays in the microsecond range.
+     */
+    private SeatingPlan findCombination(int partySize, long start, long end) {
+        Map<String, List<TableSlot>> freeByGroup = new LinkedHashMap<>();
+        for (TableSlot slot : tables) {
+            if (slot.combinable && slot.group != null && slot.schedule.isFree(start, end)) {
+                freeByGroup.computeIfAbsent(slot.group, key -> new ArrayList<>()).add(slot);
+            }
+        }
+        
+        SeatingPlan best = null;
+        for (List<TableSlot> candidates : freeByGroup.values()) {
+            SeatingPlan plan = smallestCovering(candidates, partySize, start, end);
+            if (plan != null && (best == null
+                    || plan.getSeats() < best.getSeats()
+                    || (plan.getSeats() == best.getSeats() && plan.getTableIds().size() < best.getTableIds().size()))) {
+                best = plan;
+            }
+        }
+        return best;
+    }
+    
+    private SeatingPlan smallestCovering(List<TableSlot> candidates, int partySize, long start, long end) {
+        int n = candidates.size();
+        if (n < 2) {
+            return null;
+        }
+        int maxCapacity = candidates.get(n - 1).capacity;
+        int limit = partySize + maxCapacity;
+        
+        // fewest[i][s]: fewest tables among the first i candidates summing to exactly s seats
+        int[][] fewest = new int[n + 1][limit];
+        for (int[] row : fewest) {
+            Arrays.fill(row, Integer.MAX_VALUE);
+        }
+        fewest[0][0] = 0;
+        for (int i = 1; i <= n; i++) {
+            int capacity = candidates.get(i - 1).capacity;
+            for (int s = 0; s < limit; s++) {
+                fewest[i][s] = fewest[i - 1][s];
+                if (s >= capacity && fewest[i - 1][s - capacity] != Integer.MAX_VALUE) {
+                    fewest[i][s] = Math.min(fewest[i][s], fewest[i - 1][s - capacity] + 1);
+                }
+            }
+        }
+        
+        int seats = -1;
+        for (int s = partySize; s < limit; s++) {
+            if (fewest[n][s] != Integer.MAX_VALUE) {
+                seats = s;
+                break;
+            }
+        }
+        if (seats < 0) {
+            return null;
+        }
+        
+        List<Long> chosen = new ArrayList<>();
+        int remaining = seats;
+        for (int i = n; i > 0 && remaining > 0; i--) {
+            int capacity = candidates.get(i - 1).capacity;
+            if (fewest[i][remaining] != fewest[i - 1][remaining]) {
+                chosen.add(candidates.get(i - 1).tableId);
+                remaining -= capacity;
+            }
+        }
+        return new SeatingPlan(restaurantId, chosen, seats, start, end);
+    }
+    
+    private static final class TableSlot {
+        private final Long tableId;
+        private final int capacity;
+        private final boolean combinable;
+        private final String group;
+        private final TableSchedule schedule = new TableSchedule();
+        
+        private TableSlot(RestaurantTable table) {
+            this.tableId = table.getId();
+            this.capacity = table.getCapacity();
+            this.combinable = Boolean.TRUE.equals(table.getCombinable());
+            this.group = table.getCombinationGroup();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.restaurant.reservation.service.seating;
+
+import com.restaurant.reservation.model.RestaurantTable;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.repository.RestaurantTableRepository;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.PrimaryReads;
+import com.restaurant.reservation.service.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns reservations to concrete tables for their duration.
+ * Each restaurant's seating state is loaded once from the database and then kept
+ * in memory, so admission decisions do not touch the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatingAllocator {
+    
+    private final RestaurantTableRepository tableRepository;
+    private final SimpleReservationRepository reservationRepository;
+    private final PrimaryReads primaryReads;
+    
+    private final ConcurrentHashMap<Long, RestaurantSeatingIndex> indexes = new ConcurrentHashMap<>();
+    
+    public boolean hasTables(Long restaurantId) {
+        return index(restaurantId).hasTables();
+    }
+    
+    /**
+     * Books the best fitting table, or combination of tables, for the party.
+     * The booking is rolled back in memory if the surrounding transaction does not commit.
+     */
+    public Optional<SeatingPlan> allocate(Long restaurantId, LocalDateTime start, int durationMinutes, int partySize) {
+        long startMinute = toMinute(start);
+        long endMinute = startMinute + durationMinutes;
+        
+        RestaurantSeatingIndex index = index(restaurantId);
+        index.evictEndingBefore(toMinute(LocalDateTime.now()));
+        SeatingPlan plan = index.allocate(partySize, startMinute, endMinute);
+        if (plan == null) {
+            return Optional.empty();
+        }
+        
+        log.debug("Seated party of {} at restaurant {} on tables {}", partySize, restaurantId, plan.getTableIds());
+        TransactionHooks.afterRollback(() -> index.release(plan.getTableIds(), startMinute, endMinute));
+        return Optional.of(plan);
+    }
+    
+    /**
+     * Re-seats an existing reservation for a new window, releasing its current tables in
+     * the same step. Returns empty, leaving the current tables booked, if nothing fits.
+     */
+    public Optional<SeatingPlan> move(SimpleReservation reservation, LocalDateTime start, int durationMinutes, int partySize) {
+        Long restaurantId = reservation.getRestaurant().getId();
+        List<Long> oldTableIds = tableIds(reservation);
+        long oldStart = toMinute(reservation.getReservationDateTime());
+        long oldEnd = oldStart + reservation.getEffectiveDurationMinutes();
+        long startMinute = toMinute(start);
+        long endMinute = startMinute + durationMinutes;
+        
+        RestaurantSeatingIndex index = index(restaurantId);
+        SeatingPlan plan = index.move(oldTableIds, oldStart, oldEnd, partySize, startMinute, endMinute);
+        if (plan == null) {
+            return Optional.empty();
+        }
+        TransactionHooks.afterRollback(() -> {
+            try {
+                index.rebook(plan.getTableIds(), startMinute, endMinute, oldTableIds, oldStart, oldEnd);
+            } catch (IllegalStateException ex) {
+                // The old tables were taken while they were released; rebuilt from the database on next use
+                log.warn("Restoring the seating of reservation {} failed, reloading restaurant {}: {}",
+                        reservation.getId(), restaurantId, ex.getMessage());
+                indexes.remove(restaurantId, index);
+            }
+        });
+        return Optional.of(plan);
+    }
+    
+    /**
+     * Whether the party could be seated for the window without booking anything.
+     */
+    public boolean fits(Long restaurantId, LocalDateTime start, int durationMinutes, int partySize) {
+        long startMinute = toMinute(start);
+        return index(restaurantId).fits(partySize, startMinute, startMinute + durationMinutes);
+    }
+    
+    /**
+     * Frees the tables held by a reservation once the surrounding transaction commits.
+     */
+    public void release(SimpleReservation reservation) {
+        if (reservation.getTables().isEmpty()) {
+            return;
+        }
+        Long restaurantId = reservation.getRestaurant().getId();
+        List<Long> tableIds = tableIds(reservation);
+        long startMinute = toMinute(reservation.getReservationDateTime());
+        long endMinute = startMinute + reservation.getEffectiveDurationMinutes();
+        
+        TransactionHooks.afterCommit(() -> index(restaurantId).release(tableIds, startMinute, endMinute));
+    }
+    
+    /**
+     * Drops the cached seating state so it is rebuilt after table changes.
+     */
+    public void evict(Long restaurantId) {
+        TransactionHooks.afterCommit(() -> indexes.remove(restaurantId));
+    }
+    
+    public int loadedRestaurants() {
+        return indexes.size();
+    }
+    
+    private RestaurantSeatingIndex index(Long restaurantId) {
+        return indexes.computeIfAbsent(restaurantId, id -> primaryReads.read(() -> load(id)));
+    }
+    
+    private RestaurantSeatingIndex load(Long restaurantId) {
+        List<RestaurantTable> tables = tableRepository.findByRestaurantIdAndActiveTrueOrderByCapacityAsc(restaurantId);
+        RestaurantSeatingIndex index = new RestaurantSeatingIndex(restaurantId, tables);
+        if (!index.hasTables()) {
+            return index;
+        }
+        
+        LocalDateTime from = LocalDateTime.now().minusMinutes(SimpleReservation.MAX_DURATION_MINUTES);
+        for (SimpleReservation reservation : reservationRepository.findSeatedFrom(restaurantId, from)) {
+            long startMinute = toMinute(reservation.getReservationDateTime());
+            try {
+                index.book(tableIds(reservation), startMinute, startMinute + reservation.getEffectiveDurationMinutes());
+            } catch (IllegalStateException ex) {
+                log.warn("Reservation {} overlaps another seating and is left out of the seating index: {}",
+                        reservation.getId(), ex.getMessage());
+            }
+        }
+        log.debug("Loaded seating index for restaurant {} with {} tables and {} bookings",
+                restaurantId, tables.size(), index.bookedIntervals());
+        return index;
+    }
+    
+    static long toMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+    
+    private static List<Long> tableIds(SimpleReservation reservation) {
+        return reservation.getTables().stream()
+                .map(RestaurantTable::getId)
+                .collect(Collectors.toList());
+    }
+}
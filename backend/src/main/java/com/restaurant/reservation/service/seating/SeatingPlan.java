@@ -0,0 +1,30 @@
+package com.restaurant.reservation.service.seating;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Concrete tables assigned to a party for the duration of a reservation.
+ */
+@Getter
+public class SeatingPlan {
+    
+    private final Long restaurantId;
+    private final List<Long> tableIds;
+    private final int seats;
+    private final long startMinute;
+    private final long endMinute;
+    
+    SeatingPlan(Long restaurantId, List<Long> tableIds, int seats, long startMinute, long endMinute) {
+        this.restaurantId = restaurantId;
+        this.tableIds = List.copyOf(tableIds);
+        this.seats = seats;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+    
+    public boolean isCombined() {
+        return tableIds.size() > 1;
+    }
+}
@@ -0,0 +1,43 @@
+package com.restaurant.reservation.service.seating;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Booked intervals of a single table, keyed by start minute.
+ * A table seats one party at a time, so stored intervals never overlap and a
+ * floor lookup on the start key is enough to answer overlap queries in O(log n).
+ */
+final class TableSchedule {
+    
+    private final NavigableMap<Long, Long> intervals = new TreeMap<>();
+    
+    boolean isFree(long start, long end) {
+        Map.Entry<Long, Long> previous = intervals.lowerEntry(end);
+        return previous == null || previous.getValue() <= start;
+    }
+    
+    /**
+     * Books [start, end), which must be free; an overlapping booking would break the
+     * lookup in {@link #isFree(long, long)}.
+     */
+    void book(long start, long end) {
+        if (start >= end || !isFree(start, end)) {
+            throw new IllegalStateException("Table is already booked within [" + start + ", " + end + ")");
+        }
+        intervals.put(start, end);
+    }
+    
+    void release(long start, long end) {
+        intervals.remove(start, end);
+    }
+    
+    void evictEndingBefore(long cutoff) {
+        intervals.headMap(cutoff).values().removeIf(end -> end <= cutoff);
+    }
+    
+    int size() {
+        return intervals.size();
+    }
+}
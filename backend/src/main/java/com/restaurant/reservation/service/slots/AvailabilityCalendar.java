@@ -0,0 +1,193 @@
+package com.restaurant.reservation.service.slots;
+
+import com.restaurant.reservation.dto.AvailabilityCalendarDTO;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.TransactionHooks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remaining covers for every slot of a restaurant's {@link SlotGrid} over a range of
+ * service days.
+ *
+ * <p>Booked covers are read with one grouped query for the whole range and swept into
+ * five-minute buckets. A slot's remaining covers are the capacity minus the peak over
+ * its stay, found with a sliding window maximum, since slots are in time order. For
+ * restaurants seated at tables this is an upper bound; booking still checks table fit.
+ *
+ * <p>Calendars are cached for {@code app.calendar.ttl} per restaurant version, range,
+ * party size and duration. A committed booking change of the restaurant moves its
+ * generation, which discards its cached calendars.
+ */
+@Component
+@Slf4j
+public class AvailabilityCalendar {
+    
+    private static final int BUCKET_MINUTES = 5;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private final SimpleReservationRepository reservationRepository;
+    private final Duration ttl;
+    private final int maxDays;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> generations = new ConcurrentHashMap<>();
+    
+    public AvailabilityCalendar(SimpleReservationRepository reservationRepository,
+                                @Value("${app.calendar.ttl:PT30S}") Duration ttl,
+                                @Value("${app.calendar.max-days:62}") int maxDays,
+                                @Value("${app.calendar.max-entries:10000}") int maxEntries) {
+        this.reservationRepository = reservationRepository;
+        this.ttl = ttl;
+        this.maxDays = maxDays;
+        this.maxEntries = maxEntries;
+    }
+    
+    /**
+     * The calendar of {@code days} service days starting at {@code from}. Runs the
+     * occupancy query on the calling thread's shard and transaction when not cached.
+     */
+    public AvailabilityCalendarDTO calendar(SimpleRestaurant restaurant, SlotGrid grid, LocalDate from, int days,
+                                            int partySize, int durationMinutes) {
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Calendar must cover between 1 and " + maxDays + " days");
+        }
+        Key key = new Key(restaurant.getId(), from, days, partySize, durationMinutes);
+        long version = restaurant.getVersion() != null ? restaurant.getVersion() : -1;
+        // Read before querying: a booking committing meanwhile leaves the result stale, not the cache
+        long generation = generations.getOrDefault(restaurant.getId(), 0L);
+        long now = System.currentTimeMillis();
+        
+        Entry cached = entries.get(key);
+        if (cached != null && cached.expiresAt > now && cached.calendar.getRestaurantVersion() == version
+                && cached.calendar.getGeneration() == generation) {
+            return cached.calendar;
+        }
+        
+        AvailabilityCalendarDTO calendar = compute(restaurant, grid, from, days, partySize, durationMinutes,
+                version, generation);
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+        }
+        // Beyond the limit calendars are still computed, just not kept
+        if (cached != null || entries.size() < maxEntries) {
+            entries.put(key, new Entry(now + ttl.toMillis(), calendar));
+        }
+        return calendar;
+    }
+    
+    /**
+     * Discards the restaurant's cached calendars once the surrounding transaction commits.
+     */
+    public void invalidate(Long restaurantId) {
+        TransactionHooks.afterCommit(() -> generations.merge(restaurantId, 1L, Long::sum));
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    private AvailabilityCalendarDTO compute(SimpleRestaurant restaurant, SlotGrid grid, LocalDate from, int days,
+                                            int partySize, int durationMinutes, long version, long generation) {
+        LocalDateTime origin = from.atStartOfDay();
+        // The last day's slots may start past midnight and run for the whole duration
+        int buckets = ceilDiv((days + 1) * MINUTES_PER_DAY + durationMinutes, BUCKET_MINUTES);
+        int[] covers = bookedCovers(restaurant.getId(), origin, buckets);
+        
+        int capacity = restaurant.getCapacity();
+        LocalDateTime now = LocalDateTime.now();
+        int[] window = new int[buckets];
+        int head = 0;
+        int tail = 0;
+        int next = 0;
+        
+        List<AvailabilityCalendarDTO.Day> calendar = new ArrayList<>(days);
+        for (int d = 0; d < days; d++) {
+            LocalDate date = from.plusDays(d);
+            List<LocalDateTime> starts = grid.slots(date);
+            List<AvailabilityCalendarDTO.Slot> slots = new ArrayList<>(starts.size());
+            int available = 0;
+            for (LocalDateTime start : starts) {
+                int minute = (int) Duration.between(origin, start).toMinutes();
+                int first = minute / BUCKET_MINUTES;
+                int end = ceilDiv(minute + durationMinutes, BUCKET_MINUTES);
+                // Sliding window maximum: the window's bounds only move forward
+                for (; next < end; next++) {
+                    while (tail > head && covers[window[tail - 1]] <= covers[next]) {
+                        tail--;
+                    }
+                    window[tail++] = next;
+                }
+                while (window[head] < first) {
+                    head++;
+                }
+                int remaining = start.isBefore(now) ? 0 : Math.max(0, capacity - covers[window[head]]);
+                if (remaining >= partySize) {
+                    available++;
+                }
+                slots.add(new AvailabilityCalendarDTO.Slot(start, remaining));
+            }
+            calendar.add(new AvailabilityCalendarDTO.Day(date, !starts.isEmpty(), available, slots));
+        }
+        return new AvailabilityCalendarDTO(restaurant.getId(), partySize, durationMinutes, calendar,
+                version, generation);
+    }
+    
+    /**
+     * Covers seated per bucket from {@code origin}, from a difference array over the
+     * summed reservations.
+     */
+    private int[] bookedCovers(Long restaurantId, LocalDateTime origin, int buckets) {
+        List<SimpleReservationRepository.CoverSumRow> rows = reservationRepository.sumActiveCovers(restaurantId,
+                origin.minusMinutes(SimpleReservation.MAX_DURATION_MINUTES),
+                origin.plusMinutes((long) buckets * BUCKET_MINUTES));
+        int[] covers = new int[buckets + 1];
+        for (SimpleReservationRepository.CoverSumRow row : rows) {
+            long start = Duration.between(origin, row.getReservationDateTime()).toMinutes();
+            int duration = row.getDurationMinutes() != null
+                    ? row.getDurationMinutes() : SimpleReservation.DEFAULT_DURATION_MINUTES;
+            int first = (int) Math.max(0, Math.floorDiv(start, BUCKET_MINUTES));
+            int end = (int) Math.min(buckets, ceilDiv(start + duration, BUCKET_MINUTES));
+            if (first < end) {
+                covers[first] += row.getCovers().intValue();
+                covers[end] -= row.getCovers().intValue();
+            }
+        }
+        for (int i = 1; i < buckets; i++) {
+            covers[i] += covers[i - 1];
+        }
+        log.debug("Computed availability of restaurant {} from {} grouped reservations", restaurantId, rows.size());
+        return covers;
+    }
+    
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+    
+    private static long ceilDiv(long value, int divisor) {
+        return Math.floorDiv(value + divisor - 1, divisor);
+    }
+    
+    private record Key(Long restaurantId, LocalDate from, int days, int partySize, int durationMinutes) {
+    }
+    
+    private static final class Entry {
+        private final long expiresAt;
+        private final AvailabilityCalendarDTO calendar;
+        
+        private Entry(long expiresAt, AvailabilityCalendarDTO calendar) {
+            this.expiresAt = expiresAt;
+            this.calendar = calendar;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.restaurant.reservation.service.slots;
+
+import com.restaurant.reservation.model.SimpleRestaurant;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The bookable start times of one restaurant version: every {@code slotIntervalMinutes}
+ * from opening until the last start before closing. Minutes are counted from midnight
+ * of the service day, so a closing time before the opening time lies on the next day;
+ * equal times mean open around the clock. Blackout dates remove a whole service day.
+ *
+ * <p>The grid is computed once per version, so checking a start time is a few integer
+ * comparisons and listing a day's slots only pairs precomputed times with the date.
+ */
+public final class SlotGrid {
+    
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    
+    private final Long version;
+    private final int opening;
+    private final int closing;
+    private final int interval;
+    private final LocalTime[] times;
+    private final boolean[] nextDay;
+    private final Set<LocalDate> blackoutDates;
+    
+    SlotGrid(Long version, LocalTime openingTime, LocalTime closingTime, int interval, Set<LocalDate> blackoutDates) {
+        this.version = version;
+        this.opening = minuteOfDay(openingTime);
+        int close = minuteOfDay(closingTime);
+        this.closing = close > opening ? close : close + MINUTES_PER_DAY;
+        this.interval = interval;
+        this.blackoutDates = Set.copyOf(blackoutDates);
+        
+        int count = (closing - opening + interval - 1) / interval;
+        this.times = new LocalTime[count];
+        this.nextDay = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int minute = opening + i * interval;
+            times[i] = LocalTime.of(minute % MINUTES_PER_DAY / 60, minute % 60);
+            nextDay[i] = minute >= MINUTES_PER_DAY;
+        }
+    }
+    
+    static SlotGrid of(SimpleRestaurant restaurant) {
+        return new SlotGrid(restaurant.getVersion(), restaurant.getOpeningTime(), restaurant.getClosingTime(),
+                restaurant.getEffectiveSlotIntervalMinutes(), restaurant.getBlackoutDates());
+    }
+    
+    Long version() {
+        return version;
+    }
+    
+    public int intervalMinutes() {
+        return interval;
+    }
+    
+    public boolean isBlackedOut(LocalDate serviceDate) {
+        return blackoutDates.contains(serviceDate);
+    }
+    
+    /**
+     * The service day a bookable start time belongs to, or null if it is not a slot.
+     */
+    public LocalDate serviceDateOf(LocalDateTime start) {
+        if (start.getSecond() != 0 || start.getNano() != 0) {
+            return null;
+        }
+        int minute = minuteOfDay(start.toLocalTime());
+        if (isSlot(minute)) {
+            return isBlackedOut(start.toLocalDate()) ? null : start.toLocalDate();
+        }
+        LocalDate previousDay = start.toLocalDate().minusDays(1);
+        if (isSlot(minute + MINUTES_PER_DAY) && !isBlackedOut(previousDay)) {
+            return previousDay;
+        }
+        return null;
+    }
+    
+    public boolean isBookable(LocalDateTime start) {
+        return serviceDateOf(start) != null;
+    }
+    
+    /**
+     * Throws {@link IllegalArgumentException} saying why {@code start} cannot be booked.
+     */
+    public void validate(LocalDateTime start) {
+        if (isBookable(start)) {
+            return;
+        }
+        int minute = minuteOfDay(start.toLocalTime());
+        boolean open = isOpen(minute) || isOpen(minute + MINUTES_PER_DAY);
+        if (!open) {
+            throw new IllegalArgumentException("Restaurant is closed at " + start.toLocalTime());
+        }
+        if (start.getSecond() == 0 && start.getNano() == 0 && (isSlot(minute) || isSlot(minute + MINUTES_PER_DAY))) {
+            LocalDate serviceDate = isSlot(minute) ? start.toLocalDate() : start.toLocalDate().minusDays(1);
+            throw new IllegalArgumentException("Restaurant takes no reservations on " + serviceDate);
+        }
+        throw new IllegalArgumentException("Reservations start every " + interval + " minutes from "
+                + times[0]);
+    }
+    
+    /**
+     * All start times of a service day, in order; empty on blackout dates.
+     */
+    public List<LocalDateTime> slots(LocalDate serviceDate) {
+        if (isBlackedOut(serviceDate)) {
+            return Collections.emptyList();
+        }
+        LocalDate followingDay = serviceDate.plusDays(1);
+        List<LocalDateTime> slots = new ArrayList<>(times.length);
+        for (int i = 0; i < times.length; i++) {
+            slots.add(LocalDateTime.of(nextDay[i] ? followingDay : serviceDate, times[i]));
+        }
+        return slots;
+    }
+    
+    private boolean isOpen(int minute) {
+        return minute >= opening && minute < closing;
+    }
+    
+    private boolean isSlot(int minute) {
+        return isOpen(minute) && (minute - opening) % interval == 0;
+    }
+    
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
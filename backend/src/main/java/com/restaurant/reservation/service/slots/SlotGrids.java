@@ -0,0 +1,46 @@
+package com.restaurant.reservation.service.slots;
+
+import com.restaurant.reservation.model.SimpleRestaurant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link SlotGrid} of each restaurant, cached per entity version. Changing the hours,
+ * slot interval or blackout dates increments the version, so a stale grid is never used.
+ */
+@Component
+public class SlotGrids {
+    
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, SlotGrid> grids = new ConcurrentHashMap<>();
+    
+    public SlotGrids(@Value("${app.slots.max-entries:50000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+    
+    /**
+     * The restaurant's grid; building it reads the lazy blackout dates, so call this
+     * within the restaurant's session.
+     */
+    public SlotGrid of(SimpleRestaurant restaurant) {
+        Long id = restaurant.getId();
+        SlotGrid cached = grids.get(id);
+        if (cached != null && Objects.equals(cached.version(), restaurant.getVersion())) {
+            return cached;
+        }
+        
+        SlotGrid grid = SlotGrid.of(restaurant);
+        // Beyond the limit grids are still built, just not kept
+        if (id != null && restaurant.getVersion() != null && (cached != null || grids.size() < maxEntries)) {
+            grids.put(id, grid);
+        }
+        return grid;
+    }
+    
+    public int size() {
+        return grids.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.restaurant.reservation.sharding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated service method on the shard that owns a restaurant.
+ *
+ * <p>The value is a SpEL expression over the method parameters, e.g. {@code "#restaurantId"}
+ * or {@code "#dto.restaurantId"}. A numeric key is any entity id; ids are allocated so that
+ * they identify their shard. A string key places a new restaurant by name. Without sharding
+ * enabled the annotation has no effect.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface OnShard {
+    
+    String value();
+}
@@ -0,0 +1,54 @@
+package com.restaurant.reservation.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scopes {@link OnShard} methods to their shard. Ordered before the transaction interceptor,
+ * so the transaction already runs on the right shard, but after Spring's own
+ * {@code ExposeInvocationInterceptor}, which argument binding relies on.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ShardBindingAspect {
+    
+    private final ShardMap shardMap;
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Expression> keys = new ConcurrentHashMap<>();
+    
+    public ShardBindingAspect(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+    
+    @Around("@annotation(onShard)")
+    public Object onShard(ProceedingJoinPoint joinPoint, OnShard onShard) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object key = keys.computeIfAbsent(method, m -> parser.parseExpression(onShard.value()))
+                .getValue(new MethodBasedEvaluationContext(joinPoint.getTarget(), method, joinPoint.getArgs(), parameterNames));
+        if (key == null) {
+            throw new IllegalArgumentException("Missing " + onShard.value().substring(1) + " for " + method.getName());
+        }
+        
+        String previous = ShardContext.enter(shardMap.shardOf(key));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.exit(previous);
+        }
+    }
+}
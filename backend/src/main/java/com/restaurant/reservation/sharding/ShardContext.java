@@ -0,0 +1,67 @@
+package com.restaurant.reservation.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * The shard the current thread works on.
+ *
+ * <p>{@link OnShard} methods and scatter-gather workers set an explicit scope for their
+ * duration. Within a web request the last scoped shard is also remembered, because lazy
+ * loads from the open-in-view session happen after the service call returned and must go
+ * to the shard the entities came from. Everything else uses the default shard.
+ */
+final class ShardContext {
+    
+    private static final ThreadLocal<String> SCOPE = new ThreadLocal<>();
+    private static final String AFFINITY_ATTRIBUTE = ShardContext.class.getName() + ".affinity";
+    
+    private ShardContext() {
+    }
+    
+    /**
+     * Scopes the thread to a shard and returns the previous scope for {@link #exit}.
+     * A scope cannot switch shards: its transaction is already bound to one.
+     */
+    static String enter(String shard) {
+        String previous = SCOPE.get();
+        if (previous != null && !previous.equals(shard)) {
+            throw new IllegalStateException("Cannot switch from shard " + previous + " to " + shard
+                    + " within one unit of work");
+        }
+        SCOPE.set(shard);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(AFFINITY_ATTRIBUTE, shard, RequestAttributes.SCOPE_REQUEST);
+        }
+        return previous;
+    }
+    
+    static void exit(String previous) {
+        if (previous == null) {
+            SCOPE.remove();
+        } else {
+            SCOPE.set(previous);
+        }
+    }
+    
+    /**
+     * The shard a connection requested right now should come from.
+     */
+    static String lookupKey(String defaultShard) {
+        String scoped = SCOPE.get();
+        if (scoped != null) {
+            return scoped;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            Object affinity = request != null
+                    ? request.getAttribute(AFFINITY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+            if (affinity != null) {
+                return (String) affinity;
+            }
+        }
+        return defaultShard;
+    }
+}
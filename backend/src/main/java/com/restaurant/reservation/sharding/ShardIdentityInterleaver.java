@@ -0,0 +1,112 @@
+package com.restaurant.reservation.sharding;
+
+import com.restaurant.reservation.model.BaseEntity;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes each shard generate ids from its own residue class, see {@link ShardMap}.
+ *
+ * <p>Every entity table's identity column is restarted above the current maximum id at the
+ * next value belonging to the shard, and its increment is set to the number of shards.
+ * Tables whose increment already matches are left alone, so restarts on an existing
+ * database are no-ops. Changing the number of shards needs a data migration.
+ *
+ * <p>On PostgreSQL the sequence behind the column is altered, which covers both identity
+ * and serial columns; other databases alter the identity column itself. The increment is
+ * read back afterwards, and startup fails if it is not the number of shards, since routing
+ * by id relies on the ids of different shards never colliding.
+ */
+@Slf4j
+class ShardIdentityInterleaver implements SmartInitializingSingleton {
+    
+    private static final String INCREMENT_QUERY = "SELECT identity_increment FROM information_schema.columns "
+            + "WHERE UPPER(table_name) = UPPER(?) AND UPPER(column_name) = UPPER(?)";
+    private static final String SEQUENCE_QUERY = "SELECT pg_get_serial_sequence(?, ?)";
+    private static final String SEQUENCE_INCREMENT_QUERY =
+            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = CAST(? AS regclass)";
+    
+    private final ShardMap shardMap;
+    private final EntityManagerFactory entityManagerFactory;
+    
+    ShardIdentityInterleaver(ShardMap shardMap, EntityManagerFactory entityManagerFactory) {
+        this.shardMap = shardMap;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String[]> columns = new ArrayList<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (BaseEntity.class.isAssignableFrom(persister.getMappedClass())
+                    && persister instanceof AbstractEntityPersister entity) {
+                columns.add(new String[] {entity.getTableName(), entity.getIdentifierColumnNames()[0]});
+            }
+        });
+        
+        int shards = shardMap.size();
+        for (Map.Entry<String, DataSource> shard : shardMap.dataSources().entrySet()) {
+            JdbcTemplate jdbc = new JdbcTemplate(shard.getValue());
+            boolean postgres = isPostgres(shard.getValue());
+            long residue = shardMap.indexOf(shard.getKey()) + 1;
+            for (String[] column : columns) {
+                String table = column[0];
+                String id = column[1];
+                String sequence = postgres ? jdbc.queryForObject(SEQUENCE_QUERY, String.class, table, id) : null;
+                if (postgres && sequence == null) {
+                    throw new IllegalStateException("Shard " + shard.getKey() + ": " + table + "." + id
+                            + " has no sequence to interleave ids with");
+                }
+                if (Long.valueOf(shards).equals(increment(jdbc, sequence, table, id))) {
+                    continue;
+                }
+                Long max = jdbc.queryForObject("SELECT MAX(" + id + ") FROM " + table, Long.class);
+                long next = max == null ? residue : max + 1 + Math.floorMod(residue - (max + 1), (long) shards);
+                if (sequence != null) {
+                    jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + shards + " RESTART WITH " + next);
+                } else {
+                    jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN " + id + " RESTART WITH " + next);
+                    jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN " + id + " SET INCREMENT BY " + shards);
+                }
+                Long applied = increment(jdbc, sequence, table, id);
+                if (!Long.valueOf(shards).equals(applied)) {
+                    throw new IllegalStateException("Shard " + shard.getKey() + ": " + table + "." + id
+                            + " increments by " + applied + " instead of " + shards + " after interleaving");
+                }
+                log.info("Shard {} allocates {} ids from {} in steps of {}", shard.getKey(), table, next, shards);
+            }
+        }
+    }
+    
+    /**
+     * The increment of the column's sequence, or of the identity column when there is no
+     * sequence; null if the column does not generate ids.
+     */
+    private static Long increment(JdbcTemplate jdbc, String sequence, String table, String id) {
+        String increment = sequence != null
+                ? jdbc.queryForObject(SEQUENCE_INCREMENT_QUERY, String.class, sequence)
+                : jdbc.queryForObject(INCREMENT_QUERY, String.class, table, id);
+        return increment != null ? Long.valueOf(increment.trim()) : null;
+    }
+    
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            return "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource,
+                    DatabaseMetaData::getDatabaseProductName));
+        } catch (MetaDataAccessException ex) {
+            throw new IllegalStateException("Unable to identify the shard database", ex);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.restaurant.reservation.sharding;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps restaurants, and everything that belongs to one, to shards.
+ *
+ * <p>Each shard allocates entity ids from its own residue class: shard {@code k} of
+ * {@code n} hands out {@code k + 1, k + 1 + n, k + 1 + 2n, ...}. Any restaurant,
+ * table or reservation id therefore names its shard without a lookup. New restaurants
+ * are placed by a hash of their lower-cased name, and renames to a name of another shard
+ * are rejected, so the unique name constraint of one shard sees every restaurant that
+ * could clash.
+ */
+public class ShardMap {
+    
+    private final Map<String, DataSource> dataSources;
+    private final List<String> names;
+    
+    public ShardMap(Map<String, DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+        this.names = List.copyOf(dataSources.keySet());
+    }
+    
+    public List<String> names() {
+        return names;
+    }
+    
+    public Map<String, DataSource> dataSources() {
+        return dataSources;
+    }
+    
+    public int size() {
+        return names.size();
+    }
+    
+    /**
+     * Where work without a shard key runs, e.g. idempotency records.
+     */
+    public String defaultShard() {
+        return names.get(0);
+    }
+    
+    public int indexOf(String shard) {
+        return names.indexOf(shard);
+    }
+    
+    public String shardOf(Object key) {
+        if (key instanceof Number id) {
+            return names.get((int) Math.floorMod(id.longValue() - 1, (long) names.size()));
+        }
+        if (key instanceof CharSequence name) {
+            return names.get(Math.floorMod(name.toString().toLowerCase(Locale.ROOT).hashCode(), names.size()));
+        }
+        throw new IllegalArgumentException("Unsupported shard key: " + key);
+    }
+}
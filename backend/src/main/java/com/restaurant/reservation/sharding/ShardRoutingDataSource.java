@@ -0,0 +1,26 @@
+package com.restaurant.reservation.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+
+/**
+ * Hands out connections of the shard chosen by {@link ShardContext}. Must sit behind a
+ * {@code LazyConnectionDataSourceProxy} so the choice is made at the first statement.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    
+    private final ShardMap shardMap;
+    
+    public ShardRoutingDataSource(ShardMap shardMap) {
+        this.shardMap = shardMap;
+        setTargetDataSources(new HashMap<>(shardMap.dataSources()));
+        setDefaultTargetDataSource(shardMap.dataSources().get(shardMap.defaultShard()));
+        setLenientFallback(false);
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.lookupKey(shardMap.defaultShard());
+    }
+}
@@ -0,0 +1,63 @@
+package com.restaurant.reservation.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies {@code spring.jpa.hibernate.ddl-auto} to every shard. Hibernate itself only
+ * manages the schema of the connection it is given, which is the default shard.
+ */
+@Slf4j
+class ShardSchemaIntegrator implements Integrator {
+    
+    private final ShardMap shardMap;
+    private final Map<String, DelayedDropAction> delayedDrops = new LinkedHashMap<>();
+    
+    ShardSchemaIntegrator(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+    
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        Map<String, Object> settings = sessionFactory.getServiceRegistry()
+                .requireService(ConfigurationService.class).getSettings();
+        for (String shard : shardMap.names()) {
+            if (shard.equals(shardMap.defaultShard())) {
+                continue;
+            }
+            onShard(shard, () -> SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                    settings, action -> delayedDrops.put(shard, action)));
+            log.debug("Applied schema management to shard {}", shard);
+        }
+    }
+    
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        List<Map.Entry<String, DelayedDropAction>> drops = new ArrayList<>(delayedDrops.entrySet());
+        delayedDrops.clear();
+        for (Map.Entry<String, DelayedDropAction> drop : drops) {
+            onShard(drop.getKey(), () -> drop.getValue().perform(serviceRegistry));
+        }
+    }
+    
+    private static void onShard(String shard, Runnable action) {
+        String previous = ShardContext.enter(shard);
+        try {
+            action.run();
+        } finally {
+            ShardContext.exit(previous);
+        }
+    }
+}
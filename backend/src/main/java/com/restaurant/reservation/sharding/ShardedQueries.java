@@ -0,0 +1,232 @@
+package com.restaurant.reservation.sharding;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs queries that span restaurants on every shard and merges the results.
+ *
+ * <p>Each shard is queried in parallel in its own read-only transaction, so the
+ * supplied query must initialize any lazy association the caller will touch: the
+ * entities are detached when they are handed back. Without sharding the query simply
+ * runs in the caller's transaction.
+ */
+@Component
+public class ShardedQueries implements DisposableBean {
+    
+    private final ShardMap shardMap;
+    private final TransactionTemplate readOnly;
+    private final ExecutorService executor;
+    
+    public ShardedQueries(ObjectProvider<ShardMap> shardMap, PlatformTransactionManager transactionManager) {
+        this.shardMap = shardMap.getIfAvailable();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.executor = this.shardMap != null && this.shardMap.size() > 1
+                ? Executors.newFixedThreadPool(this.shardMap.size() * 2, daemonThreads()) : null;
+    }
+    
+    public boolean isSharded() {
+        return executor != null;
+    }
+    
+    /**
+     * The shard owning {@code key}, or null without sharding.
+     */
+    public String shardOf(Object key) {
+        return shardMap != null ? shardMap.shardOf(key) : null;
+    }
+    
+    /**
+     * Runs {@code work} on the shard owning {@code key}, for threads that do not go
+     * through an {@link OnShard} method first.
+     */
+    public <T> T onShardOf(Object key, Supplier<T> work) {
+        return shardMap != null ? bound(shardMap.shardOf(key), work) : work.get();
+    }
+    
+    /**
+     * Runs {@code work} on every shard in turn, or once without sharding. Unlike the
+     * queries below, it runs outside any transaction.
+     */
+    public void onEachShard(Runnable work) {
+        if (shardMap == null) {
+            work.run();
+            return;
+        }
+        for (String shard : shardMap.names()) {
+            bound(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+    
+    public <T> List<T> gather(Supplier<List<T>> query) {
+        return gather(query, item -> {
+        });
+    }
+    
+    /**
+     * Concatenates the results of all shards. {@code detach} runs on every row inside its
+     * shard's transaction and should initialize the lazy associations the caller needs.
+     */
+    public <T> List<T> gather(Supplier<List<T>> query, Consumer<? super T> detach) {
+        if (!isSharded()) {
+            return query.get();
+        }
+        List<T> merged = new ArrayList<>();
+        scatter(() -> {
+            List<T> rows = query.get();
+            rows.forEach(detach);
+            return rows;
+        }).forEach(merged::addAll);
+        return merged;
+    }
+    
+    public <T> Page<T> gatherPage(Function<Pageable, Page<T>> query, Pageable pageable,
+                                  BiFunction<T, String, Object> property) {
+        return gatherPage(query, pageable, property, item -> {
+        });
+    }
+    
+    /**
+     * Pages over all shards. Every shard returns its first {@code offset + size} rows in
+     * the requested order, extended by id for a stable tie-break, and the requested page is
+     * cut from the merged rows. {@code property} reads a sort property from a row;
+     * {@code detach} is applied as in {@link #gather(Supplier, Consumer)}.
+     */
+    public <T> Page<T> gatherPage(Function<Pageable, Page<T>> query, Pageable pageable,
+                                  BiFunction<T, String, Object> property, Consumer<? super T> detach) {
+        if (!isSharded()) {
+            return query.apply(pageable);
+        }
+        Sort sort = pageable.getSort().getOrderFor("id") != null ? pageable.getSort() : pageable.getSort().and(Sort.by("id"));
+        Pageable top = pageable.isPaged()
+                ? PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+        
+        List<Page<T>> pages = scatter(() -> {
+            Page<T> page = query.apply(top);
+            page.forEach(detach);
+            return page;
+        });
+        List<T> merged = new ArrayList<>();
+        long total = 0;
+        for (Page<T> page : pages) {
+            merged.addAll(page.getContent());
+            total += page.getTotalElements();
+        }
+        merged.sort(comparator(sort, property));
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, total);
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, total);
+    }
+    
+    /**
+     * Reads sort properties from entities, including nested paths such as {@code restaurant.name}.
+     */
+    public static <T> BiFunction<T, String, Object> beanProperty() {
+        return (item, path) -> {
+            BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(item);
+            return wrapper.getPropertyValue(path);
+        };
+    }
+    
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private <R> List<R> scatter(Supplier<R> query) {
+        List<CompletableFuture<R>> futures = shardMap.names().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> onShard(shard, query), executor))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+    
+    private <R> R onShard(String shard, Supplier<R> query) {
+        return bound(shard, () -> readOnly.execute(status -> query.get()));
+    }
+    
+    private static <R> R bound(String shard, Supplier<R> work) {
+        String previous = ShardContext.enter(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.exit(previous);
+        }
+    }
+    
+    /**
+     * Orders rows like the database would, including its default of sorting nulls last
+     * in ascending and first in descending order.
+     */
+    public static <T> Comparator<T> comparator(Sort sort, BiFunction<T, String, Object> property) {
+        Comparator<T> result = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Object> values = order.isIgnoreCase()
+                    ? Comparator.comparing(Object::toString, String.CASE_INSENSITIVE_ORDER)
+                    : ShardedQueries::compareNatural;
+            Comparator<Object> directed = order.isAscending() ? values : values.reversed();
+            Comparator<Object> withNulls = switch (order.getNullHandling()) {
+                case NULLS_FIRST -> Comparator.nullsFirst(directed);
+                case NULLS_LAST -> Comparator.nullsLast(directed);
+                case NATIVE -> order.isAscending() ? Comparator.nullsLast(directed) : Comparator.nullsFirst(directed);
+            };
+            String path = order.getProperty();
+            result = result.thenComparing(item -> property.apply(item, path), withNulls);
+        }
+        return result;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static int compareNatural(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+    
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.restaurant.reservation.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits restaurants, with their tables and reservations, over several databases.
+ *
+ * <p>Enabled with {@code app.sharding.enabled=true} and a comma separated
+ * {@code app.sharding.urls}; the first URL is the default shard, which also keeps data that
+ * belongs to no restaurant. Shards share the driver and credentials of {@code spring.datasource}.
+ * Not meant to be combined with {@code app.datasource.replicas}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfig {
+    
+    @Bean
+    public ShardMap shardMap(DataSourceProperties properties,
+                             @Value("${app.sharding.urls}") List<String> urls,
+                             @Value("${app.sharding.pool-size:10}") int poolSize) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (String url : urls) {
+            String name = "shard-" + shards.size();
+            HikariDataSource shard = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            shard.setPoolName(name);
+            shard.setMaximumPoolSize(poolSize);
+            shards.put(name, shard);
+        }
+        log.info("Sharding restaurant data over {} database(s)", shards.size());
+        return new ShardMap(shards);
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardMap shardMap) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(shardMap);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+    
+    @Bean
+    public ShardBindingAspect shardBindingAspect(ShardMap shardMap) {
+        return new ShardBindingAspect(shardMap);
+    }
+    
+    /**
+     * Connections are released after each transaction, so lazy loads after a service call
+     * pick the shard again instead of reusing whichever connection the session held last.
+     * The query cache is keyed by query and parameters only, so it would answer one shard's
+     * query with another shard's rows; entity caching is unaffected as ids are unique.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardedHibernateProperties(ShardMap shardMap) {
+        ShardSchemaIntegrator schema = new ShardSchemaIntegrator(shardMap);
+        return properties -> {
+            properties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+            properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(schema));
+        };
+    }
+    
+    @Bean
+    public ShardIdentityInterleaver shardIdentityInterleaver(ShardMap shardMap,
+                                                             EntityManagerFactory entityManagerFactory) {
+        return new ShardIdentityInterleaver(shardMap, entityManagerFactory);
+    }
+}
@@ -0,0 +1,6 @@
+package com.restaurant.reservation.validator;
+@org.springframework.stereotype.Component
+public class InputValidator {
+  public String validateSearchQuery(String q){return q;}
+  public String sanitizeInput(String q){return q;}
+}
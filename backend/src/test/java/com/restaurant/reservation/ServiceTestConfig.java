@@ -0,0 +1,23 @@
+package com.restaurant.reservation;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Service and repository layer on the {@code test} profile's in-memory H2 database, plus
+ * the data source routing that is switched on by properties. Web and security are left out,
+ * and scheduled jobs do not run, so tests drive background work themselves.
+ */
+@Configuration
+@EnableAutoConfiguration
+@EnableJpaAuditing
+@EntityScan("com.restaurant.reservation.model")
+@EnableJpaRepositories("com.restaurant.reservation.repository")
+@ComponentScan({"com.restaurant.reservation.service", "com.restaurant.reservation.sharding",
+        "com.restaurant.reservation.config.routing"})
+public class ServiceTestConfig {
+}
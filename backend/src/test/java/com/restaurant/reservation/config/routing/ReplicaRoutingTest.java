@@ -0,0 +1,88 @@
+package com.restaurant.reservation.config.routing;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.exception.ReservationConflictException;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against a replica that is copied once and then falls behind the primary for good.
+ */
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "app.datasource.replicas.enabled=true",
+        "app.datasource.replicas.urls=jdbc:h2:mem:replica-routing-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.datasource.replicas.lag-query=SELECT 0",
+        "app.datasource.replicas.lag-check-interval=PT1H"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingTest {
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleReservationRepository reservationRepository;
+    
+    @Autowired
+    private HikariDataSource primaryDataSource;
+    
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void admissionStateIsLoadedFromThePrimaryWhileTheReplicaLags() {
+        SimpleRestaurant restaurant = restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name("Lagging Bistro").address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(4)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+        new H2SnapshotReplicator(primaryDataSource, replicaLagMonitor).copy();
+        
+        // Booked on the primary only, and without going through the in-memory occupancy
+        LocalDateTime dinner = LocalDate.now().plusDays(1).atTime(19, 0);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> reservationRepository.save(
+                SimpleReservation.builder()
+                        .customerName("Primary Only").customerEmail("primary@example.com").customerPhone("555-0101")
+                        .reservationDateTime(dinner).partySize(4)
+                        .status(SimpleReservation.ReservationStatus.CONFIRMED)
+                        .restaurant(restaurantService.getRestaurantById(restaurant.getId()))
+                        .build()));
+        assertThat(reservationService.getReservationsByRestaurant(restaurant.getId()))
+                .as("plain read-only queries go to the lagging replica")
+                .isEmpty();
+        
+        List<LocalDateTime> slots = reservationService.getAvailableSlots(restaurant.getId(), dinner.toLocalDate(), 2, null);
+        assertThat(slots).contains(dinner.minusHours(2)).doesNotContain(dinner, dinner.plusMinutes(30));
+        assertThatThrownBy(() -> reservationService.createReservation(SimpleReservationDTO.builder()
+                .customerName("Late Guest").customerEmail("late@example.com").customerPhone("555-0102")
+                .reservationDateTime(dinner).partySize(2).restaurantId(restaurant.getId())
+                .build()))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+}
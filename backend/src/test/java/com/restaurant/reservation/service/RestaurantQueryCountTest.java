@@ -0,0 +1,134 @@
+package com.restaurant.reservation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements prepared by the restaurant read paths, counted with Hibernate statistics. The
+ * requests are wrapped in a read-only transaction, as open-in-view does for the controllers,
+ * and list rows are serialized as {@link RestaurantJsonCache} does on a miss.
+ */
+@SpringBootTest(classes = ServiceTestConfig.class)
+@ActiveProfiles("test")
+class RestaurantQueryCountTest {
+    
+    private static final int RESTAURANTS = 30;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Autowired
+    private RestaurantJsonCache restaurantJsonCache;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private Statistics statistics;
+    private TransactionTemplate request;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        request = new TransactionTemplate(transactionManager);
+        request.setReadOnly(true);
+        // Other test classes may share the context and its restaurants
+        if (restaurantService.searchRestaurants("trattoria", PageRequest.of(0, 1)).isEmpty()) {
+            for (int i = 0; i < RESTAURANTS; i++) {
+                restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                        .name("Trattoria " + i).address(i + " Main St").city("Springfield").state("IL")
+                        .zipCode("62701").phoneNumber("555-0100").cuisine("Italian").priceRange("$$")
+                        .capacity(40).openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                        .gallery(List.of("https://img.example.com/" + i + "/1.jpg", "https://img.example.com/" + i + "/2.jpg"))
+                        .build());
+            }
+        }
+    }
+    
+    @Test
+    void listPageLoadsAllGalleriesInOneQuery() {
+        // Count, page and one gallery batch
+        assertThat(statements(() -> listPage(5))).isEqualTo(3);
+        assertThat(statements(() -> listPage(RESTAURANTS))).isEqualTo(3);
+    }
+    
+    @Test
+    void searchPageLoadsAllGalleriesInOneQuery() {
+        assertThat(statements(() -> searchPage(5))).isEqualTo(3);
+        assertThat(statements(() -> searchPage(RESTAURANTS))).isEqualTo(3);
+        assertThat(searchPage(RESTAURANTS)).allSatisfy(json -> assertThat(json).contains("/1.jpg", "/2.jpg"));
+    }
+    
+    @Test
+    void detailReadsTheRestaurantAndItsGalleryOnce() {
+        Long id = restaurantService.searchRestaurants("trattoria", PageRequest.of(0, 1)).getContent().get(0).getId();
+        
+        // Version stamp, restaurant and gallery
+        assertThat(statements(() -> detail(id))).isEqualTo(3);
+        // The JSON is cached for the version, so the gallery is not read again
+        assertThat(statements(() -> detail(id))).isEqualTo(2);
+    }
+    
+    private long statements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+    
+    private List<String> listPage(int size) {
+        return convert(() -> restaurantService.getAllActiveRestaurants(PageRequest.of(0, size, Sort.by("name"))), size);
+    }
+    
+    private List<String> searchPage(int size) {
+        return convert(() -> restaurantService.searchRestaurants("trattoria", PageRequest.of(0, size, Sort.by("name"))),
+                size);
+    }
+    
+    private List<String> convert(Supplier<Page<SimpleRestaurant>> page, int size) {
+        List<String> rows = request.execute(status -> page.get().map(this::json).getContent());
+        assertThat(rows).hasSize(size);
+        return rows;
+    }
+    
+    private String json(SimpleRestaurant restaurant) {
+        try {
+            return objectMapper.writeValueAsString(restaurantService.toDto(restaurant));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private void detail(Long id) {
+        request.executeWithoutResult(status -> {
+            assertThat(restaurantService.findVersionStamp(id)).isPresent();
+            assertThat(restaurantJsonCache.json(restaurantService.getRestaurantById(id)).rawValue().toString()).contains("/1.jpg");
+        });
+    }
+}
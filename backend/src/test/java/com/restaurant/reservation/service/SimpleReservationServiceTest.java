@@ -0,0 +1,193 @@
+package com.restaurant.reservation.service;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.RestaurantTableDTO;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.exception.ReservationConflictException;
+import com.restaurant.reservation.model.RestaurantTable;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.occupancy.OccupancyIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = ServiceTestConfig.class)
+@ActiveProfiles("test")
+class SimpleReservationServiceTest {
+    
+    private static final LocalDateTime DINNER = LocalDate.now().plusDays(1).atTime(19, 0);
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Autowired
+    private RestaurantTableService tableService;
+    
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void reinstatingIsRejectedWhenItsCoversWereBookedAgain() {
+        SimpleRestaurant restaurant = restaurant(4);
+        SimpleReservation first = reservationService.createReservation(booking(restaurant, "first@example.com", 4));
+        reservationService.cancelReservation(first.getId());
+        reservationService.createReservation(booking(restaurant, "second@example.com", 4));
+        
+        assertThatThrownBy(() -> reservationService.confirmReservation(first.getId()))
+                .isInstanceOf(ReservationConflictException.class);
+        assertThat(reservationService.getReservationById(first.getId()).getStatus())
+                .isEqualTo(SimpleReservation.ReservationStatus.CANCELLED);
+    }
+    
+    @Test
+    void reinstatingIsRejectedWhenItsTableWasBookedAgain() {
+        SimpleRestaurant restaurant = restaurant(40);
+        tableService.createTable(restaurant.getId(), RestaurantTableDTO.builder().tableNumber("T1").capacity(4).build());
+        SimpleReservation first = reservationService.createReservation(booking(restaurant, "first@example.com", 4));
+        reservationService.updateReservationStatus(first.getId(), SimpleReservation.ReservationStatus.NO_SHOW);
+        SimpleReservation second = reservationService.createReservation(booking(restaurant, "second@example.com", 4));
+        
+        assertThatThrownBy(() -> reservationService.confirmReservation(first.getId()))
+                .isInstanceOf(ReservationConflictException.class);
+        
+        reservationService.cancelReservation(second.getId());
+        SimpleReservation reinstated = reservationService.updateReservationStatus(
+                first.getId(), SimpleReservation.ReservationStatus.CONFIRMED);
+        assertThat(reinstated.getTables()).extracting(RestaurantTable::getTableNumber).containsExactly("T1");
+        assertThatThrownBy(() -> reservationService.createReservation(booking(restaurant, "third@example.com", 2)))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+    
+    @Test
+    void reinstatingTakesCoversAgain() {
+        SimpleRestaurant restaurant = restaurant(6);
+        SimpleReservation first = reservationService.createReservation(booking(restaurant, "first@example.com", 4));
+        reservationService.cancelReservation(first.getId());
+        reservationService.confirmReservation(first.getId());
+        
+        assertThatThrownBy(() -> reservationService.createReservation(booking(restaurant, "second@example.com", 4)))
+                .isInstanceOf(ReservationConflictException.class);
+        reservationService.createReservation(booking(restaurant, "second@example.com", 2));
+    }
+    
+    @Test
+    void moveDoesNotCountTheReservationAgainstItself() {
+        SimpleRestaurant restaurant = restaurant("Overlap Bistro", 4);
+        SimpleReservation reservation = reservationService.createReservation(booking(restaurant, "overlap@example.com", 4));
+        
+        SimpleReservation moved = reservationService.updateReservation(reservation.getId(),
+                booking(restaurant, "overlap@example.com", DINNER.plusMinutes(30), 4));
+        
+        assertThat(moved.getReservationDateTime()).isEqualTo(DINNER.plusMinutes(30));
+        // The covers moved with it: the old window is free again, the new one is full
+        reservationService.createReservation(booking(restaurant, "early@example.com", DINNER.minusMinutes(90), 4));
+        assertThatThrownBy(() -> reservationService.createReservation(
+                booking(restaurant, "late@example.com", DINNER.plusMinutes(60), 1)))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+    
+    @Test
+    void moveKeepsTheTableWhenItIsOnlyHeldByTheReservationItself() {
+        SimpleRestaurant restaurant = restaurant("Own Table Bistro", 40);
+        tableService.createTable(restaurant.getId(), RestaurantTableDTO.builder().tableNumber("T1").capacity(4).build());
+        SimpleReservation reservation = reservationService.createReservation(booking(restaurant, "own@example.com", 4));
+        
+        SimpleReservation moved = reservationService.updateReservation(reservation.getId(),
+                booking(restaurant, "own@example.com", DINNER.plusMinutes(30), 4));
+        
+        assertThat(moved.getTables()).extracting(RestaurantTable::getTableNumber).containsExactly("T1");
+        reservationService.createReservation(booking(restaurant, "early@example.com", DINNER.minusMinutes(90), 4));
+    }
+    
+    @Test
+    void failedMoveLeavesTheOldSeatingInPlace() {
+        SimpleRestaurant restaurant = restaurant("Full Table Bistro", 40);
+        tableService.createTable(restaurant.getId(), RestaurantTableDTO.builder().tableNumber("T1").capacity(4).build());
+        SimpleReservation reservation = reservationService.createReservation(booking(restaurant, "stay@example.com", 4));
+        reservationService.createReservation(booking(restaurant, "later@example.com", DINNER.plusDays(1), 4));
+        
+        assertThatThrownBy(() -> reservationService.updateReservation(reservation.getId(),
+                booking(restaurant, "stay@example.com", DINNER.plusDays(1), 4)))
+                .isInstanceOf(ReservationConflictException.class);
+        
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            SimpleReservation unchanged = reservationService.getReservationById(reservation.getId());
+            assertThat(unchanged.getReservationDateTime()).isEqualTo(DINNER);
+            assertThat(unchanged.getTables()).extracting(RestaurantTable::getTableNumber).containsExactly("T1");
+        });
+        // The table is still held for the original window
+        assertThatThrownBy(() -> reservationService.createReservation(booking(restaurant, "other@example.com", 2)))
+                .isInstanceOf(ReservationConflictException.class);
+    }
+    
+    @Test
+    void opposingMovesBetweenTwoDaysDoNotDeadlock() throws Exception {
+        SimpleRestaurant restaurant = restaurant("Swap Bistro", 100);
+        LocalDateTime firstDay = DINNER;
+        LocalDateTime secondDay = DINNER.plusDays(1);
+        SimpleReservation forward = reservationService.createReservation(booking(restaurant, "forward@example.com", firstDay, 2));
+        SimpleReservation backward = reservationService.createReservation(booking(restaurant, "backward@example.com", secondDay, 3));
+        
+        // Each move locks both days; taken in opposite orders the two threads would deadlock
+        CompletableFuture<Void> one = CompletableFuture.runAsync(
+                () -> swap(restaurant, forward, "forward@example.com", 2, firstDay, secondDay));
+        CompletableFuture<Void> other = CompletableFuture.runAsync(
+                () -> swap(restaurant, backward, "backward@example.com", 3, secondDay, firstDay));
+        CompletableFuture.allOf(one, other).get(60, TimeUnit.SECONDS);
+        
+        assertThat(occupancyIndex.maxCovers(restaurant.getId(), firstDay, 90)).isEqualTo(2);
+        assertThat(occupancyIndex.maxCovers(restaurant.getId(), secondDay, 90)).isEqualTo(3);
+    }
+    
+    private void swap(SimpleRestaurant restaurant, SimpleReservation reservation, String email, int partySize,
+                      LocalDateTime from, LocalDateTime to) {
+        for (int i = 0; i < 20; i++) {
+            reservationService.updateReservation(reservation.getId(), booking(restaurant, email, to, partySize));
+            reservationService.updateReservation(reservation.getId(), booking(restaurant, email, from, partySize));
+        }
+    }
+    
+    private SimpleRestaurant restaurant(int capacity) {
+        return restaurant("Bistro " + capacity, capacity);
+    }
+    
+    private SimpleRestaurant restaurant(String name, int capacity) {
+        return restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name(name).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(capacity)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+    }
+    
+    private static SimpleReservationDTO booking(SimpleRestaurant restaurant, String email, int partySize) {
+        return booking(restaurant, email, DINNER, partySize);
+    }
+    
+    private static SimpleReservationDTO booking(SimpleRestaurant restaurant, String email, LocalDateTime start,
+                                                int partySize) {
+        return SimpleReservationDTO.builder()
+                .customerName("Guest").customerEmail(email).customerPhone("555-0101")
+                .reservationDateTime(start).partySize(partySize).restaurantId(restaurant.getId())
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.restaurant.reservation.service.booking;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.exception.BookingUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "app.booking.single-writer.enabled=true",
+        "app.booking.single-writer.lanes=1",
+        "app.booking.single-writer.mailbox-capacity=1",
+        "app.booking.single-writer.enqueue-timeout=PT0.2S",
+        "app.booking.single-writer.result-timeout=PT0.5S"
+})
+@ActiveProfiles("test")
+class BookingLanesTest {
+    
+    private static final Long RESTAURANT = 1L;
+    
+    @Autowired
+    private BookingLanes bookingLanes;
+    
+    @Test
+    void laneKeepsRunningAfterAChangeThrowsAnError() {
+        assertThatThrownBy(() -> bookingLanes.execute(RESTAURANT, () -> {
+            throw new AssertionError("broken change");
+        })).isInstanceOf(CompletionException.class).hasCauseInstanceOf(AssertionError.class);
+        
+        assertThat(bookingLanes.execute(RESTAURANT, () -> "next")).isEqualTo("next");
+    }
+    
+    @Test
+    void stuckLaneAnswersWithUnavailableInsteadOfBlocking() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> stuck = CompletableFuture.supplyAsync(() -> bookingLanes.execute(RESTAURANT, () -> {
+            started.countDown();
+            await(release);
+            return "stuck";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        
+        // Queued behind the stuck change, then withdrawn when its wait runs out
+        AtomicBoolean withdrawnRan = new AtomicBoolean();
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> bookingLanes.execute(RESTAURANT, () -> {
+            withdrawnRan.set(true);
+            return "withdrawn";
+        }));
+        Thread.sleep(100);
+        // The mailbox holds one change, so this one cannot even be queued
+        assertThatThrownBy(() -> bookingLanes.execute(RESTAURANT, () -> "rejected"))
+                .isInstanceOf(BookingUnavailableException.class);
+        
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(BookingUnavailableException.class);
+        assertThatThrownBy(() -> stuck.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(BookingUnavailableException.class);
+        
+        release.countDown();
+        assertThat(bookingLanes.execute(RESTAURANT, () -> "after")).isEqualTo("after");
+        assertThat(withdrawnRan).isFalse();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
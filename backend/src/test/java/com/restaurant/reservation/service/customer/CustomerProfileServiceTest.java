@@ -0,0 +1,135 @@
+package com.restaurant.reservation.service.customer;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.CustomerProfileDTO;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.exception.ResourceNotFoundException;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs on a single connection, so a booking that needed a second one for its profile would
+ * time out.
+ */
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=250"
+})
+@ActiveProfiles("test")
+class CustomerProfileServiceTest {
+    
+    private static final LocalDateTime LUNCH = LocalDate.now().plusDays(1).atTime(12, 0);
+    private static final LocalDateTime DINNER = LocalDate.now().plusDays(2).atTime(19, 0);
+    
+    @Autowired
+    private CustomerProfileService profileService;
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Test
+    void statusChangeMovesCountsBetweenColumns() {
+        SimpleRestaurant restaurant = restaurant("Status Bistro");
+        SimpleReservation reservation = reservationService.createReservation(booking(restaurant, "Status@Example.com", LUNCH, 3));
+        
+        reservationService.updateReservationStatus(reservation.getId(), SimpleReservation.ReservationStatus.COMPLETED);
+        CustomerProfileDTO completed = profileService.getProfile("status@example.com");
+        assertThat(completed.getReservations()).isEqualTo(1);
+        assertThat(completed.getVisits()).isEqualTo(1);
+        assertThat(completed.getCovers()).isEqualTo(3);
+        
+        reservationService.updateReservationStatus(reservation.getId(), SimpleReservation.ReservationStatus.NO_SHOW);
+        CustomerProfileDTO noShow = profileService.getProfile("status@example.com");
+        assertThat(noShow.getReservations()).isEqualTo(1);
+        assertThat(noShow.getVisits()).isZero();
+        assertThat(noShow.getCovers()).isZero();
+        assertThat(noShow.getNoShows()).isEqualTo(1);
+        assertThat(noShow.getLastVisit()).isNull();
+        
+        reservationService.cancelReservation(reservation.getId());
+        CustomerProfileDTO cancelled = profileService.getProfile("status@example.com");
+        assertThat(cancelled.getNoShows()).isZero();
+        assertThat(cancelled.getCancellations()).isEqualTo(1);
+    }
+    
+    @Test
+    void emailChangeMovesCountsToTheOtherCustomer() {
+        SimpleRestaurant restaurant = restaurant("Moving Bistro");
+        reservationService.createReservation(booking(restaurant, "stays@example.com", LUNCH, 2));
+        SimpleReservation moving = reservationService.createReservation(booking(restaurant, "old@example.com", DINNER, 4));
+        reservationService.updateReservationStatus(moving.getId(), SimpleReservation.ReservationStatus.COMPLETED);
+        
+        SimpleReservationDTO changed = booking(restaurant, "Stays@Example.com", DINNER, 4);
+        changed.setCustomerName("Renamed Guest");
+        reservationService.updateReservation(moving.getId(), changed);
+        
+        assertThatThrownBy(() -> profileService.getProfile("old@example.com"))
+                .isInstanceOf(ResourceNotFoundException.class);
+        CustomerProfileDTO stays = profileService.getProfile("stays@example.com");
+        assertThat(stays.getName()).isEqualTo("Renamed Guest");
+        assertThat(stays.getReservations()).isEqualTo(2);
+        assertThat(stays.getVisits()).isEqualTo(1);
+        assertThat(stays.getCovers()).isEqualTo(4);
+        assertThat(stays.getLastVisit()).isEqualTo(DINNER);
+    }
+    
+    @Test
+    void revertingTheLatestVisitFallsBackToThePreviousOne() {
+        SimpleRestaurant restaurant = restaurant("Regulars Bistro");
+        SimpleReservation lunch = reservationService.createReservation(booking(restaurant, "regular@example.com", LUNCH, 2));
+        SimpleReservation dinner = reservationService.createReservation(booking(restaurant, "regular@example.com", DINNER, 2));
+        reservationService.updateReservationStatus(lunch.getId(), SimpleReservation.ReservationStatus.COMPLETED);
+        reservationService.updateReservationStatus(dinner.getId(), SimpleReservation.ReservationStatus.COMPLETED);
+        assertThat(profileService.getProfile("regular@example.com").getLastVisit()).isEqualTo(DINNER);
+        
+        reservationService.updateReservationStatus(dinner.getId(), SimpleReservation.ReservationStatus.CONFIRMED);
+        CustomerProfileDTO reverted = profileService.getProfile("regular@example.com");
+        assertThat(reverted.getVisits()).isEqualTo(1);
+        assertThat(reverted.getLastVisit()).isEqualTo(LUNCH);
+        
+        reservationService.updateReservationStatus(lunch.getId(), SimpleReservation.ReservationStatus.CONFIRMED);
+        assertThat(profileService.getProfile("regular@example.com").getLastVisit()).isNull();
+    }
+    
+    @Test
+    void repeatBookingsShareOneProfile() {
+        SimpleRestaurant restaurant = restaurant("Repeat Bistro");
+        reservationService.createReservation(booking(restaurant, "twice@example.com", LUNCH, 2));
+        reservationService.createReservation(booking(restaurant, " TWICE@example.com", DINNER, 2));
+        
+        assertThat(profileService.getProfile("twice@example.com").getReservations()).isEqualTo(2);
+    }
+    
+    private SimpleRestaurant restaurant(String name) {
+        return restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name(name).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(40)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+    }
+    
+    private static SimpleReservationDTO booking(SimpleRestaurant restaurant, String email, LocalDateTime start,
+                                                int partySize) {
+        return SimpleReservationDTO.builder()
+                .customerName("Guest").customerEmail(email).customerPhone("555-0101")
+                .reservationDateTime(start).partySize(partySize).restaurantId(restaurant.getId())
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.restaurant.reservation.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.exception.IdempotencyKeyInProgressException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Two services sharing the idempotency_keys table stand in for two nodes.
+ */
+@SpringBootTest(classes = ServiceTestConfig.class, properties = "app.idempotency.shared-store.enabled=true")
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+    
+    private static final Map<String, Object> REQUEST = Map.of("partySize", 2);
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ObjectProvider<IdempotencyBackingStore> backingStore;
+    
+    private final AtomicInteger executions = new AtomicInteger();
+    
+    @Test
+    void concurrentDuplicateOnAnotherNodeWaitsForTheFirstResponse() throws Exception {
+        IdempotencyService first = node(Duration.ofHours(1), Duration.ofSeconds(10));
+        IdempotencyService second = node(Duration.ofHours(1), Duration.ofSeconds(10));
+        String key = key();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<IdempotentResult<String>> original = CompletableFuture.supplyAsync(
+                () -> first.execute(key, REQUEST, String.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return "booking-" + executions.incrementAndGet();
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<IdempotentResult<String>> duplicate = CompletableFuture.supplyAsync(
+                () -> second.execute(key, REQUEST, String.class, () -> "booking-" + executions.incrementAndGet()));
+        Thread.sleep(200);
+        assertThat(duplicate).isNotDone();
+        
+        release.countDown();
+        assertThat(original.get(5, TimeUnit.SECONDS).isReplayed()).isFalse();
+        IdempotentResult<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.isReplayed()).isTrue();
+        assertThat(replayed.getValue()).isEqualTo("booking-1");
+        assertThat(executions).hasValue(1);
+    }
+    
+    @Test
+    void duplicateGetsAConflictWhenTheFirstRequestOutlastsTheWait() throws Exception {
+        IdempotencyService first = node(Duration.ofHours(1), Duration.ofSeconds(10));
+        IdempotencyService second = node(Duration.ofHours(1), Duration.ofMillis(200));
+        String key = key();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<IdempotentResult<String>> original = CompletableFuture.supplyAsync(
+                () -> first.execute(key, REQUEST, String.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return "booking-" + executions.incrementAndGet();
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> second.execute(key, REQUEST, String.class, () -> "unexpected"))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        
+        release.countDown();
+        original.get(5, TimeUnit.SECONDS);
+        assertThat(second.execute(key, REQUEST, String.class, () -> "unexpected").getValue()).isEqualTo("booking-1");
+    }
+    
+    @Test
+    void failedExecutionReleasesTheKeyForARetry() {
+        IdempotencyService first = node(Duration.ofHours(1), Duration.ofSeconds(1));
+        IdempotencyService second = node(Duration.ofHours(1), Duration.ofSeconds(1));
+        String key = key();
+        
+        assertThatThrownBy(() -> first.execute(key, REQUEST, String.class, () -> {
+            throw new IllegalStateException("booking failed");
+        })).isInstanceOf(IllegalStateException.class);
+        
+        IdempotentResult<String> retried = second.execute(key, REQUEST, String.class, () -> "booking-retried");
+        assertThat(retried.isReplayed()).isFalse();
+        assertThat(retried.getValue()).isEqualTo("booking-retried");
+    }
+    
+    @Test
+    void replayOnAnotherNodeKeepsTheOriginalExpiry() throws Exception {
+        IdempotencyService first = node(Duration.ofSeconds(2), Duration.ofSeconds(1));
+        IdempotencyService second = node(Duration.ofSeconds(2), Duration.ofSeconds(1));
+        String key = key();
+        
+        first.execute(key, REQUEST, String.class, () -> "booking-" + executions.incrementAndGet());
+        Thread.sleep(1000);
+        assertThat(second.execute(key, REQUEST, String.class, () -> "unexpected").isReplayed()).isTrue();
+        
+        // Two seconds after the first execution, not after the replay
+        Thread.sleep(1500);
+        IdempotentResult<String> afterExpiry = second.execute(key, REQUEST, String.class,
+                () -> "booking-" + executions.incrementAndGet());
+        assertThat(afterExpiry.isReplayed()).isFalse();
+        assertThat(afterExpiry.getValue()).isEqualTo("booking-2");
+    }
+    
+    @Test
+    void failureToRecordTheResponseKeepsTheClaimAndTheResult() {
+        IdempotencyBackingStore shared = backingStore.getObject();
+        IdempotencyBackingStore failing = new IdempotencyBackingStore() {
+            @Override
+            public Optional<StoredResponse> claim(String key, String fingerprint, Duration lease) {
+                return shared.claim(key, fingerprint, lease);
+            }
+            
+            @Override
+            public Optional<StoredResponse> find(String key) {
+                return shared.find(key);
+            }
+            
+            @Override
+            public void complete(String key, String body, Instant expiresAt) {
+                throw new IllegalStateException("database unavailable");
+            }
+            
+            @Override
+            public void release(String key) {
+                shared.release(key);
+            }
+        };
+        IdempotencyService first = new IdempotencyService(objectMapper,
+                new StaticListableBeanFactory(Map.of("failing", failing)).getBeanProvider(IdempotencyBackingStore.class),
+                Duration.ofHours(1), 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        IdempotencyService second = node(Duration.ofHours(1), Duration.ofMillis(200));
+        String key = key();
+        
+        IdempotentResult<String> result = first.execute(key, REQUEST, String.class,
+                () -> "booking-" + executions.incrementAndGet());
+        assertThat(result.getValue()).isEqualTo("booking-1");
+        assertThat(first.execute(key, REQUEST, String.class, () -> "unexpected").isReplayed()).isTrue();
+        
+        // The booking committed, so no other node may run it again while the claim holds
+        assertThatThrownBy(() -> second.execute(key, REQUEST, String.class,
+                () -> "booking-" + executions.incrementAndGet()))
+                .isInstanceOf(IdempotencyKeyInProgressException.class);
+        assertThat(executions).hasValue(1);
+    }
+    
+    private IdempotencyService node(Duration ttl, Duration claimWait) {
+        return new IdempotencyService(objectMapper, backingStore, ttl, 100, Duration.ofMinutes(1), claimWait);
+    }
+    
+    private static String key() {
+        return "POST /api/reservations:" + UUID.randomUUID();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
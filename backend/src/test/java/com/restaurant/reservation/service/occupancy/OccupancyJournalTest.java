@@ -0,0 +1,93 @@
+package com.restaurant.reservation.service.occupancy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OccupancyJournalTest {
+    
+    private static final DataSize SEGMENT = DataSize.ofBytes(4 * OccupancyJournal.RECORD_BYTES);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void emptySegmentLeftByACrashIsWrittenTo() throws IOException {
+        OccupancyJournal journal = new OccupancyJournal(directory, SEGMENT);
+        for (int i = 0; i < 4; i++) {
+            append(journal);
+        }
+        journal.destroy();
+        // Created for the next record, but its pages never reached the disk
+        Files.write(directory.resolve("journal-00000000000000000005.log"), new byte[(int) SEGMENT.toBytes()]);
+        
+        OccupancyJournal reopened = new OccupancyJournal(directory, SEGMENT);
+        
+        assertThat(append(reopened)).isEqualTo(5);
+        assertThat(sequences(reopened, 0)).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(segments()).hasSize(2);
+    }
+    
+    @Test
+    void recordsAfterADamagedOneAreDropped() throws IOException {
+        OccupancyJournal journal = new OccupancyJournal(directory, SEGMENT);
+        for (int i = 0; i < 3; i++) {
+            append(journal);
+        }
+        journal.destroy();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // Breaks the checksum of the second record; the third was written out of order
+            file.seek(OccupancyJournal.RECORD_BYTES + 8);
+            file.writeLong(42);
+        }
+        
+        OccupancyJournal reopened = new OccupancyJournal(directory, SEGMENT);
+        
+        assertThat(append(reopened)).isEqualTo(2);
+        assertThat(sequences(reopened, 0)).containsExactly(1L, 2L);
+    }
+    
+    @Test
+    void sequencesOfTheSnapshotAreNotReused() throws IOException {
+        OccupancyJournal journal = new OccupancyJournal(directory, SEGMENT);
+        for (int i = 0; i < 3; i++) {
+            append(journal);
+        }
+        journal.saveSnapshot(4, List.of(new OccupancyJournal.DaySnapshot(1, 20000, 3, new int[]{0, 2, 2, 0})), 0);
+        journal.destroy();
+        // The segment's pages were lost, the snapshot had been synced
+        Files.write(segments().get(0), new byte[(int) SEGMENT.toBytes()]);
+        
+        OccupancyJournal reopened = new OccupancyJournal(directory, SEGMENT);
+        
+        assertThat(reopened.lastSequence()).isEqualTo(3);
+        assertThat(append(reopened)).isEqualTo(4);
+        assertThat(sequences(reopened, 3)).containsExactly(4L);
+    }
+    
+    private static long append(OccupancyJournal journal) {
+        return journal.append(OccupancyJournal.Kind.RESERVE, 1, 20000, 1, 3, 2);
+    }
+    
+    private static List<Long> sequences(OccupancyJournal journal, long after) {
+        List<Long> sequences = new ArrayList<>();
+        journal.replay(after, entry -> sequences.add(entry.sequence()));
+        return sequences;
+    }
+    
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
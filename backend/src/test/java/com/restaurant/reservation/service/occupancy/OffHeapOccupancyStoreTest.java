@@ -0,0 +1,79 @@
+package com.restaurant.reservation.service.occupancy;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "app.occupancy.off-heap.enabled=true",
+        "app.occupancy.off-heap.path=target/occupancy-store-test.bin",
+        "app.occupancy.off-heap.max-restaurants=16",
+        "app.occupancy.off-heap.days=7"
+})
+@ActiveProfiles("test")
+class OffHeapOccupancyStoreTest {
+    
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+    
+    @Autowired
+    private OffHeapOccupancyStore store;
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Test
+    void reconcileNeverShowsAnEmptyRow() throws Exception {
+        SimpleRestaurant restaurant = restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name("Reload Bistro").address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(40)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+        reservationService.createReservation(SimpleReservationDTO.builder()
+                .customerName("Guest").customerEmail("reload@example.com").customerPhone("555-0101")
+                .reservationDateTime(TOMORROW.atTime(19, 0)).partySize(4).restaurantId(restaurant.getId())
+                .build());
+        DayCovers row = store.row(restaurant.getId(), TOMORROW, covers -> fail("row should be loaded by the booking"));
+        int slots = OccupancyIndex.MINUTES_PER_DAY / store.slotMinutes();
+        int index = store.indexOf(restaurant.getId(), false);
+        assertThat(row.max(0, slots)).isEqualTo(4);
+        
+        // Reads without the row lock, as a reader outside the booking path would
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Integer> lowest = CompletableFuture.supplyAsync(() -> {
+            int min = Integer.MAX_VALUE;
+            while (!done.get()) {
+                min = Math.min(min, row.max(0, slots));
+            }
+            return min;
+        });
+        try {
+            for (int i = 0; i < 500; i++) {
+                assertThat(store.reconcile(index)).isTrue();
+            }
+        } finally {
+            done.set(true);
+        }
+        
+        assertThat(lowest.get(5, TimeUnit.SECONDS)).isEqualTo(4);
+        assertThat(row.max(0, slots)).isEqualTo(4);
+    }
+}
@@ -0,0 +1,157 @@
+package com.restaurant.reservation.service.report;
+
+import com.restaurant.reservation.model.SimpleReservation.ReservationStatus;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservationColumnsTest {
+    
+    private static final LocalDateTime DINNER = LocalDateTime.of(2030, 3, 1, 19, 0);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void exportReadsBackUnchanged() throws IOException {
+        ReservationColumns columns = sample();
+        
+        ReservationColumns read = ReservationColumns.read(write(columns));
+        
+        assertThat(read.exportedAt).isEqualTo(columns.exportedAt);
+        assertThat(read.restaurantIds).containsExactly(7L, 9L);
+        assertThat(read.customerEmails).containsExactly("ann@example.com", "bob@example.com");
+        assertThat(read.customerNames).containsExactly("Ann", "Bob");
+        assertThat(read.customerStart).containsExactly(0, 3, 4);
+        assertThat(read.ids).containsExactly(columns.ids);
+        assertThat(read.restaurant).containsExactly(columns.restaurant);
+        assertThat(read.status).containsExactly(columns.status);
+        assertThat(read.startMinute).containsExactly(columns.startMinute);
+        assertThat(read.partySize).containsExactly(columns.partySize);
+        assertThat(read.byRestaurant).containsExactly(columns.byRestaurant);
+        assertThat(statuses(read)).containsExactly(
+                ReservationStatus.COMPLETED, ReservationStatus.CANCELLED, ReservationStatus.NO_SHOW,
+                ReservationStatus.PENDING);
+    }
+    
+    @Test
+    void statusCodesAreReadByTheirNamesInTheFile() throws IOException {
+        Path file = write(sample());
+        // A file written when the statuses were declared in another order
+        byte[] bytes = Files.readAllBytes(file);
+        int pending = indexOf(bytes, "PENDING");
+        int noShow = indexOf(bytes, "NO_SHOW");
+        System.arraycopy("NO_SHOW".getBytes(StandardCharsets.UTF_8), 0, bytes, pending, 7);
+        System.arraycopy("PENDING".getBytes(StandardCharsets.UTF_8), 0, bytes, noShow, 7);
+        Files.write(file, bytes);
+        
+        assertThat(statuses(ReservationColumns.read(file))).containsExactly(
+                ReservationStatus.COMPLETED, ReservationStatus.CANCELLED, ReservationStatus.PENDING,
+                ReservationStatus.NO_SHOW);
+    }
+    
+    @Test
+    void unknownStatusIsRejected() throws IOException {
+        Path file = write(sample());
+        byte[] bytes = Files.readAllBytes(file);
+        System.arraycopy("WAITING".getBytes(StandardCharsets.UTF_8), 0, bytes, indexOf(bytes, "PENDING"), 7);
+        Files.write(file, bytes);
+        
+        assertThatThrownBy(() -> ReservationColumns.read(file)).isInstanceOf(IOException.class);
+    }
+    
+    private static ReservationColumns sample() {
+        ReservationColumns.Builder builder = new ReservationColumns.Builder();
+        builder.add(row(4L, 9L, "BOB@example.com", "Bob", DINNER, 2, ReservationStatus.PENDING));
+        builder.add(row(1L, 7L, "ann@example.com", "Ann", DINNER.minusDays(3), 4, ReservationStatus.COMPLETED));
+        builder.add(row(2L, 9L, " Ann@Example.com", "Ann Later", DINNER.minusDays(1), 3, ReservationStatus.CANCELLED));
+        builder.add(row(3L, 7L, "ann@example.com", "Ann", DINNER, 5, ReservationStatus.NO_SHOW));
+        return builder.build(1_000L);
+    }
+    
+    private Path write(ReservationColumns columns) throws IOException {
+        Path file = directory.resolve("reservations-1000.col");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            columns.write(out);
+        }
+        return file;
+    }
+    
+    private static ReservationStatus[] statuses(ReservationColumns columns) {
+        ReservationStatus[] statuses = new ReservationStatus[columns.rows()];
+        for (int row = 0; row < statuses.length; row++) {
+            statuses[row] = ReservationColumns.status(columns.status[row]);
+        }
+        return statuses;
+    }
+    
+    private static int indexOf(byte[] bytes, String text) {
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        outer:
+        for (int i = 0; i + needle.length <= bytes.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (bytes[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError(text + " not found");
+    }
+    
+    private static SimpleReservationRepository.ExportRow row(Long id, Long restaurantId, String email, String name,
+                                                             LocalDateTime start, int partySize,
+                                                             ReservationStatus status) {
+        return new SimpleReservationRepository.ExportRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public Long getRestaurantId() {
+                return restaurantId;
+            }
+            
+            @Override
+            public String getCustomerEmail() {
+                return email;
+            }
+            
+            @Override
+            public String getCustomerName() {
+                return name;
+            }
+            
+            @Override
+            public LocalDateTime getReservationDateTime() {
+                return start;
+            }
+            
+            @Override
+            public Integer getPartySize() {
+                return partySize;
+            }
+            
+            @Override
+            public Integer getDurationMinutes() {
+                return 120;
+            }
+            
+            @Override
+            public ReservationStatus getStatus() {
+                return status;
+            }
+        };
+    }
+}
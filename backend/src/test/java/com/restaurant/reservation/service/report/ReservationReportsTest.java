@@ -0,0 +1,167 @@
+package com.restaurant.reservation.service.report;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.CustomerReportDTO;
+import com.restaurant.reservation.dto.ReservationSummaryDTO;
+import com.restaurant.reservation.dto.RestaurantReportDTO;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleReservation;
+import com.restaurant.reservation.model.SimpleReservation.ReservationStatus;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.repository.SimpleReservationRepository;
+import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import com.restaurant.reservation.sharding.ShardedQueries;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(classes = ServiceTestConfig.class,
+        properties = {"app.reports.enabled=true", "app.reports.export-interval=PT0S", "app.reports.batch-size=2",
+                "app.reports.parallelism=2"})
+@ActiveProfiles("test")
+class ReservationReportsTest {
+    
+    private static final LocalDateTime DINNER = LocalDate.now().plusDays(1).atTime(19, 0);
+    private static final Path DIRECTORY = temporaryDirectory();
+    
+    @Autowired
+    private ReservationReports reports;
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Autowired
+    private SimpleReservationRepository reservationRepository;
+    
+    @Autowired
+    private ShardedQueries shardedQueries;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @DynamicPropertySource
+    static void directory(DynamicPropertyRegistry registry) {
+        registry.add("app.reports.path", DIRECTORY::toString);
+    }
+    
+    @Test
+    void summaryTotalsTheRestaurantsReservations() {
+        SimpleRestaurant restaurant = exportReservations("Summary Bistro");
+        
+        ReservationSummaryDTO summary = reports.summary(restaurant.getId(), null, null);
+        
+        assertThat(summary.getReservations()).isEqualTo(4);
+        assertThat(summary.getByStatus()).containsEntry(ReservationStatus.PENDING, 1L)
+                .containsEntry(ReservationStatus.CONFIRMED, 0L)
+                .containsEntry(ReservationStatus.CANCELLED, 1L)
+                .containsEntry(ReservationStatus.COMPLETED, 1L)
+                .containsEntry(ReservationStatus.NO_SHOW, 1L);
+        assertThat(summary.getCovers()).isEqualTo(4);
+        assertThat(summary.getNoShowRate()).isEqualTo(0.5);
+        assertThat(summary.getByDayOfWeek().get(DINNER.getDayOfWeek())).isEqualTo(3);
+        assertThat(summary.getByHour()[19]).isEqualTo(3);
+        assertThat(summary.getByHour()[20]).isEqualTo(1);
+        
+        ReservationSummaryDTO firstDay = reports.summary(restaurant.getId(), DINNER.toLocalDate(), DINNER.toLocalDate());
+        assertThat(firstDay.getReservations()).isEqualTo(3);
+        assertThat(firstDay.getNoShowRate()).isZero();
+    }
+    
+    @Test
+    void customerAndRestaurantRowsCountByStatus() {
+        SimpleRestaurant restaurant = exportReservations("Customer Bistro");
+        
+        List<CustomerReportDTO> customers = reports.customers(restaurant.getId(), null, null, Pageable.unpaged())
+                .getContent();
+        
+        assertThat(customers).extracting(CustomerReportDTO::getEmail, CustomerReportDTO::getReservations,
+                        CustomerReportDTO::getVisits, CustomerReportDTO::getCancellations,
+                        CustomerReportDTO::getNoShows, CustomerReportDTO::getCovers)
+                .containsExactly(
+                        tuple("ann@example.com", 2, 1, 0, 1, 4L),
+                        tuple("bob@example.com", 1, 0, 1, 0, 0L),
+                        tuple("carol@example.com", 1, 0, 0, 0, 0L));
+        assertThat(customers.get(0).getLastVisit()).isEqualTo(DINNER);
+        assertThat(customers.get(0).getNoShowRate()).isEqualTo(0.5);
+        
+        RestaurantReportDTO row = reports.restaurants(null, null, Pageable.unpaged()).getContent().stream()
+                .filter(candidate -> candidate.getRestaurantId().equals(restaurant.getId()))
+                .findFirst().orElseThrow();
+        assertThat(row.getReservations()).isEqualTo(4);
+        assertThat(row.getVisits()).isEqualTo(1);
+        assertThat(row.getCancellations()).isEqualTo(1);
+        assertThat(row.getNoShows()).isEqualTo(1);
+        assertThat(row.getCovers()).isEqualTo(4);
+        assertThat(row.getLastVisit()).isEqualTo(DINNER);
+    }
+    
+    @Test
+    void restartLoadsTheLatestExport() throws IOException {
+        SimpleRestaurant restaurant = exportReservations("Restart Bistro");
+        ReservationReports restarted = new ReservationReports(reservationRepository, shardedQueries,
+                transactionManager, DIRECTORY, Duration.ofMinutes(15), 2, 2);
+        try {
+            assertThat(restarted.exportedAt()).isEqualTo(reports.exportedAt());
+            assertThat(restarted.summary(restaurant.getId(), null, null))
+                    .usingRecursiveComparison()
+                    .isEqualTo(reports.summary(restaurant.getId(), null, null));
+        } finally {
+            restarted.destroy();
+        }
+    }
+    
+    private SimpleRestaurant exportReservations(String name) {
+        SimpleRestaurant restaurant = restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name(name).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(40)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+        book(restaurant, "ann@example.com", DINNER, 4, ReservationStatus.COMPLETED);
+        book(restaurant, "Ann@Example.com", DINNER.plusDays(1), 2, ReservationStatus.NO_SHOW);
+        book(restaurant, "bob@example.com", DINNER, 3, ReservationStatus.CANCELLED);
+        book(restaurant, "carol@example.com", DINNER.plusHours(1), 5, null);
+        reports.export();
+        return restaurant;
+    }
+    
+    private void book(SimpleRestaurant restaurant, String email, LocalDateTime start, int partySize, ReservationStatus status) {
+        SimpleReservation reservation = reservationService.createReservation(SimpleReservationDTO.builder()
+                .customerName("Guest").customerEmail(email).customerPhone("555-0101")
+                .reservationDateTime(start).partySize(partySize).restaurantId(restaurant.getId())
+                .build());
+        if (status != null) {
+            reservationService.updateReservationStatus(reservation.getId(), status);
+        }
+    }
+    
+    private static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory("reservation-reports");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
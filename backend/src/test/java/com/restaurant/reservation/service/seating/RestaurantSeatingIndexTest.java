@@ -0,0 +1,101 @@
+package com.restaurant.reservation.service.seating;
+
+import com.restaurant.reservation.model.RestaurantTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RestaurantSeatingIndexTest {
+    
+    private static final long SEVEN_PM = 19 * 60;
+    private static final long NINE_PM = 21 * 60;
+    
+    @Test
+    void partyGetsTheSmallestTableThatFits() {
+        RestaurantSeatingIndex index = index(table(1, 2, null), table(2, 6, null), table(3, 4, null));
+        
+        SeatingPlan plan = index.allocate(4, SEVEN_PM, NINE_PM);
+        
+        assertThat(plan.getTableIds()).containsExactly(3L);
+        assertThat(plan.getSeats()).isEqualTo(4);
+        assertThat(plan.isCombined()).isFalse();
+    }
+    
+    @Test
+    void largePartyCombinesTablesOfOneGroupWithTheFewestSpareSeats() {
+        RestaurantSeatingIndex index = index(
+                table(1, 4, "terrace"), table(2, 4, "terrace"), table(3, 2, "terrace"),
+                table(4, 6, "hall"), table(5, 6, "hall"),
+                table(6, 4, null));
+        
+        SeatingPlan plan = index.allocate(10, SEVEN_PM, NINE_PM);
+        
+        assertThat(plan.getTableIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(plan.getSeats()).isEqualTo(10);
+        assertThat(plan.isCombined()).isTrue();
+        // The combined tables are taken, so the same party only fits in the hall now
+        assertThat(index.allocate(10, SEVEN_PM, NINE_PM).getTableIds()).containsExactlyInAnyOrder(4L, 5L);
+    }
+    
+    @Test
+    void partyThatFitsNowhereIsNotSeated() {
+        RestaurantSeatingIndex index = index(table(1, 4, "terrace"), table(2, 4, "terrace"), table(3, 8, null));
+        
+        assertThat(index.fits(9, SEVEN_PM, NINE_PM)).isFalse();
+        assertThat(index.allocate(9, SEVEN_PM, NINE_PM)).isNull();
+        assertThat(index.allocate(8, SEVEN_PM, NINE_PM).getTableIds()).containsExactly(3L);
+        assertThat(index.allocate(8, SEVEN_PM, NINE_PM).getTableIds()).containsExactlyInAnyOrder(1L, 2L);
+        // Every table is taken by now
+        assertThat(index.allocate(2, SEVEN_PM + 30, NINE_PM)).isNull();
+        assertThat(index.bookedIntervals()).isEqualTo(3);
+    }
+    
+    @Test
+    void bookingsMeetAtTheBoundaryWithoutOverlapping() {
+        RestaurantSeatingIndex index = index(table(1, 4, null), table(2, 4, null));
+        
+        assertThat(index.allocate(4, SEVEN_PM, NINE_PM).getTableIds()).containsExactly(1L);
+        assertThat(index.allocate(4, NINE_PM, NINE_PM + 120).getTableIds()).containsExactly(1L);
+        assertThat(index.allocate(4, SEVEN_PM - 120, SEVEN_PM).getTableIds()).containsExactly(1L);
+        // One minute into the first booking needs the other table
+        assertThat(index.allocate(4, NINE_PM - 1, NINE_PM + 60).getTableIds()).containsExactly(2L);
+    }
+    
+    @Test
+    void bookingATakenTableFailsAndBooksNothing() {
+        RestaurantSeatingIndex index = index(table(1, 4, "terrace"), table(2, 4, "terrace"));
+        index.book(List.of(2L), SEVEN_PM, NINE_PM);
+        
+        assertThatThrownBy(() -> index.book(List.of(1L, 2L), SEVEN_PM + 60, NINE_PM + 60))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(index.bookedIntervals()).isEqualTo(1);
+    }
+    
+    @Test
+    void scheduleRejectsADuplicateStartOrAnOverlap() {
+        TableSchedule schedule = new TableSchedule();
+        schedule.book(SEVEN_PM, NINE_PM);
+        
+        assertThatThrownBy(() -> schedule.book(SEVEN_PM, SEVEN_PM + 30)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> schedule.book(SEVEN_PM - 30, SEVEN_PM + 1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> schedule.book(NINE_PM - 1, NINE_PM + 30)).isInstanceOf(IllegalStateException.class);
+        schedule.book(NINE_PM, NINE_PM + 30);
+        assertThat(schedule.size()).isEqualTo(2);
+    }
+    
+    private static RestaurantSeatingIndex index(RestaurantTable... tables) {
+        return new RestaurantSeatingIndex(1L, List.of(tables));
+    }
+    
+    private static RestaurantTable table(long id, int capacity, String group) {
+        RestaurantTable table = RestaurantTable.builder()
+                .tableNumber("T" + id).capacity(capacity)
+                .combinable(group != null).combinationGroup(group)
+                .build();
+        table.setId(id);
+        return table;
+    }
+}
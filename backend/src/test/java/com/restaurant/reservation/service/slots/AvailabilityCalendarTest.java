@@ -0,0 +1,101 @@
+package com.restaurant.reservation.service.slots;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.AvailabilityCalendarDTO;
+import com.restaurant.reservation.dto.SimpleReservationDTO;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.SimpleReservationService;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = ServiceTestConfig.class)
+@ActiveProfiles("test")
+class AvailabilityCalendarTest {
+    
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+    
+    @Autowired
+    private SimpleReservationService reservationService;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Test
+    void rangeIsLimitedToTheConfiguredNumberOfDays() {
+        SimpleRestaurant restaurant = restaurant("Calendar Range Bistro");
+        
+        assertThat(calendar(restaurant, 62).getDays()).hasSize(62);
+        assertThatThrownBy(() -> calendar(restaurant, 63)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calendar(restaurant, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void bookingDiscardsTheCachedCalendar() {
+        SimpleRestaurant restaurant = restaurant("Calendar Cache Bistro");
+        AvailabilityCalendarDTO before = calendar(restaurant, 2);
+        assertThat(calendar(restaurant, 2)).isSameAs(before);
+        
+        book(restaurant, TOMORROW.atTime(19, 0), 4);
+        
+        AvailabilityCalendarDTO after = calendar(restaurant, 2);
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.getGeneration()).isGreaterThan(before.getGeneration());
+        assertThat(remaining(after, TOMORROW.atTime(19, 0))).isEqualTo(remaining(before, TOMORROW.atTime(19, 0)) - 4);
+    }
+    
+    @Test
+    void slotsCountTheCoversOverTheirWholeStay() {
+        SimpleRestaurant restaurant = restaurant("Calendar Window Bistro");
+        book(restaurant, TOMORROW.atTime(19, 0), 4);
+        book(restaurant, TOMORROW.plusDays(1).atTime(12, 0), 7);
+        
+        AvailabilityCalendarDTO calendar = calendar(restaurant, 2);
+        
+        // 90-minute stays: the slot ending as the booking starts is free, the next one overlaps
+        assertThat(remaining(calendar, TOMORROW.atTime(17, 30))).isEqualTo(10);
+        assertThat(remaining(calendar, TOMORROW.atTime(17, 45))).isEqualTo(6);
+        assertThat(remaining(calendar, TOMORROW.atTime(20, 15))).isEqualTo(6);
+        assertThat(remaining(calendar, TOMORROW.atTime(20, 30))).isEqualTo(10);
+        assertThat(remaining(calendar, TOMORROW.plusDays(1).atTime(12, 0))).isEqualTo(3);
+        assertThat(calendar.getDays().get(1).getAvailableSlots())
+                .isEqualTo(calendar.getDays().get(1).getSlots().size() - 11);
+    }
+    
+    private AvailabilityCalendarDTO calendar(SimpleRestaurant restaurant, int days) {
+        return reservationService.getAvailabilityCalendar(restaurant.getId(), TOMORROW, days, 4, 90);
+    }
+    
+    private static int remaining(AvailabilityCalendarDTO calendar, LocalDateTime start) {
+        return calendar.getDays().stream()
+                .flatMap(day -> day.getSlots().stream())
+                .filter(slot -> slot.getStart().equals(start))
+                .findFirst().orElseThrow()
+                .getRemaining();
+    }
+    
+    private void book(SimpleRestaurant restaurant, LocalDateTime start, int partySize) {
+        reservationService.createReservation(SimpleReservationDTO.builder()
+                .customerName("Guest").customerEmail("calendar@example.com").customerPhone("555-0101")
+                .reservationDateTime(start).partySize(partySize).restaurantId(restaurant.getId())
+                .build());
+    }
+    
+    private SimpleRestaurant restaurant(String name) {
+        return restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                .name(name).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(10)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build());
+    }
+}
@@ -0,0 +1,79 @@
+package com.restaurant.reservation.service.slots;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlotGridTest {
+    
+    private static final LocalDate FRIDAY = LocalDate.of(2030, 3, 1);
+    private static final LocalDate SATURDAY = FRIDAY.plusDays(1);
+    
+    @Test
+    void closingAfterMidnightBelongsToTheServiceDayBefore() {
+        SlotGrid grid = grid(LocalTime.of(18, 0), LocalTime.of(2, 0), 30, Set.of());
+        
+        List<LocalDateTime> slots = grid.slots(FRIDAY);
+        assertThat(slots).hasSize(16);
+        assertThat(slots.get(0)).isEqualTo(FRIDAY.atTime(18, 0));
+        assertThat(slots.get(slots.size() - 1)).isEqualTo(SATURDAY.atTime(1, 30));
+        assertThat(grid.serviceDateOf(SATURDAY.atTime(0, 30))).isEqualTo(FRIDAY);
+        assertThat(grid.serviceDateOf(SATURDAY.atTime(18, 0))).isEqualTo(SATURDAY);
+        assertThatThrownBy(() -> grid.validate(SATURDAY.atTime(2, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("closed");
+    }
+    
+    @Test
+    void slotAtClosingTimeIsNotBookable() {
+        SlotGrid grid = grid(LocalTime.of(10, 0), LocalTime.of(23, 0), 30, Set.of());
+        
+        assertThat(grid.isBookable(FRIDAY.atTime(22, 30))).isTrue();
+        assertThat(grid.isBookable(FRIDAY.atTime(23, 0))).isFalse();
+        assertThat(grid.slots(FRIDAY)).last().isEqualTo(FRIDAY.atTime(22, 30));
+        assertThatThrownBy(() -> grid.validate(FRIDAY.atTime(23, 0))).hasMessageContaining("closed");
+    }
+    
+    @Test
+    void startsFollowTheIntervalFromOpening() {
+        SlotGrid grid = grid(LocalTime.of(10, 0), LocalTime.of(11, 0), 25, Set.of());
+        
+        assertThat(grid.slots(FRIDAY)).containsExactly(
+                FRIDAY.atTime(10, 0), FRIDAY.atTime(10, 25), FRIDAY.atTime(10, 50));
+        assertThat(grid.isBookable(FRIDAY.atTime(10, 30))).isFalse();
+        assertThat(grid.isBookable(FRIDAY.atTime(10, 25, 30))).isFalse();
+        assertThatThrownBy(() -> grid.validate(FRIDAY.atTime(10, 30))).hasMessageContaining("every 25 minutes");
+    }
+    
+    @Test
+    void blackoutDateRemovesItsWholeServiceDay() {
+        SlotGrid grid = grid(LocalTime.of(18, 0), LocalTime.of(2, 0), 30, Set.of(FRIDAY));
+        
+        assertThat(grid.slots(FRIDAY)).isEmpty();
+        assertThat(grid.isBookable(FRIDAY.atTime(19, 0))).isFalse();
+        // After midnight is still Friday's service, Saturday evening is not
+        assertThat(grid.isBookable(SATURDAY.atTime(1, 0))).isFalse();
+        assertThat(grid.isBookable(SATURDAY.atTime(19, 0))).isTrue();
+        assertThatThrownBy(() -> grid.validate(FRIDAY.atTime(19, 0))).hasMessageContaining("no reservations on " + FRIDAY);
+    }
+    
+    @Test
+    void equalOpeningAndClosingMeansAroundTheClock() {
+        SlotGrid grid = grid(LocalTime.of(6, 0), LocalTime.of(6, 0), 60, Set.of());
+        
+        assertThat(grid.slots(FRIDAY)).hasSize(24);
+        assertThat(grid.serviceDateOf(SATURDAY.atTime(5, 0))).isEqualTo(FRIDAY);
+        assertThat(grid.serviceDateOf(SATURDAY.atTime(6, 0))).isEqualTo(SATURDAY);
+    }
+    
+    private static SlotGrid grid(LocalTime opening, LocalTime closing, int interval, Set<LocalDate> blackoutDates) {
+        return new SlotGrid(1L, opening, closing, interval, blackoutDates);
+    }
+}
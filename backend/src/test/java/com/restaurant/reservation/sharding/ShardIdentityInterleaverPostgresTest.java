@@ -0,0 +1,106 @@
+package com.restaurant.reservation.sharding;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the interleaving DDL against PostgreSQL, with two shards as two databases of one
+ * server. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(classes = ServiceTestConfig.class, properties = "app.sharding.enabled=true")
+@ActiveProfiles("test")
+class ShardIdentityInterleaverPostgresTest {
+    
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    private static String shardUrls;
+    
+    @Autowired
+    private ShardMap shardMap;
+    
+    @Autowired
+    private ShardIdentityInterleaver interleaver;
+    
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("app.sharding.urls", ShardIdentityInterleaverPostgresTest::shardUrls);
+    }
+    
+    @Test
+    void identityColumnsIncrementByTheNumberOfShards() {
+        for (String shard : shardMap.names()) {
+            JdbcTemplate jdbc = new JdbcTemplate(shardMap.dataSources().get(shard));
+            assertThat(increment(jdbc, "restaurants")).as("increment on %s", shard).isEqualTo(2);
+            assertThat(insertRestaurants(jdbc, shard, 3))
+                    .allSatisfy(id -> assertThat(Math.floorMod(id - 1, 2)).isEqualTo(shardMap.indexOf(shard)));
+        }
+    }
+    
+    @Test
+    void serialColumnsAreInterleavedThroughTheirSequence() {
+        String shard = shardMap.names().get(1);
+        JdbcTemplate jdbc = new JdbcTemplate(shardMap.dataSources().get(shard));
+        // The shape of a bigserial column, as in schemas not created by Hibernate
+        jdbc.execute("ALTER TABLE restaurant_tables ALTER COLUMN id DROP IDENTITY");
+        jdbc.execute("CREATE SEQUENCE restaurant_tables_id_seq OWNED BY restaurant_tables.id");
+        jdbc.execute("ALTER TABLE restaurant_tables ALTER COLUMN id SET DEFAULT nextval('restaurant_tables_id_seq')");
+        assertThat(increment(jdbc, "restaurant_tables")).isEqualTo(1);
+        
+        interleaver.afterSingletonsInstantiated();
+        
+        assertThat(increment(jdbc, "restaurant_tables")).isEqualTo(2);
+        assertThat(increment(jdbc, "restaurants")).isEqualTo(2);
+        Long first = jdbc.queryForObject("SELECT nextval('restaurant_tables_id_seq')", Long.class);
+        Long second = jdbc.queryForObject("SELECT nextval('restaurant_tables_id_seq')", Long.class);
+        assertThat(Math.floorMod(first - 1, 2)).isEqualTo(shardMap.indexOf(shard));
+        assertThat(second - first).isEqualTo(2);
+    }
+    
+    private static Long increment(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT seqincrement FROM pg_sequence "
+                + "WHERE seqrelid = CAST(pg_get_serial_sequence(?, 'id') AS regclass)", Long.class, table);
+    }
+    
+    private static List<Long> insertRestaurants(JdbcTemplate jdbc, String shard, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(jdbc.queryForObject("INSERT INTO restaurants (name, address, city, state, zip_code, phone_number, "
+                    + "cuisine, price_range, capacity, opening_time, closing_time, active, created_at, updated_at) "
+                    + "VALUES (?, '1 Main St', 'Springfield', 'IL', '62701', '555-0100', 'French', '$$', 40, "
+                    + "'10:00', '23:00', true, now(), now()) RETURNING id", Long.class, shard + " restaurant " + i));
+        }
+        return ids;
+    }
+    
+    private static synchronized String shardUrls() {
+        if (shardUrls == null) {
+            new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()))
+                    .execute("CREATE DATABASE shard_1");
+            shardUrls = POSTGRES.getJdbcUrl() + ","
+                    + POSTGRES.getJdbcUrl().replace("/" + POSTGRES.getDatabaseName(), "/shard_1");
+        }
+        return shardUrls;
+    }
+}
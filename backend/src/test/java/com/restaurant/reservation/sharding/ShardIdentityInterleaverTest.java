@@ -0,0 +1,81 @@
+package com.restaurant.reservation.sharding;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:interleave-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.sharding.enabled=true",
+        "app.sharding.urls=jdbc:h2:mem:interleave-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE,"
+                + "jdbc:h2:mem:interleave-1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE,"
+                + "jdbc:h2:mem:interleave-2;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class ShardIdentityInterleaverTest {
+    
+    @Autowired
+    private ShardMap shardMap;
+    
+    @Autowired
+    private ShardIdentityInterleaver interleaver;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Test
+    void everyShardAllocatesIdsFromItsOwnResidue() {
+        for (String shard : shardMap.names()) {
+            assertThat(new JdbcTemplate(shardMap.dataSources().get(shard)).queryForObject(
+                    "SELECT identity_increment FROM information_schema.columns "
+                            + "WHERE table_name = 'RESTAURANTS' AND column_name = 'ID'", Long.class))
+                    .as("increment on %s", shard)
+                    .isEqualTo(shardMap.size());
+        }
+        assertResidues(createRestaurants("Before restart", 12));
+    }
+    
+    @Test
+    void rerunningOnALiveDatabaseKeepsTheInterleaving() {
+        Set<Long> ids = createRestaurants("First run", 6);
+        interleaver.afterSingletonsInstantiated();
+        ids.addAll(createRestaurants("Second run", 6));
+        
+        assertThat(ids).hasSize(12);
+        assertResidues(ids);
+    }
+    
+    private Set<Long> createRestaurants(String prefix, int count) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            SimpleRestaurant restaurant = restaurantService.createRestaurant(SimpleRestaurantDTO.builder()
+                    .name(prefix + " " + i).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                    .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(40)
+                    .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                    .build());
+            assertThat(Math.floorMod(restaurant.getId() - 1, shardMap.size()))
+                    .as("id %d of %s", restaurant.getId(), restaurant.getName())
+                    .isEqualTo(shardMap.indexOf(shardMap.shardOf(restaurant.getName())));
+            ids.add(restaurant.getId());
+        }
+        return ids;
+    }
+    
+    private void assertResidues(Set<Long> ids) {
+        Set<Integer> residues = new HashSet<>();
+        ids.forEach(id -> residues.add((int) Math.floorMod(id - 1, shardMap.size())));
+        assertThat(residues).as("ids spread over every shard").hasSize(shardMap.size());
+    }
+}
@@ -0,0 +1,71 @@
+package com.restaurant.reservation.sharding;
+
+import com.restaurant.reservation.ServiceTestConfig;
+import com.restaurant.reservation.dto.SimpleRestaurantDTO;
+import com.restaurant.reservation.model.SimpleRestaurant;
+import com.restaurant.reservation.service.SimpleRestaurantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalTime;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = ServiceTestConfig.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:names-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "app.sharding.enabled=true",
+        "app.sharding.urls=jdbc:h2:mem:names-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE,"
+                + "jdbc:h2:mem:names-1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class ShardedRestaurantNamesTest {
+    
+    @Autowired
+    private ShardMap shardMap;
+    
+    @Autowired
+    private SimpleRestaurantService restaurantService;
+    
+    @Test
+    void renameToANameOfAnotherShardIsRejected() {
+        SimpleRestaurant restaurant = restaurantService.createRestaurant(restaurant("Rename Origin"));
+        String elsewhere = nameOnShard("Rename Target", shardMap.shardOf(restaurant.getName()), false);
+        
+        assertThatThrownBy(() -> restaurantService.updateRestaurant(restaurant.getId(), restaurant(elsewhere)))
+                .isInstanceOf(IllegalArgumentException.class);
+        
+        assertThat(restaurantService.getRestaurantById(restaurant.getId()).getName()).isEqualTo("Rename Origin");
+        assertThat(shardMap.shardOf(restaurantService.createRestaurant(restaurant(elsewhere)).getId()))
+                .isEqualTo(shardMap.shardOf(elsewhere));
+    }
+    
+    @Test
+    void renamedRestaurantStillClashesWithANewOneOfTheSameName() {
+        SimpleRestaurant restaurant = restaurantService.createRestaurant(restaurant("Clash Origin"));
+        String sameShard = nameOnShard("Clash Target", shardMap.shardOf(restaurant.getName()), true);
+        
+        restaurantService.updateRestaurant(restaurant.getId(), restaurant(sameShard));
+        
+        assertThatThrownBy(() -> restaurantService.createRestaurant(restaurant(sameShard)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+    
+    private String nameOnShard(String prefix, String shard, boolean same) {
+        return IntStream.range(0, 100).mapToObj(i -> prefix + " " + i)
+                .filter(name -> shard.equals(shardMap.shardOf(name)) == same)
+                .findFirst().orElseThrow();
+    }
+    
+    private static SimpleRestaurantDTO restaurant(String name) {
+        return SimpleRestaurantDTO.builder()
+                .name(name).address("1 Main St").city("Springfield").state("IL").zipCode("62701")
+                .phoneNumber("555-0100").cuisine("French").priceRange("$$").capacity(40)
+                .openingTime(LocalTime.of(10, 0)).closingTime(LocalTime.of(23, 0))
+                .build();
+    }
+}
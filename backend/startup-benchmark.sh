@@ -0,0 +1,75 @@
+#!/bin/bash
+# Startup time benchmark, run locally after: mvn -Pfast-startup package
+#
+# Starts the backend RUNS times in each mode and measures the wall-clock time from
+# launching the JVM until /actuator/health answers, i.e. until the instance could take
+# traffic. The modes add one technique each, so their contributions can be told apart:
+#
+#   fat-jar    java -jar on the repackaged Spring Boot jar
+#   classpath  plain class path from target/fast-startup, no AOT or CDS
+#   aot        + AOT-generated bean definitions
+#   aot-cds    + AppCDS archive
+#   fast       + lazy initialization of framework beans, i.e. target/fast-startup/run.sh
+#
+# Usage: ./startup-benchmark.sh [mode...]
+# Settings: RUNS (default 5), PORT (default 18080), APP_ARGS (default: embedded H2 profile)
+set -u
+cd "$(dirname "$0")" || exit 1
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+APP_ARGS=${APP_ARGS:---spring.profiles.active=embedded}
+MODES=${*:-fat-jar classpath aot aot-cds fast}
+MAIN=com.restaurant.reservation.RestaurantReservationApplication
+DIR=target/fast-startup
+
+FAT_JAR=$(ls target/*.jar 2>/dev/null | grep -v -- '-app.jar$' | head -n 1)
+APP_JAR=$(cd "$DIR" 2>/dev/null && ls *-app.jar 2>/dev/null | head -n 1)
+if [ -z "$FAT_JAR" ] || [ -z "$APP_JAR" ] || [ ! -f "$DIR/app.jsa" ]; then
+    echo "Build first with: mvn -Pfast-startup package" >&2
+    exit 1
+fi
+CLASSPATH="$APP_JAR:$(cat "$DIR/classpath.txt")"
+
+# Runs in the background subshell, so exec leaves the JVM as the process to stop
+launch() {
+    case "$1" in
+        fat-jar)   exec java -jar "$FAT_JAR" --server.port="$PORT" $APP_ARGS ;;
+        classpath) cd "$DIR" && exec java -cp "$CLASSPATH" $MAIN --server.port="$PORT" $APP_ARGS ;;
+        aot)       cd "$DIR" && exec java -Dspring.aot.enabled=true -cp "$CLASSPATH" $MAIN --server.port="$PORT" $APP_ARGS ;;
+        aot-cds)   cd "$DIR" && exec java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -cp "$CLASSPATH" $MAIN --server.port="$PORT" $APP_ARGS ;;
+        fast)      exec sh "$DIR/run.sh" --server.port="$PORT" $APP_ARGS ;;
+        *)         echo "Unknown mode $1" >&2; exit 2 ;;
+    esac
+}
+
+# Prints the milliseconds until the health endpoint answers, or fails after 120 seconds
+time_to_ready() {
+    local mode=$1 start pid
+    start=$(date +%s%N)
+    launch "$mode" > "target/startup-$mode.log" 2>&1 &
+    pid=$!
+    # Any answer counts: health may be DOWN for an external dependency such as Redis
+    while [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health")" = 000 ]; do
+        if ! kill -0 "$pid" 2>/dev/null || [ $(( ($(date +%s%N) - start) / 1000000 )) -gt 120000 ]; then
+            kill "$pid" 2>/dev/null; wait "$pid" 2>/dev/null
+            echo "Mode $mode did not become ready, see target/startup-$mode.log" >&2
+            return 1
+        fi
+        sleep 0.02
+    done
+    echo $(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid"; wait "$pid" 2>/dev/null
+    return 0
+}
+
+printf '%-10s %8s %8s %8s\n' mode min median max
+for mode in $MODES; do
+    times=()
+    for ((run = 0; run < RUNS; run++)); do
+        ms=$(time_to_ready "$mode") || continue 2
+        times+=("$ms")
+    done
+    sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    printf '%-10s %6dms %6dms %6dms\n' "$mode" "${sorted[0]}" "${sorted[$((RUNS / 2))]}" "${sorted[$((RUNS - 1))]}"
+done
@@ -53,6 +53,26 @@ export interface ReservationRequest {
   specialRequests?: string;
 }
 
+// Availability calendar interfaces
+export interface AvailabilitySlot {
+  start: string;
+  remaining: number;
+}
+
+export interface AvailabilityDay {
+  date: string;
+  open: boolean;
+  availableSlots: number;
+  slots: AvailabilitySlot[];
+}
+
+export interface AvailabilityCalendar {
+  restaurantId: number;
+  partySize: number;
+  durationMinutes: number;
+  days: AvailabilityDay[];
+}
+
 // Health check interface
 export interface HealthStatus {
   status: string;
@@ -145,6 +165,13 @@ class ApiService {
     });
   }
 
+  // Remaining capacity per day and slot; days with no available slots are full or closed
+  async getAvailabilityCalendar(restaurantId: number, from: string, days: number, partySize: number): Promise<ApiResponse<AvailabilityCalendar>> {
+    return this.fetchAPI<AvailabilityCalendar>(
+      `/reservations/availability/calendar?restaurantId=${restaurantId}&from=${encodeURIComponent(from)}&days=${days}&partySize=${partySize}`
+    );
+  }
+
   // Get restaurant availability (future enhancement)
   async getRestaurantAvailability(restaurantId: number, date: string): Promise<ApiResponse<any>> {
     // For now, return available - could be enhanced later